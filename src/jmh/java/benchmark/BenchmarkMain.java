@@ -0,0 +1,43 @@
+package benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * benchmarks.jar 的入口
+ * JMH 的线程数不能作为 @Param 参数, 因此用系统属性 bench.threads (逗号分隔, 如 1,4,16) 对每个线程数各运行一轮;
+ * 指定了结果文件 (-rff) 时, 每轮的结果写到带 "-t线程数" 后缀的文件中, 便于与上一次的结果比较
+ * 未设置 bench.threads 时等同于 JMH 自带的 Main, 其余参数原样交给 JMH
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String threads = System.getProperty("bench.threads");
+        if (threads == null || threads.isBlank()) {
+            Main.main(args);
+            return;
+        }
+        CommandLineOptions options = new CommandLineOptions(args);
+        for (String value : threads.split(",")) {
+            int count = Integer.parseInt(value.trim());
+            OptionsBuilder builder = new OptionsBuilder();
+            builder.parent(options).threads(count);
+            if (options.getResult().hasValue()) {
+                builder.result(withSuffix(options.getResult().get(), "-t" + count));
+            }
+            new Runner(builder.build()).run();
+        }
+    }
+
+    private static String withSuffix(String file, String suffix) {
+        int dot = file.lastIndexOf('.');
+        return dot > file.lastIndexOf('/') && dot > 0
+                ? file.substring(0, dot) + suffix + file.substring(dot)
+                : file + suffix;
+    }
+}
@@ -0,0 +1,194 @@
+package benchmark;
+
+import model.Account;
+import model.Budget;
+import model.Category;
+import model.Transaction;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import repository.ColumnarTransactionRepository;
+import repository.InMemoryDataRepository;
+import repository.MonthlyRollupStore;
+import service.PrecisionEngine;
+import service.ReportingService;
+import service.TransactionService;
+import util.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 基准测试共用的账本: 按参数生成固定种子的数据, 每次试验 (trial) 只生成一次
+ *  - ledgerSize: 账本中的交易笔数, 从 IDataRepository.query 注释中承诺 "流畅" 的 2 万条到 1000 万条
+ *  - repository: 交易存储库实现, indexed = InMemoryTransactionRepository, columnar = ColumnarTransactionRepository
+ *  - skew: 账户/类别/月份的分布, uniform 为均匀分布, zipf 为 Zipf(s=1.2) 分布 (少数热点账户与类别占大部分交易)
+ */
+@State(Scope.Benchmark)
+public class LedgerState {
+
+    static final int ACCOUNTS = 1_000;
+    static final int EXPENSE_CATEGORIES = 30;
+    static final int INCOME_CATEGORIES = 10;
+    static final int MONTHS = 24;
+    static final YearMonth FIRST_MONTH = YearMonth.of(2023, 1);
+    private static final int LOAD_BATCH = 100_000;
+    // 足以支撑一次迭代内的全部支出, recordTransaction 不会因透支而走告警日志路径
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000000000.00");
+
+    @Param({"20000", "1000000", "10000000"})
+    public int ledgerSize;
+
+    @Param({"indexed", "columnar"})
+    public String repository;
+
+    @Param({"uniform", "zipf"})
+    public String skew;
+
+    InMemoryDataRepository data;
+    TransactionService transactionService;
+    ReportingService reportingService;
+    PrecisionEngine precisionEngine;
+
+    String[] accountIds;
+    String[] categoryIds; // 前 EXPENSE_CATEGORIES 个为支出类别, 其余为收入类别
+    private Sampler accounts;
+    private Sampler categories;
+    private Sampler months;
+
+    @Setup(Level.Trial)
+    public void load() {
+        switch (repository) {
+            case "indexed":
+                data = new InMemoryDataRepository();
+                break;
+            case "columnar":
+                data = new InMemoryDataRepository(new ColumnarTransactionRepository());
+                break;
+            default:
+                throw new IllegalArgumentException("未知的存储库实现: " + repository);
+        }
+        boolean zipf = "zipf".equals(skew);
+        accounts = new Sampler(ACCOUNTS, zipf);
+        categories = new Sampler(EXPENSE_CATEGORIES + INCOME_CATEGORIES, zipf);
+        months = new Sampler(MONTHS, zipf);
+
+        accountIds = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds[i] = String.format("ACC_%04d", i);
+        }
+        topUpAccounts();
+        categoryIds = new String[EXPENSE_CATEGORIES + INCOME_CATEGORIES];
+        for (int i = 0; i < categoryIds.length; i++) {
+            TransactionType type = i < EXPENSE_CATEGORIES ? TransactionType.EXPENSE : TransactionType.INCOME;
+            categoryIds[i] = String.format("CAT_%02d", i);
+            data.getCategoryRepository().save(new Category(categoryIds[i], "类别" + i, type));
+            if (type == TransactionType.EXPENSE) {
+                data.getBudgetRepository().save(new Budget("BUD_" + i, new BigDecimal(ledgerSize / 10), categoryIds[i]));
+            }
+        }
+        data.getBudgetRepository().save(new Budget("BUD_TOTAL", new BigDecimal(ledgerSize * 10L), null));
+
+        SplittableRandom random = new SplittableRandom(42);
+        List<Transaction> batch = new ArrayList<>(LOAD_BATCH);
+        for (int i = 0; i < ledgerSize; i++) {
+            batch.add(newTransaction("TX_" + i, random.nextDouble(), random.nextDouble(),
+                    random.nextDouble(), random.nextDouble()));
+            if (batch.size() == LOAD_BATCH) {
+                data.getTransactionRepository().saveAll(batch);
+                batch.clear();
+            }
+        }
+        data.getTransactionRepository().saveAll(batch);
+
+        precisionEngine = new PrecisionEngine();
+        transactionService = new TransactionService(data.getTransactionRepository(),
+                data.getAccountRepository(), data.getCategoryRepository(), precisionEngine);
+        // 月度汇总挂接时从已加载的账本初始化
+        reportingService = new ReportingService(data.getTransactionRepository(),
+                data.getBudgetRepository(), precisionEngine,
+                MonthlyRollupStore.attachTo(data.getTransactionRepository()));
+    }
+
+    /**
+     * 每次迭代前把账户余额重置为期初余额: 支出多于收入, 热点账户在长时间运行后会被扣成负数,
+     * 启用 FINE 级别日志时之后每次写入都会记录透支日志, 测到的将是日志而不是记账本身
+     */
+    @Setup(Level.Iteration)
+    public void topUpAccounts() {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            data.getAccountRepository().save(new Account(accountIds[i], "账户" + i, OPENING_BALANCE));
+        }
+    }
+
+    /**
+     * 按当前分布生成一笔交易; u1..u4 为 [0, 1) 内的随机数, 分别决定类别、账户、月份与金额/时刻
+     */
+    Transaction newTransaction(String id, double u1, double u2, double u3, double u4) {
+        int category = categories.sample(u1);
+        TransactionType type = category < EXPENSE_CATEGORIES ? TransactionType.EXPENSE : TransactionType.INCOME;
+        long cents = 1 + (long) (u4 * 500_00);
+        LocalDateTime dateTime = month(u3).atDay(1).atStartOfDay()
+                .plusSeconds((long) (u4 * 28 * 24 * 3600));
+        BigDecimal amount = BigDecimal.valueOf(cents, 2);
+        return id == null
+                ? new Transaction(amount, type, dateTime, categoryIds[category], accountIds[accounts.sample(u2)])
+                : new Transaction(id, amount, type, dateTime, categoryIds[category], accountIds[accounts.sample(u2)]);
+    }
+
+    String category(double u) {
+        return categoryIds[categories.sample(u)];
+    }
+
+    YearMonth month(double u) {
+        return FIRST_MONTH.plusMonths(months.sample(u));
+    }
+
+    /**
+     * 把 [0, 1) 内的均匀随机数映射为 [0, n) 内的下标; Zipf 分布用累积分布表加二分查找
+     */
+    private static final class Sampler {
+        private final int n;
+        private final double[] cdf;
+
+        Sampler(int n, boolean zipf) {
+            this.n = n;
+            if (!zipf) {
+                this.cdf = null;
+                return;
+            }
+            this.cdf = new double[n];
+            double total = 0;
+            for (int k = 0; k < n; k++) {
+                total += 1 / Math.pow(k + 1, 1.2);
+                cdf[k] = total;
+            }
+            for (int k = 0; k < n; k++) {
+                cdf[k] /= total;
+            }
+        }
+
+        int sample(double u) {
+            if (cdf == null) {
+                return Math.min((int) (u * n), n - 1);
+            }
+            int low = 0;
+            int high = n - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cdf[mid] <= u) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
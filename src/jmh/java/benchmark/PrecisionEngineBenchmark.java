@@ -0,0 +1,68 @@
+package benchmark;
+
+import model.Money;
+import model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.PrecisionEngine;
+import util.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PrecisionEngine.calculateSum: BigDecimal 版本 (List&lt;Transaction&gt;) 与定点数版本 (long[] 分) 对比
+ * 只依赖金额序列, 因此不使用 LedgerState, 避免为求和构造整个账本
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class PrecisionEngineBenchmark {
+
+    @Param({"20000", "1000000", "10000000"})
+    public int ledgerSize;
+
+    private final PrecisionEngine engine = new PrecisionEngine();
+    private List<Transaction> transactions;
+    private long[] cents;
+
+    @Setup(Level.Trial)
+    public void load() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime dateTime = LocalDateTime.of(2024, 1, 1, 0, 0);
+        transactions = new ArrayList<>(ledgerSize);
+        cents = new long[ledgerSize];
+        for (int i = 0; i < ledgerSize; i++) {
+            cents[i] = 1 + random.nextLong(500_00);
+            transactions.add(new Transaction("TX_" + i, Money.toBigDecimal(cents[i]), TransactionType.EXPENSE,
+                    dateTime, "CAT_00", "ACC_0000"));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal calculateSum_transactions() {
+        return engine.calculateSum(transactions);
+    }
+
+    @Benchmark
+    public long calculateSum_cents() {
+        return engine.calculateSum(cents);
+    }
+}
@@ -0,0 +1,42 @@
+package benchmark;
+
+import model.Budget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReportingService 的报表查询, 每次调用随机选取一个月份 (按 skew 参数的分布)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class ReportingServiceBenchmark {
+
+    @Benchmark
+    public Map<String, BigDecimal> getMonthlyOverview(LedgerState ledger) {
+        return ledger.reportingService.getMonthlyOverview(ledger.month(ThreadLocalRandom.current().nextDouble()));
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> getCategoryBreakdown(LedgerState ledger) {
+        return ledger.reportingService.getCategoryBreakdown(ledger.month(ThreadLocalRandom.current().nextDouble()));
+    }
+
+    @Benchmark
+    public List<Budget> checkBudgetAlerts(LedgerState ledger) {
+        return ledger.reportingService.checkBudgetAlerts(ledger.month(ThreadLocalRandom.current().nextDouble()));
+    }
+}
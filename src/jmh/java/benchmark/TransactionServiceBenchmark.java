@@ -0,0 +1,60 @@
+package benchmark;
+
+import model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import repository.Page;
+import repository.PageRequest;
+import repository.TransactionFilter;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransactionService 的热点路径
+ * recordTransaction 在测量期间会不断向账本追加交易, 账本规模随运行时间略有增长;
+ * 多线程运行时 (-Dbench.threads=...) zipf 分布会让写入集中在少数热点账户上, 可观察账户锁的争用
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class TransactionServiceBenchmark {
+
+    @Benchmark
+    public Transaction recordTransaction(LedgerState ledger) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Transaction tx = ledger.newTransaction(null, random.nextDouble(), random.nextDouble(),
+                random.nextDouble(), random.nextDouble());
+        return ledger.transactionService.recordTransaction(tx);
+    }
+
+    /**
+     * 按类别 + 一个月的时间范围筛选
+     */
+    @Benchmark
+    public List<Transaction> findTransactions(LedgerState ledger) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        YearMonth month = ledger.month(random.nextDouble());
+        return ledger.transactionService.findTransactions(ledger.category(random.nextDouble()),
+                month.atDay(1).atStartOfDay(), month.atEndOfMonth().atTime(23, 59, 59));
+    }
+
+    /**
+     * 列表视图: 某个类别最近的 50 笔交易 (键集分页的第一页)
+     */
+    @Benchmark
+    public Page latestPage(LedgerState ledger) {
+        String category = ledger.category(ThreadLocalRandom.current().nextDouble());
+        return ledger.transactionService.findTransactions(TransactionFilter.all().withCategory(category),
+                PageRequest.first(50, PageRequest.Sort.TIME_DESC));
+    }
+}
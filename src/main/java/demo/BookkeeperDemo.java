@@ -2,6 +2,9 @@ package demo;
 
 import model.*;
 import repository.InMemoryDataRepository;
+import repository.MonthlyRollupStore;
+import repository.PageRequest;
+import repository.TransactionFilter;
 import service.PrecisionEngine;
 import service.ReportingService;
 import service.SystemService;
@@ -21,6 +24,8 @@ import java.util.Scanner;
  */
 public class BookkeeperDemo {
 
+    private static final int RECENT_TRANSACTIONS = 50;
+
     // "依赖注入" 容器
     private final InMemoryDataRepository repository = new InMemoryDataRepository();
     private final PrecisionEngine precisionEngine = new PrecisionEngine();
@@ -48,7 +53,8 @@ public class BookkeeperDemo {
         this.reportingService = new ReportingService(
             repository.getTransactionRepository(),
             repository.getBudgetRepository(),
-            precisionEngine
+            precisionEngine,
+            MonthlyRollupStore.attachTo(repository.getTransactionRepository())
         );
         this.systemService = new SystemService(
             repository.getCategoryRepository(),
@@ -184,8 +190,9 @@ public class BookkeeperDemo {
     }
 
     private void showReport() {
-        System.out.println("--- 所有交易记录 ---");
-        List<Transaction> transactions = repository.getTransactionRepository().findAll();
+        System.out.println("--- 最近 " + RECENT_TRANSACTIONS + " 笔交易记录 ---");
+        List<Transaction> transactions = repository.getTransactionRepository()
+                .top(TransactionFilter.all(), PageRequest.Sort.TIME_DESC, RECENT_TRANSACTIONS);
         if (transactions.isEmpty()) {
             System.out.println("  暂无交易记录。");
         } else {
@@ -0,0 +1,95 @@
+package metrics;
+
+import model.Budget;
+import repository.IDataRepository;
+import repository.ITransactionRepository;
+import repository.MonthlyRollupStore;
+import service.PrecisionEngine;
+import service.ReportingService;
+import util.TransactionType;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带指标的报表服务: 为各报表计时 ("service.reporting.*")
+ * checkBudgetAlerts 内部会调用 getCategoryBreakdown, 两者的耗时分别计入各自的计时器
+ */
+public class InstrumentedReportingService extends ReportingService {
+
+    private final Timer monthlyOverview;
+    private final Timer categoryBreakdown;
+    private final Timer trendAnalysis;
+    private final Timer budgetAlerts;
+
+    /**
+     * 共用已挂上的月度汇总, 不为本服务单独维护一份
+     */
+    public InstrumentedReportingService(ITransactionRepository transactionRepo,
+                                        IDataRepository<Budget, String> budgetRepo,
+                                        PrecisionEngine precisionEngine,
+                                        MonthlyRollupStore rollups,
+                                        MetricsRegistry registry) {
+        super(transactionRepo, budgetRepo, precisionEngine, rollups);
+        this.monthlyOverview = registry.timer("service.reporting.getMonthlyOverview");
+        this.categoryBreakdown = registry.timer("service.reporting.getCategoryBreakdown");
+        this.trendAnalysis = registry.timer("service.reporting.getTrendAnalysis");
+        this.budgetAlerts = registry.timer("service.reporting.checkBudgetAlerts");
+    }
+
+    @Override
+    public Map<String, BigDecimal> getMonthlyOverview(YearMonth month) {
+        long start = monthlyOverview.start();
+        try {
+            Map<String, BigDecimal> overview = super.getMonthlyOverview(month);
+            monthlyOverview.stop(start);
+            return overview;
+        } catch (RuntimeException e) {
+            monthlyOverview.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<String, BigDecimal> getCategoryBreakdown(YearMonth month) {
+        long start = categoryBreakdown.start();
+        try {
+            Map<String, BigDecimal> breakdown = super.getCategoryBreakdown(month);
+            categoryBreakdown.stop(start);
+            return breakdown;
+        } catch (RuntimeException e) {
+            categoryBreakdown.fail(start);
+            throw e;
+        }
+    }
+
+    /**
+     * getTrendAnalysis(type, months) 委托给本方法, 因此两个重载都会计时
+     */
+    @Override
+    public Map<YearMonth, BigDecimal> getTrendAnalysis(TransactionType type, YearMonth endMonth, int months) {
+        long start = trendAnalysis.start();
+        try {
+            Map<YearMonth, BigDecimal> trend = super.getTrendAnalysis(type, endMonth, months);
+            trendAnalysis.stop(start);
+            return trend;
+        } catch (RuntimeException e) {
+            trendAnalysis.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Budget> checkBudgetAlerts(YearMonth month) {
+        long start = budgetAlerts.start();
+        try {
+            List<Budget> alerts = super.checkBudgetAlerts(month);
+            budgetAlerts.stop(start);
+            return alerts;
+        } catch (RuntimeException e) {
+            budgetAlerts.fail(start);
+            throw e;
+        }
+    }
+}
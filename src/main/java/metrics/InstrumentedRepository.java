@@ -0,0 +1,136 @@
+package metrics;
+
+import repository.IDataRepository;
+import repository.ScanCounter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * 带指标的存储库装饰器: 每个操作一个计时器 ("前缀.save" 等),
+ * query 额外记录每次查询扫描的行数 ("前缀.query.rowsScanned") 与返回的行数 ("前缀.query.rowsReturned")
+ */
+public class InstrumentedRepository<T, ID> implements IDataRepository<T, ID> {
+
+    private final IDataRepository<T, ID> delegate;
+    private final Timer save;
+    private final Timer saveAll;
+    private final Timer findById;
+    private final Timer deleteById;
+    private final Timer query;
+    private final Timer findAll;
+    protected final Histogram rowsScanned;
+    protected final Histogram rowsReturned;
+
+    /**
+     * @param prefix 指标名前缀, 如 "repository.account"
+     */
+    public InstrumentedRepository(IDataRepository<T, ID> delegate, MetricsRegistry registry, String prefix) {
+        this.delegate = delegate;
+        this.save = registry.timer(prefix + ".save");
+        this.saveAll = registry.timer(prefix + ".saveAll");
+        this.findById = registry.timer(prefix + ".findById");
+        this.deleteById = registry.timer(prefix + ".deleteById");
+        this.query = registry.timer(prefix + ".query");
+        this.findAll = registry.timer(prefix + ".findAll");
+        this.rowsScanned = registry.histogram(prefix + ".query.rowsScanned");
+        this.rowsReturned = registry.histogram(prefix + ".query.rowsReturned");
+    }
+
+    @Override
+    public T save(T entity) {
+        long start = save.start();
+        try {
+            T saved = delegate.save(entity);
+            save.stop(start);
+            return saved;
+        } catch (RuntimeException e) {
+            save.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<T> saveAll(Collection<T> entities) {
+        long start = saveAll.start();
+        try {
+            List<T> saved = delegate.saveAll(entities);
+            saveAll.stop(start);
+            return saved;
+        } catch (RuntimeException e) {
+            saveAll.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<T> findById(ID id) {
+        long start = findById.start();
+        try {
+            Optional<T> found = delegate.findById(id);
+            findById.stop(start);
+            return found;
+        } catch (RuntimeException e) {
+            findById.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void deleteById(ID id) {
+        long start = deleteById.start();
+        try {
+            delegate.deleteById(id);
+            deleteById.stop(start);
+        } catch (RuntimeException e) {
+            deleteById.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<T> query(Predicate<T> predicate) {
+        ScanCounter.take();
+        long start = query.start();
+        try {
+            List<T> result = delegate.query(predicate);
+            query.stop(start);
+            recordRows(result.size());
+            return result;
+        } catch (RuntimeException e) {
+            query.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<T> findAll() {
+        long start = findAll.start();
+        try {
+            List<T> all = delegate.findAll();
+            findAll.stop(start);
+            return all;
+        } catch (RuntimeException e) {
+            findAll.fail(start);
+            throw e;
+        }
+    }
+
+    /**
+     * 惰性遍历不计时, 遍历耗时计入调用方
+     */
+    @Override
+    public Stream<T> streamAll() {
+        return delegate.streamAll();
+    }
+
+    /**
+     * 记录一次查询的扫描/返回行数; 调用前应已用 ScanCounter.take() 清零当前线程的计数
+     */
+    protected void recordRows(int returned) {
+        rowsScanned.record(ScanCounter.take());
+        rowsReturned.record(returned);
+    }
+}
@@ -0,0 +1,89 @@
+package metrics;
+
+import model.Category;
+import model.UserConfiguration;
+import repository.IDataRepository;
+import repository.ITransactionRepository;
+import repository.PersistentDataRepository;
+import repository.TransactionFilter;
+import service.SystemService;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带指标的系统服务: 为导出、备份与恢复计时 ("service.system.*"), 并累计导出的行数
+ */
+public class InstrumentedSystemService extends SystemService {
+
+    private final Timer export;
+    private final Timer backup;
+    private final Timer restore;
+    private final LongAdder exportedRows;
+
+    public InstrumentedSystemService(IDataRepository<Category, String> categoryRepo,
+                                     ITransactionRepository transactionRepo,
+                                     UserConfiguration userConfiguration,
+                                     PersistentDataRepository store,
+                                     Path backupFile,
+                                     MetricsRegistry registry) {
+        super(categoryRepo, transactionRepo, userConfiguration, store, backupFile);
+        this.export = registry.timer("service.system.exportData");
+        this.backup = registry.timer("service.system.backupData");
+        this.restore = registry.timer("service.system.restoreData");
+        this.exportedRows = registry.counter("service.system.exportData.rows");
+    }
+
+    @Override
+    public long exportData(String format, TransactionFilter filter, OutputStream out) {
+        long start = export.start();
+        try {
+            long rows = super.exportData(format, filter, out);
+            export.stop(start);
+            exportedRows.add(rows);
+            return rows;
+        } catch (RuntimeException e) {
+            export.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public long exportData(String format, TransactionFilter filter, WritableByteChannel out, int parallelism) {
+        long start = export.start();
+        try {
+            long rows = super.exportData(format, filter, out, parallelism);
+            export.stop(start);
+            exportedRows.add(rows);
+            return rows;
+        } catch (RuntimeException e) {
+            export.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void backupData() {
+        long start = backup.start();
+        try {
+            super.backupData();
+            backup.stop(start);
+        } catch (RuntimeException e) {
+            backup.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void restoreData() {
+        long start = restore.start();
+        try {
+            super.restoreData();
+            restore.stop(start);
+        } catch (RuntimeException e) {
+            restore.fail(start);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package metrics;
+
+import model.Transaction;
+import repository.ITransactionRepository;
+import repository.MonthlyRollupStore;
+import repository.Page;
+import repository.PageRequest;
+import repository.ScanCounter;
+import repository.TransactionChangeListener;
+import repository.TransactionFilter;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 带指标的交易存储库: 在 InstrumentedRepository 的基础上为结构化查询与按月聚合计时
+ * 结构化查询与谓词查询共用 "前缀.query.rowsScanned" / "前缀.query.rowsReturned" 两个直方图
+ * stream 是惰性的, 只统计调用次数 ("前缀.stream"), 遍历耗时计入调用方
+ */
+public class InstrumentedTransactionRepository extends InstrumentedRepository<Transaction, String>
+        implements ITransactionRepository {
+
+    private final ITransactionRepository delegate;
+    private final Timer queryByFilter;
+    private final Timer aggregateByMonth;
+    private final Timer page;
+    private final LongAdder streams;
+
+    public InstrumentedTransactionRepository(ITransactionRepository delegate, MetricsRegistry registry) {
+        this(delegate, registry, "repository.transaction");
+    }
+
+    public InstrumentedTransactionRepository(ITransactionRepository delegate, MetricsRegistry registry, String prefix) {
+        super(delegate, registry, prefix);
+        this.delegate = delegate;
+        this.queryByFilter = registry.timer(prefix + ".queryByFilter");
+        this.aggregateByMonth = registry.timer(prefix + ".aggregateByMonth");
+        this.page = registry.timer(prefix + ".page");
+        this.streams = registry.counter(prefix + ".stream");
+    }
+
+    @Override
+    public List<Transaction> query(TransactionFilter filter) {
+        ScanCounter.take();
+        long start = queryByFilter.start();
+        try {
+            List<Transaction> result = delegate.query(filter);
+            queryByFilter.stop(start);
+            recordRows(result.size());
+            return result;
+        } catch (RuntimeException e) {
+            queryByFilter.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Page page(TransactionFilter filter, PageRequest request) {
+        ScanCounter.take();
+        long start = page.start();
+        try {
+            Page result = delegate.page(filter, request);
+            page.stop(start);
+            recordRows(result.getItems().size());
+            return result;
+        } catch (RuntimeException e) {
+            page.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Stream<Transaction> stream(TransactionFilter filter) {
+        streams.increment();
+        return delegate.stream(filter);
+    }
+
+    @Override
+    public Map<YearMonth, Map<MonthlyRollupStore.Key, MonthlyRollupStore.Totals>> aggregateByMonth(TransactionFilter filter) {
+        long start = aggregateByMonth.start();
+        try {
+            Map<YearMonth, Map<MonthlyRollupStore.Key, MonthlyRollupStore.Totals>> result = delegate.aggregateByMonth(filter);
+            aggregateByMonth.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            aggregateByMonth.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void addChangeListener(TransactionChangeListener listener) {
+        delegate.addChangeListener(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TransactionChangeListener listener) {
+        delegate.removeChangeListener(listener);
+    }
+}
@@ -0,0 +1,154 @@
+package metrics;
+
+import model.Account;
+import model.Category;
+import model.Transaction;
+import repository.BalanceCheckpoints;
+import repository.IDataRepository;
+import repository.ITransactionRepository;
+import repository.Page;
+import repository.PageRequest;
+import repository.TransactionFilter;
+import service.AccountLockManager;
+import service.PrecisionEngine;
+import service.TransactionService;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 带指标的交易服务: 为每个公开操作计时 ("service.transaction.*"), 批量录入另记录录入的行数
+ * TransactionService 不是接口, 因此以子类的方式装饰, 构造参数与 TransactionService 相同
+ */
+public class InstrumentedTransactionService extends TransactionService {
+
+    private final Timer recordTransaction;
+    private final Timer recordTransactions;
+    private final Timer findTransactions;
+    private final Timer searchTransactions;
+    private final Timer transferFunds;
+    private final Timer balanceAt;
+    private final Histogram batchRows;
+
+    public InstrumentedTransactionService(ITransactionRepository transactionRepo,
+                                          IDataRepository<Account, String> accountRepo,
+                                          IDataRepository<Category, String> categoryRepo,
+                                          PrecisionEngine precisionEngine,
+                                          AccountLockManager accountLocks,
+                                          MetricsRegistry registry) {
+        this(transactionRepo, accountRepo, categoryRepo, precisionEngine, accountLocks, null, registry);
+    }
+
+    public InstrumentedTransactionService(ITransactionRepository transactionRepo,
+                                          IDataRepository<Account, String> accountRepo,
+                                          IDataRepository<Category, String> categoryRepo,
+                                          PrecisionEngine precisionEngine,
+                                          AccountLockManager accountLocks,
+                                          BalanceCheckpoints balanceCheckpoints,
+                                          MetricsRegistry registry) {
+        super(transactionRepo, accountRepo, categoryRepo, precisionEngine, accountLocks, balanceCheckpoints);
+        this.recordTransaction = registry.timer("service.transaction.recordTransaction");
+        this.recordTransactions = registry.timer("service.transaction.recordTransactions");
+        this.findTransactions = registry.timer("service.transaction.findTransactions");
+        this.searchTransactions = registry.timer("service.transaction.searchTransactions");
+        this.transferFunds = registry.timer("service.transaction.transferFunds");
+        this.balanceAt = registry.timer("service.transaction.getBalanceAt");
+        this.batchRows = registry.histogram("service.transaction.recordTransactions.rows");
+    }
+
+    @Override
+    public Transaction recordTransaction(Transaction data) {
+        long start = recordTransaction.start();
+        try {
+            Transaction saved = super.recordTransaction(data);
+            recordTransaction.stop(start);
+            return saved;
+        } catch (RuntimeException e) {
+            recordTransaction.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Transaction> recordTransactions(List<Transaction> batch) {
+        long start = recordTransactions.start();
+        try {
+            List<Transaction> saved = super.recordTransactions(batch);
+            recordTransactions.stop(start);
+            batchRows.record(saved.size());
+            return saved;
+        } catch (RuntimeException e) {
+            recordTransactions.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Transaction> findTransactions(String categoryId, LocalDateTime start, LocalDateTime end) {
+        long begin = findTransactions.start();
+        try {
+            List<Transaction> found = super.findTransactions(categoryId, start, end);
+            findTransactions.stop(begin);
+            return found;
+        } catch (RuntimeException e) {
+            findTransactions.fail(begin);
+            throw e;
+        }
+    }
+
+    @Override
+    public Page findTransactions(TransactionFilter filter, PageRequest page) {
+        long begin = findTransactions.start();
+        try {
+            Page found = super.findTransactions(filter, page);
+            findTransactions.stop(begin);
+            return found;
+        } catch (RuntimeException e) {
+            findTransactions.fail(begin);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Transaction> searchTransactions(String query, TransactionFilter filter) {
+        long begin = searchTransactions.start();
+        try {
+            List<Transaction> found = super.searchTransactions(query, filter);
+            searchTransactions.stop(begin);
+            return found;
+        } catch (RuntimeException e) {
+            searchTransactions.fail(begin);
+            throw e;
+        }
+    }
+
+    /**
+     * transferFunds(from, to, amount) 委托给本方法, 因此两个重载都会计时
+     */
+    @Override
+    public Transaction transferFunds(String fromAccountId, String toAccountId, BigDecimal amount,
+                                     LocalDateTime dateTime, String memo) {
+        long start = transferFunds.start();
+        try {
+            Transaction transfer = super.transferFunds(fromAccountId, toAccountId, amount, dateTime, memo);
+            transferFunds.stop(start);
+            return transfer;
+        } catch (RuntimeException e) {
+            transferFunds.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public BigDecimal getBalanceAt(String accountId, LocalDateTime dateTime) {
+        long start = balanceAt.start();
+        try {
+            BigDecimal balance = super.getBalanceAt(accountId, dateTime);
+            balanceAt.stop(start);
+            return balance;
+        } catch (RuntimeException e) {
+            balanceAt.fail(start);
+            throw e;
+        }
+    }
+}
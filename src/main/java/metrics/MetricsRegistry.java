@@ -0,0 +1,79 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 指标注册表: 按名称创建并持有计数器、直方图与计时器
+ * 装饰器 (Instrumented*) 在构造时取得各自的指标对象并保存在字段中, 热点路径上不再查表;
+ * 读取方式有两种: 直接调用 getCounters / getHistograms (拉取式 API), 或注册为 MXBean 后通过 JMX 读取
+ *
+ * 命名约定: 计时器的直方图以纳秒为单位, 失败次数记在 "名称.errors" 计数器中
+ */
+public class MetricsRegistry implements MetricsRegistryMXBean {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    public Timer timer(String name) {
+        return new Timer(histogram(name), counter(name + ".errors"));
+    }
+
+    @Override
+    public SortedMap<String, Long> getCounters() {
+        SortedMap<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    @Override
+    public SortedMap<String, Histogram.Snapshot> getHistograms() {
+        SortedMap<String, Histogram.Snapshot> values = new TreeMap<>();
+        histograms.forEach((name, histogram) -> values.put(name, histogram.snapshot()));
+        return values;
+    }
+
+    /**
+     * 清零所有指标 (指标对象本身保留, 装饰器持有的引用仍然有效)
+     */
+    @Override
+    public void reset() {
+        counters.values().forEach(LongAdder::reset);
+        histograms.values().forEach(Histogram::reset);
+    }
+
+    /**
+     * 注册到平台 MBeanServer, 例如 registerMBean("BookKeeper:type=Metrics")
+     */
+    public ObjectName registerMBean(String objectName) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("无法注册指标 MBean: " + objectName, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        getCounters().forEach((name, value) -> text.append(name).append(": ").append(value).append('\n'));
+        getHistograms().forEach((name, snapshot) -> text.append(name).append(": ").append(snapshot).append('\n'));
+        return text.toString();
+    }
+}
@@ -0,0 +1,15 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * MetricsRegistry 的 JMX 视图 (见 MetricsRegistry.registerMBean)
+ */
+public interface MetricsRegistryMXBean {
+
+    Map<String, Long> getCounters();
+
+    Map<String, Histogram.Snapshot> getHistograms();
+
+    void reset();
+}
@@ -0,0 +1,53 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 计时器: 纳秒延迟直方图 + 失败次数, 由 MetricsRegistry.timer 创建
+ * 用法 (不分配对象, 不需要 lambda):
+ * <pre>
+ * long start = timer.start();
+ * try {
+ *     T result = ...;
+ *     timer.stop(start);
+ *     return result;
+ * } catch (RuntimeException e) {
+ *     timer.fail(start);
+ *     throw e;
+ * }
+ * </pre>
+ */
+public final class Timer {
+
+    private final Histogram latency;
+    private final LongAdder failures;
+
+    Timer(Histogram latency, LongAdder failures) {
+        this.latency = latency;
+        this.failures = failures;
+    }
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void stop(long start) {
+        latency.record(System.nanoTime() - start);
+    }
+
+    /**
+     * 调用以异常结束: 同样记录耗时, 并计一次失败
+     */
+    public void fail(long start) {
+        stop(start);
+        failures.increment();
+    }
+
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+}
@@ -1,29 +1,40 @@
 package model;
+import util.IdGenerators;
 import util.TransactionType;
 import util.ValidationException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
 
 /**
  * 实体: 账户 (Account) [cite: 45]
  * 存储资金账户信息,如余额。负责在交易或转账发生时更新余额 [cite: 86]
  */
 public class Account {
+    private static final Logger LOG = Logger.getLogger(Account.class.getName());
+
     private String accountId;
     private String name;
-    private BigDecimal balance;
+    private final AtomicLong balanceCents; // 余额以 "分" 存储 (见 Money), 通过 CAS 原子更新
 
     public Account(String name, BigDecimal initialBalance) {
-        this.accountId = "ACC_" + UUID.randomUUID().toString().substring(0, 8);
+        this(IdGenerators.next("ACC_"), name, initialBalance);
+    }
+
+    /**
+     * 使用已有ID构造, 用于存储层还原已持久化的账户
+     */
+    public Account(String accountId, String name, BigDecimal balance) {
+        this.accountId = accountId;
         this.name = name;
-        this.balance = initialBalance.setScale(2, RoundingMode.HALF_UP);
+        this.balanceCents = new AtomicLong(Money.toCents(balance));
     }
 
     // Getters and Setters...
     public String getAccountId() { return accountId; }
     public String getName() { return name; }
-    public BigDecimal getBalance() { return balance; }
+    public BigDecimal getBalance() { return Money.toBigDecimal(balanceCents.get()); }
+    public long getBalanceCents() { return balanceCents.get(); }
     public void setName(String name) { this.name = name; }
 
     /**
@@ -34,23 +45,43 @@ public class Account {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new ValidationException("更新余额的金额必须为正数");
         }
-        
-        BigDecimal formattedAmount = amount.setScale(2, RoundingMode.HALF_UP);
+        updateBalance(Money.toCents(amount), type);
+    }
+
+    /**
+     * updateBalance 的定点数版本, 金额以 "分" 表示, 不分配 BigDecimal
+     * 以 CAS 循环更新, 多个线程并发更新同一账户不会丢失更新
+     */
+    public void updateBalance(long amountCents, TransactionType type) {
+        if (amountCents <= 0) {
+            throw new ValidationException("更新余额的金额必须为正数");
+        }
 
         if (type == TransactionType.INCOME) {
-            this.balance = this.balance.add(formattedAmount);
+            long current;
+            do {
+                current = balanceCents.get();
+            } while (!balanceCents.compareAndSet(current, Money.add(current, amountCents)));
         } else if (type == TransactionType.EXPENSE) {
-            BigDecimal newBalance = this.balance.subtract(formattedAmount);
-            // 余额可以为负 (例如信用卡), 此处仅打印警告
-            if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-                System.out.println("警告: 账户 " + name + " 余额已为负: " + newBalance);
+            long current;
+            long newBalance;
+            do {
+                current = balanceCents.get();
+                newBalance = Money.subtract(current, amountCents);
+            } while (!balanceCents.compareAndSet(current, newBalance));
+            // 余额可以为负 (例如信用卡), 属于正常情况, 只以 FINE 级别记录, 避免透支账户的每次支出都刷出警告
+            if (newBalance < 0) {
+                long balance = newBalance;
+                LOG.fine(() -> "账户 " + name + " 余额已为负: " + Money.toBigDecimal(balance));
             }
-            this.balance = newBalance;
+        } else {
+            // 转账同时涉及两个账户, 由 TransactionService 在两个账户的锁内分别按收入/支出更新
+            throw new ValidationException("无法按 " + type + " 更新单个账户的余额");
         }
     }
 
     @Override
     public String toString() {
-        return "Account[id='" + accountId + "', name='" + name + "', balance=" + balance + ']';
+        return "Account[id='" + accountId + "', name='" + name + "', balance=" + getBalance() + ']';
     }
 }
\ No newline at end of file
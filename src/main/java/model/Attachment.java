@@ -1,20 +1,110 @@
 package model;
 
-import java.util.UUID;
+import util.IdGenerators;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * 实体: 附件 (Attachment) [cite: 42]
+ * 图片内容有两种存放方式:
+ *  - 内联: 直接持有 byte[] (旧方式, 适合很小的内容)
+ *  - 外部存储: 只持有内容哈希与大小, 内容位于 BlobSource (如 AttachmentBlobStore 的文件) 中, 堆上只有元数据
+ * 读取大附件时应使用 getImageBuffer / openImageChannel, 二者都不会把内容复制到堆上
  */
 public class Attachment {
     private String attachmentId;
-    private byte[] imageData; // (图片附件/票据) [cite: 44]
+    private byte[] imageData; // (图片附件/票据) [cite: 44]; 外部存储时为 null
+    private final String contentHash;
+    private final long size;
+    private final BlobSource source;
 
     public Attachment(byte[] imageData) {
-        this.attachmentId = "ATT_" + UUID.randomUUID().toString().substring(0, 8);
+        this(IdGenerators.next("ATT_"), imageData);
+    }
+
+    /**
+     * 使用已有ID构造, 用于存储层还原已持久化的附件
+     */
+    public Attachment(String attachmentId, byte[] imageData) {
+        this.attachmentId = attachmentId;
         this.imageData = imageData;
+        this.contentHash = null;
+        this.size = imageData == null ? 0 : imageData.length;
+        this.source = null;
+    }
+
+    /**
+     * 内容位于外部存储的附件
+     */
+    public Attachment(String attachmentId, String contentHash, long size, BlobSource source) {
+        this.attachmentId = attachmentId;
+        this.imageData = null;
+        this.contentHash = contentHash;
+        this.size = size;
+        this.source = source;
     }
 
     // Getters...
     public String getAttachmentId() { return attachmentId; }
-    public byte[] getImageData() { return imageData; }
+    public String getContentHash() { return contentHash; }
+    public long getSize() { return size; }
+    public BlobSource getSource() { return source; }
+
+    /**
+     * 内容是否内联在对象中 (而不是位于外部存储)
+     */
+    public boolean isInline() { return contentHash == null; }
+
+    /**
+     * 内容的字节数组; 外部存储的附件每次调用都会复制一份到堆上, 大附件请改用 getImageBuffer
+     */
+    public byte[] getImageData() {
+        if (isInline()) {
+            return imageData;
+        }
+        ByteBuffer buffer = getImageBuffer();
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.get(copy);
+        return copy;
+    }
+
+    /**
+     * 只读、零拷贝的内容视图 (外部存储时为内存映射的文件)
+     */
+    public ByteBuffer getImageBuffer() {
+        if (isInline()) {
+            return imageData == null ? null : ByteBuffer.wrap(imageData).asReadOnlyBuffer();
+        }
+        try {
+            return requireSource().map(contentHash);
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法读取附件内容: " + attachmentId, e);
+        }
+    }
+
+    /**
+     * 流式读取内容; 调用方负责关闭通道
+     */
+    public ReadableByteChannel openImageChannel() {
+        if (isInline()) {
+            return Channels.newChannel(new ByteArrayInputStream(imageData == null ? new byte[0] : imageData));
+        }
+        try {
+            return requireSource().open(contentHash);
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法读取附件内容: " + attachmentId, e);
+        }
+    }
+
+    private BlobSource requireSource() {
+        if (source == null) {
+            throw new IllegalStateException("附件 " + attachmentId + " 的内容存储不可用 (哈希: " + contentHash + ")");
+        }
+        return source;
+    }
 }
\ No newline at end of file
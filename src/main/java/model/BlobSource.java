@@ -0,0 +1,21 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 按内容哈希读取二进制内容 (附件图片等) 的来源, 由存储层实现 (见 repository.AttachmentBlobStore)
+ */
+public interface BlobSource {
+
+    /**
+     * 只读、零拷贝的内容视图 (通常是内存映射的文件)
+     */
+    ByteBuffer map(String contentHash) throws IOException;
+
+    /**
+     * 流式读取内容; 调用方负责关闭通道
+     */
+    ReadableByteChannel open(String contentHash) throws IOException;
+}
@@ -1,8 +1,9 @@
 package model;
 
+import util.IdGenerators;
+
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.UUID;
 
 /**
  * 实体: 预算 (Budget) [cite: 11]
@@ -13,7 +14,14 @@ public class Budget {
     private String categoryId; // 针对可选的Category (通过ID关联) [cite: 16]
     
     public Budget(BigDecimal monthlyLimit, String categoryId) {
-        this.budgetId = "BUD_" + UUID.randomUUID().toString().substring(0, 8);
+        this(IdGenerators.next("BUD_"), monthlyLimit, categoryId);
+    }
+
+    /**
+     * 使用已有ID构造, 用于存储层还原已持久化的预算
+     */
+    public Budget(String budgetId, BigDecimal monthlyLimit, String categoryId) {
+        this.budgetId = budgetId;
         this.monthlyLimit = monthlyLimit.setScale(2, RoundingMode.HALF_UP);
         this.categoryId = categoryId; // categoryId为null表示总预算
     }
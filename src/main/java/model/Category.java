@@ -1,7 +1,7 @@
 package model;
 
+import util.IdGenerators;
 import util.TransactionType;
-import java.util.UUID;
 
 /**
  * 实体: 类别 (Category) [cite: 13]
@@ -13,7 +13,14 @@ public class Category {
     private TransactionType type; // (收入/支出) [cite: 21]
 
     public Category(String name, TransactionType type) {
-        this.categoryId = "CAT_" + UUID.randomUUID().toString().substring(0, 8);
+        this(IdGenerators.next("CAT_"), name, type);
+    }
+
+    /**
+     * 使用已有ID构造, 用于存储层还原已持久化的类别
+     */
+    public Category(String categoryId, String name, TransactionType type) {
+        this.categoryId = categoryId;
         this.name = name;
         this.type = type;
     }
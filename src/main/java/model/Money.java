@@ -0,0 +1,112 @@
+package model;
+
+import util.ValidationException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 值对象: 金额 (Money)
+ * 以 long 保存 "分" 的定点数表示。金额经校验后最多两位小数 [cite: 25], 因此与 BigDecimal 的结果逐分一致,
+ * 而加减运算不再分配对象。只在 API 边界与 BigDecimal 互相转换, 溢出时抛出 ValidationException。
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    public static Money of(BigDecimal amount) {
+        return ofCents(toCents(amount));
+    }
+
+    /**
+     * BigDecimal -> 分, 超过两位小数的部分按 HALF_UP 舍入 (与 PrecisionEngine.format 一致)
+     */
+    public static long toCents(BigDecimal amount) {
+        try {
+            return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new ValidationException("金额超出可表示范围 (传入: " + amount + ")");
+        }
+    }
+
+    /**
+     * 分 -> BigDecimal (两位小数)
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * 带溢出检查的加法
+     */
+    public static long add(long a, long b) {
+        long r = a + b;
+        if (((a ^ r) & (b ^ r)) < 0) {
+            throw new ValidationException("金额计算溢出: " + toBigDecimal(a) + " + " + toBigDecimal(b));
+        }
+        return r;
+    }
+
+    /**
+     * 带溢出检查的减法
+     */
+    public static long subtract(long a, long b) {
+        long r = a - b;
+        if (((a ^ b) & (a ^ r)) < 0) {
+            throw new ValidationException("金额计算溢出: " + toBigDecimal(a) + " - " + toBigDecimal(b));
+        }
+        return r;
+    }
+
+    public long getCents() { return cents; }
+
+    public Money plus(Money other) {
+        return ofCents(add(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(subtract(cents, other.cents));
+    }
+
+    public Money negate() {
+        return ofCents(subtract(0, cents));
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toBigDecimal(cents);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Money && ((Money) o).cents == cents);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
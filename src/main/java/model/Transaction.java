@@ -1,64 +1,206 @@
 package model;
+import util.IdDictionary;
+import util.IdGenerators;
 import util.TransactionType;
+import util.ValidationException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * 核心实体: 交易 (Transaction) [cite: 23]
  * 系统的核心数据类,包含金额、日期、类别等收支记录的关键信息 [cite: 81]
+ *
+ * 内存布局是紧凑的, 百万级交易时每笔的对象头与重复字符串占大头:
+ * 类别/账户ID经 String.intern 规范化, 相同的ID在所有交易间共享同一个字符串 (引用与 int 编码同样占 4 字节,
+ * 而规范化表由 JVM 管理, 不再被任何交易引用的ID会被回收, 不随进程运行时间增长, 也不与分片各自的数据冲突);
+ * 状态编码为 byte, 金额保存为未缩放的 long 加小数位数, 时间保存为 epoch 秒加纳秒。
+ * 各 getter 按需还原为原来的类型, 返回值与传入值相等 (equals), 对外 API 不变;
+ * 热点路径 (比较器、筛选、监听器) 应使用不分配对象的 getAmountCents / getEpochSecond / getNano。
  */
 public class Transaction {
+
+    /** 状态字典, 编码 0 固定为 "COMPLETED"; 最多 128 种, 见 setStatus */
+    private static final IdDictionary STATUSES = new IdDictionary();
+    private static final String COMPLETED = "COMPLETED";
+    /** amountScale 取此值时金额不能用 long 表示 (或为 null), 保存在 wideAmount 中 */
+    private static final byte WIDE = Byte.MIN_VALUE;
+    /** 没有时间时 epochSecond 的取值, 早于任何可表示的时间 */
+    public static final long NO_DATE = Long.MIN_VALUE;
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    static {
+        STATUSES.encode(COMPLETED);
+    }
+
     private String transactionId;
-    private BigDecimal amount; // "必填 >0, 两位小数" [cite: 25]
-    private TransactionType type;
-    private LocalDateTime dateTime; // "必填" [cite: 28]
+    private final long amountUnscaled; // "必填 >0, 两位小数" [cite: 25]
+    private final byte amountScale;
+    private final BigDecimal wideAmount;
+    private final TransactionType type;
+    private final long epochSecond; // "必填" [cite: 28]
+    private final int nano;
+    private byte statusCode;
     private String memo;
     private List<String> tags; // "可选" [cite: 30]
-    private String status;
 
-    // 关联关系 (通过ID)
-    private String categoryId; // 归属 (必填) [cite: 22, 84]
-    private String accountId; // 关联 (默认现金) [cite: 31]
+    // 关联关系 (规范化的ID)
+    private final String categoryId; // 归属 (必填) [cite: 22, 84]
+    private final String accountId; // 关联 (默认现金) [cite: 31]
+    private String counterAccountId; // 转账的转入账户
     private List<String> attachmentIds; // 包含 [cite: 27]
 
     // 构造函数
     public Transaction(BigDecimal amount, TransactionType type, LocalDateTime dateTime, String categoryId, String accountId) {
-        this.transactionId = "TX_" + UUID.randomUUID().toString().substring(0, 8);
-        this.amount = amount;
+        this(IdGenerators.next("TX_"), amount, type, dateTime, categoryId, accountId);
+    }
+
+    /**
+     * 使用已有ID构造, 用于存储层还原已持久化的交易
+     */
+    public Transaction(String transactionId, BigDecimal amount, TransactionType type, LocalDateTime dateTime,
+                       String categoryId, String accountId) {
+        this.transactionId = transactionId;
+        if (amount != null && amount.scale() > WIDE && amount.scale() <= Byte.MAX_VALUE
+                && amount.unscaledValue().bitLength() < Long.SIZE) {
+            this.amountUnscaled = amount.unscaledValue().longValue();
+            this.amountScale = (byte) amount.scale();
+            this.wideAmount = null;
+        } else {
+            this.amountUnscaled = 0;
+            this.amountScale = WIDE;
+            this.wideAmount = amount;
+        }
         this.type = type;
-        this.dateTime = dateTime;
-        this.categoryId = categoryId;
-        this.accountId = accountId;
-        this.status = "COMPLETED";
+        if (dateTime != null) {
+            this.epochSecond = dateTime.toEpochSecond(ZoneOffset.UTC);
+            this.nano = dateTime.getNano();
+        } else {
+            this.epochSecond = NO_DATE;
+            this.nano = 0;
+        }
+        this.categoryId = canonical(categoryId);
+        this.accountId = canonical(accountId);
+    }
+
+    private static String canonical(String id) {
+        return id == null ? null : id.intern();
     }
 
     // Getters and Setters...
     public String getTransactionId() { return transactionId; }
-    public BigDecimal getAmount() { return amount; }
     public TransactionType getType() { return type; }
-    public LocalDateTime getDateTime() { return dateTime; }
     public String getMemo() { return memo; }
     public void setMemo(String memo) { this.memo = memo; }
-    public List<String> getTags() { return tags; }
-    public void setTags(List<String> tags) { this.tags = tags; }
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
     public String getCategoryId() { return categoryId; }
     public String getAccountId() { return accountId; }
+
+    /**
+     * 转账 (TRANSFER) 的转入账户; 收入/支出没有对方账户, 为 null
+     */
+    public String getCounterAccountId() { return counterAccountId; }
+    public void setCounterAccountId(String counterAccountId) { this.counterAccountId = canonical(counterAccountId); }
+
+    public BigDecimal getAmount() {
+        return amountScale == WIDE ? wideAmount : BigDecimal.valueOf(amountUnscaled, amountScale);
+    }
+
+    public boolean hasAmount() {
+        return amountScale != WIDE || wideAmount != null;
+    }
+
+    /**
+     * 金额的 "分" (与 Money.toCents(getAmount()) 相同, 超过两位小数时四舍五入); 没有金额时为 0
+     * 小数位数不超过两位时不创建 BigDecimal
+     */
+    public long getAmountCents() {
+        if (amountScale == 2) {
+            return amountUnscaled;
+        }
+        if (amountScale == 0 || amountScale == 1) {
+            long factor = amountScale == 0 ? 100 : 10;
+            long cents = amountUnscaled * factor;
+            if (cents / factor == amountUnscaled) {
+                return cents;
+            }
+        }
+        return hasAmount() ? Money.toCents(getAmount()) : 0;
+    }
+
+    public LocalDateTime getDateTime() {
+        return epochSecond == NO_DATE ? null : LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    public boolean hasDateTime() {
+        return epochSecond != NO_DATE;
+    }
+
+    /**
+     * 时间按 UTC 换算的 epoch 秒 (与 getDateTime().toEpochSecond(ZoneOffset.UTC) 相同); 没有时间时为 NO_DATE
+     * 与 getNano 一起按 (秒, 纳秒) 比较即为时间顺序, 没有时间的交易排在最前
+     */
+    public long getEpochSecond() {
+        return epochSecond;
+    }
+
+    public int getNano() {
+        return nano;
+    }
+
+    /**
+     * 所在日期与月份, 不经过 LocalDateTime; 没有时间时为 null
+     */
+    public LocalDate getDate() {
+        return epochSecond == NO_DATE ? null : LocalDate.ofEpochDay(Math.floorDiv(epochSecond, SECONDS_PER_DAY));
+    }
+
+    public YearMonth getYearMonth() {
+        LocalDate date = getDate();
+        return date == null ? null : YearMonth.of(date.getYear(), date.getMonthValue());
+    }
+
+    public String getStatus() { return STATUSES.decode(statusCode); }
+
+    /**
+     * 状态取值只有少数几种, 超过 128 种时抛出 ValidationException (被拒绝的取值不进入字典, 字典大小有界)
+     */
+    public void setStatus(String status) {
+        int code = STATUSES.lookup(status);
+        if (code == IdDictionary.ABSENT) {
+            if (STATUSES.size() > Byte.MAX_VALUE) {
+                throw new ValidationException("交易状态种类过多: " + status);
+            }
+            code = STATUSES.encode(status);
+        }
+        if (code > Byte.MAX_VALUE) {
+            throw new ValidationException("交易状态种类过多: " + status);
+        }
+        this.statusCode = (byte) code;
+    }
+
+    /**
+     * 未设置时为 null; 空列表统一保存为共享的 List.of()
+     */
+    public List<String> getTags() { return tags; }
+    public void setTags(List<String> tags) { this.tags = tags != null && tags.isEmpty() ? List.of() : tags; }
     public List<String> getAttachmentIds() { return attachmentIds; }
-    public void setAttachmentIds(List<String> attachmentIds) { this.attachmentIds = attachmentIds; }
+    public void setAttachmentIds(List<String> attachmentIds) {
+        this.attachmentIds = attachmentIds != null && attachmentIds.isEmpty() ? List.of() : attachmentIds;
+    }
 
     @Override
     public String toString() {
         return "Transaction[" +
                 "id='" + transactionId + '\'' +
                 ", type=" + type +
-                ", amount=" + amount +
-                ", dateTime=" + dateTime +
-                ", categoryId='" + categoryId + '\'' +
-                ", accountId='" + accountId + '\'' +
+                ", amount=" + getAmount() +
+                ", dateTime=" + getDateTime() +
+                ", categoryId='" + getCategoryId() + '\'' +
+                ", accountId='" + getAccountId() + '\'' +
+                (counterAccountId != null ? ", counterAccountId='" + getCounterAccountId() + '\'' : "") +
                 ", memo='" + memo + '\'' +
                 ']';
     }
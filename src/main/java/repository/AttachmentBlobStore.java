@@ -0,0 +1,199 @@
+package repository;
+
+import model.Attachment;
+import model.BlobSource;
+import util.IdGenerators;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
+/**
+ * 按内容寻址的附件存储: 每个内容一个文件, 文件名是内容的 SHA-256 (目录下按前两位分子目录)
+ *  - 相同内容只存一份 (写入前先计算哈希, 已存在则直接复用)
+ *  - 文件先写入临时文件并落盘, 再原子地改名为最终文件名, 崩溃时不会留下半个内容
+ *  - 读取时内存映射文件, 内容不进入 Java 堆; 已写入的内容不可变, 映射视图可以在多个线程间共享
+ *
+ * 内容被多个附件共用, 删除附件不会删除内容; 需要回收空间时调用 retainOnly
+ */
+public final class AttachmentBlobStore implements BlobSource {
+
+    private static final int COPY_BUFFER = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path directory;
+
+    private AttachmentBlobStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public static AttachmentBlobStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new AttachmentBlobStore(directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 保存内容并返回引用它的新附件 (堆上只保留哈希与大小)
+     */
+    public Attachment store(byte[] data) throws IOException {
+        return new Attachment(IdGenerators.next("ATT_"), put(data), data.length, this);
+    }
+
+    /**
+     * 从通道流式保存内容 (不把整个内容读入内存), 返回引用它的新附件
+     */
+    public Attachment store(ReadableByteChannel in) throws IOException {
+        Path temp = Files.createTempFile(directory, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER);
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (in.read(buffer) >= 0) {
+                    buffer.flip();
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        size += out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                out.force(true);
+            }
+            String hash = hex(digest.digest());
+            publish(temp, hash);
+            return new Attachment(IdGenerators.next("ATT_"), hash, size, this);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 保存内容, 返回内容哈希; 内容已存在时不写入
+     */
+    public String put(byte[] data) throws IOException {
+        String hash = hex(sha256().digest(data));
+        if (contains(hash)) {
+            return hash;
+        }
+        Path temp = Files.createTempFile(directory, "upload-", ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            publish(temp, hash);
+            return hash;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public boolean contains(String contentHash) {
+        return Files.exists(pathOf(contentHash));
+    }
+
+    @Override
+    public ByteBuffer map(String contentHash) throws IOException {
+        try (FileChannel channel = FileChannel.open(pathOf(contentHash), StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asReadOnlyBuffer();
+        }
+    }
+
+    @Override
+    public ReadableByteChannel open(String contentHash) throws IOException {
+        return FileChannel.open(pathOf(contentHash), StandardOpenOption.READ);
+    }
+
+    /**
+     * 把内容复制到另一个存储 (目标已有该内容时跳过), 用于备份与恢复
+     */
+    public void copyTo(AttachmentBlobStore target, String contentHash) throws IOException {
+        if (target.contains(contentHash)) {
+            return;
+        }
+        Path temp = Files.createTempFile(target.directory, "upload-", ".tmp");
+        try {
+            Files.copy(pathOf(contentHash), temp, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            target.publish(temp, contentHash);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 删除不在 live 中的内容, 返回删除的个数
+     * 调用方应保证此期间没有并发保存的新附件 (例如在维护窗口或持有写入方的锁时调用)
+     */
+    public int retainOnly(Set<String> live) throws IOException {
+        int removed = 0;
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path shard : shards) {
+                try (DirectoryStream<Path> blobs = Files.newDirectoryStream(shard)) {
+                    for (Path blob : blobs) {
+                        if (!live.contains(blob.getFileName().toString()) && Files.deleteIfExists(blob)) {
+                            removed++;
+                        }
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    private void publish(Path temp, String hash) throws IOException {
+        Path target = pathOf(hash);
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // 另一个线程同时写入了相同的内容
+        }
+    }
+
+    private Path pathOf(String contentHash) {
+        if (contentHash.length() < 3 || !contentHash.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            throw new IllegalArgumentException("非法的内容哈希: " + contentHash);
+        }
+        return directory.resolve(contentHash.substring(0, 2)).resolve(contentHash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JVM 不支持 SHA-256", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,119 @@
+package repository;
+
+import model.Money;
+import model.Transaction;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 账户余额检查点: 按账户维护每日与每月的分录净额 (分, 分录定义见 LedgerLegs)
+ * 随交易的新增、覆盖与删除增量更新, 补录的历史交易只影响所在的那一天与那一月。
+ *
+ * 某时刻之后的净变动 = 之后各月的月合计 + 本月之后各天的日合计 + 当天该时刻之后的交易 (只在时刻不是一天末尾时回放),
+ * 代价与月份数、当月天数和当天交易数有关, 与账户的交易总数无关。
+ * 时刻 t 的余额 = 当前余额 - t 之后的净变动。没有日期的交易视为发生在所有时刻之前。
+ */
+public class BalanceCheckpoints implements TransactionChangeListener {
+
+    private final Map<String, AccountCheckpoints> accounts = new ConcurrentHashMap<>();
+    private final ITransactionRepository repository;
+
+    private BalanceCheckpoints(ITransactionRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * 创建并挂到存储库上: 先注册监听再以现有交易初始化, 应在写入开始之前调用
+     * (初始化期间的并发写入会被监听与扫描各计一次)。每个存储库只需挂一份, 由存储库的持有方共用给各个 TransactionService
+     */
+    public static BalanceCheckpoints attachTo(ITransactionRepository repository) {
+        BalanceCheckpoints checkpoints = new BalanceCheckpoints(repository);
+        repository.addChangeListener(checkpoints);
+        repository.streamAll().forEach(tx -> checkpoints.apply(tx, 1));
+        return checkpoints;
+    }
+
+    public void detach() {
+        repository.removeChangeListener(this);
+    }
+
+    @Override
+    public void onSaved(Transaction previous, Transaction current) {
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(current, 1);
+    }
+
+    @Override
+    public void onDeleted(Transaction removed) {
+        apply(removed, -1);
+    }
+
+    private void apply(Transaction tx, int sign) {
+        if (!tx.hasDateTime()) {
+            return;
+        }
+        LocalDate day = tx.getDate();
+        LedgerLegs.forEachLeg(tx, (accountId, cents) -> accounts
+                .computeIfAbsent(accountId, id -> new AccountCheckpoints())
+                .add(day, sign > 0 ? cents : -cents));
+    }
+
+    /**
+     * 账户在 dateTime 之后 (不含) 的分录净额 (分)
+     * 当天的剩余部分从 repository 按时间范围回放; 调用方应持有该账户的锁, 否则并发写入可能只被计入一半
+     */
+    public long netCentsAfter(String accountId, LocalDateTime dateTime, ITransactionRepository repository) {
+        AccountCheckpoints checkpoints = accounts.get(accountId);
+        if (checkpoints == null) {
+            return 0;
+        }
+        LocalDate day = dateTime.toLocalDate();
+        YearMonth month = YearMonth.from(day);
+        long net = 0;
+        for (AtomicLong total : checkpoints.months.tailMap(month, false).values()) {
+            net = Money.add(net, total.get());
+        }
+        for (AtomicLong total : checkpoints.days.subMap(day, false, month.atEndOfMonth(), true).values()) {
+            net = Money.add(net, total.get());
+        }
+        LocalDateTime endOfDay = day.atTime(LocalTime.MAX);
+        if (dateTime.isBefore(endOfDay) && checkpoints.days.containsKey(day)) {
+            // 转入的转账不在 accountId 索引中, 因此按时间范围回放当天的全部交易
+            long[] replayed = {net};
+            long second = dateTime.toEpochSecond(ZoneOffset.UTC);
+            int nano = dateTime.getNano();
+            repository.stream(TransactionFilter.all().between(dateTime, endOfDay))
+                    .filter(tx -> tx.getEpochSecond() > second || (tx.getEpochSecond() == second && tx.getNano() > nano))
+                    .forEach(tx -> LedgerLegs.forEachLeg(tx, (id, cents) -> {
+                        if (id.equals(accountId)) {
+                            replayed[0] = Money.add(replayed[0], cents);
+                        }
+                    }));
+            net = replayed[0];
+        }
+        return net;
+    }
+
+    /**
+     * 单个账户的每日与每月合计; 合计为 0 的检查点保留 (同一天通常还会有新的交易)
+     */
+    private static final class AccountCheckpoints {
+        final ConcurrentNavigableMap<LocalDate, AtomicLong> days = new ConcurrentSkipListMap<>();
+        final ConcurrentNavigableMap<YearMonth, AtomicLong> months = new ConcurrentSkipListMap<>();
+
+        void add(LocalDate day, long cents) {
+            days.computeIfAbsent(day, d -> new AtomicLong()).accumulateAndGet(cents, Money::add);
+            months.computeIfAbsent(YearMonth.from(day), m -> new AtomicLong()).accumulateAndGet(cents, Money::add);
+        }
+    }
+}
@@ -0,0 +1,687 @@
+package repository;
+
+import model.Money;
+import model.Transaction;
+import util.IdDictionary;
+import util.TransactionType;
+import util.ValidationException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntBinaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * ITransactionRepository 的列式内存实现, 面向大账本上的分析型扫描。
+ * 交易按列存放在基本类型数组中:
+ *  - long[] 金额 (分), long[] + int[] 交易时间 (UTC 纪元秒 + 纳秒), byte[] 类型
+ *  - int[] 类别/账户/转账对方账户 (经 IdDictionary 字典编码)
+ * 筛选与按月聚合直接在列上进行, 只有被返回的行才会构造 Transaction 对象。
+ *
+ * 注意: 金额以 "分" 存储, 取出的金额统一为两位小数; 返回的 Transaction 是副本,
+ * 修改后需要重新 save 才会生效。读写由一把读写锁保护, 扫描之间可以并发。
+ */
+public class ColumnarTransactionRepository implements ITransactionRepository {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long NO_DATE = Transaction.NO_DATE;
+    private static final byte NO_TYPE = -1;
+    private static final TransactionType[] TYPES = TransactionType.values();
+    /** 按月聚合时将 (月份, 类型, 类别, 账户) 压缩进一个 long, 类别与账户编码各占 21 位 */
+    private static final int MAX_PACKED_CODE = (1 << 21) - 1;
+    /** stream 每次持有读锁时构造的交易数 */
+    private static final int STREAM_CHUNK = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IdDictionary categories = new IdDictionary();
+    private final IdDictionary accounts = new IdDictionary();
+    private final IdDictionary statuses = new IdDictionary();
+    private final Map<String, Integer> rowById = new HashMap<>();
+    private final List<TransactionChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private int size;
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private long[] cents = new long[INITIAL_CAPACITY];
+    private long[] epochSeconds = new long[INITIAL_CAPACITY];
+    private int[] nanos = new int[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] categoryCodes = new int[INITIAL_CAPACITY];
+    private int[] accountCodes = new int[INITIAL_CAPACITY];
+    private int[] counterAccountCodes = new int[INITIAL_CAPACITY];
+    private int[] statusCodes = new int[INITIAL_CAPACITY];
+    // 以下为稀疏的对象列, 只有设置过的行才非空
+    private String[] memos = new String[INITIAL_CAPACITY];
+    private Object[] tags = new Object[INITIAL_CAPACITY];
+    private Object[] attachmentIds = new Object[INITIAL_CAPACITY];
+
+    @Override
+    public Transaction save(Transaction entity) {
+        String id = entity.getTransactionId();
+        if (id == null) {
+            throw new ValidationException("实体ID不能为空");
+        }
+        // 先在锁外完成可能失败的转换, 避免写入半行
+        long amountCents = entity.getAmountCents();
+
+        Transaction previous = null;
+        lock.writeLock().lock();
+        try {
+            Integer row = rowById.get(id);
+            if (row != null) {
+                previous = materialize(row);
+            } else {
+                ensureCapacity(size + 1);
+                row = size++;
+                rowById.put(id, row);
+            }
+            write(row, entity, amountCents);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (TransactionChangeListener listener : listeners) {
+            listener.onSaved(previous, entity);
+        }
+        return entity;
+    }
+
+    /**
+     * 整批只获取一次写锁并一次性扩容
+     */
+    @Override
+    public List<Transaction> saveAll(Collection<Transaction> entities) {
+        long[] amountCents = new long[entities.size()];
+        int i = 0;
+        for (Transaction entity : entities) {
+            if (entity.getTransactionId() == null) {
+                throw new ValidationException("实体ID不能为空");
+            }
+            amountCents[i++] = entity.getAmountCents();
+        }
+
+        List<Transaction> saved = new ArrayList<>(entities.size());
+        Transaction[] previous = new Transaction[entities.size()];
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + entities.size());
+            i = 0;
+            for (Transaction entity : entities) {
+                Integer row = rowById.get(entity.getTransactionId());
+                if (row != null) {
+                    previous[i] = materialize(row);
+                } else {
+                    row = size++;
+                    rowById.put(entity.getTransactionId(), row);
+                }
+                write(row, entity, amountCents[i++]);
+                saved.add(entity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (TransactionChangeListener listener : listeners) {
+            for (i = 0; i < saved.size(); i++) {
+                listener.onSaved(previous[i], saved.get(i));
+            }
+        }
+        return saved;
+    }
+
+    @Override
+    public Optional<Transaction> findById(String id) {
+        lock.readLock().lock();
+        try {
+            Integer row = rowById.get(id);
+            return row == null ? Optional.empty() : Optional.of(materialize(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteById(String id) {
+        Transaction removed;
+        lock.writeLock().lock();
+        try {
+            Integer row = rowById.remove(id);
+            if (row == null) {
+                return;
+            }
+            removed = materialize(row);
+            // 用最后一行填补空位, 保持各列紧凑
+            int last = --size;
+            if (row != last) {
+                moveRow(last, row);
+                rowById.put(ids[row], row);
+            }
+            ids[last] = null;
+            memos[last] = null;
+            tags[last] = null;
+            attachmentIds[last] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (TransactionChangeListener listener : listeners) {
+            listener.onDeleted(removed);
+        }
+    }
+
+    @Override
+    public List<Transaction> query(Predicate<Transaction> predicate) {
+        lock.readLock().lock();
+        try {
+            ScanCounter.add(size);
+            List<Transaction> result = new ArrayList<>();
+            for (int row = 0; row < size; row++) {
+                Transaction tx = materialize(row);
+                if (predicate.test(tx)) {
+                    result.add(tx);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findAll() {
+        return query(tx -> true);
+    }
+
+    @Override
+    public List<Transaction> query(TransactionFilter filter) {
+        lock.readLock().lock();
+        try {
+            ColumnFilter columns = ColumnFilter.of(filter, categories, accounts);
+            if (columns == null) {
+                return List.of();
+            }
+            ScanCounter.add(size);
+            List<Transaction> result = new ArrayList<>();
+            for (int row = 0; row < size; row++) {
+                if (columns.matches(this, row)) {
+                    result.add(materialize(row));
+                }
+            }
+            result.sort(InMemoryTransactionRepository.BY_TIME);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 分块惰性遍历: 先在读锁内选出命中行并按时间排序 (只涉及基本类型列), 记下这些行的ID;
+     * 之后每块重新获取读锁按ID取出交易。遍历期间被删除的交易会被跳过, 任何时刻最多只构造一块交易对象。
+     */
+    @Override
+    public Stream<Transaction> streamAll() {
+        return stream(TransactionFilter.all());
+    }
+
+    /**
+     * 直接在列上做堆选择: 只比较基本类型列与ID, 最后只为本页的行构造交易对象
+     */
+    @Override
+    public Page page(TransactionFilter filter, PageRequest request) {
+        PageRequest.Sort sort = request.getSort();
+        Transaction cursor = request.cursor();
+        long cursorKey = 0;
+        int cursorNano = 0;
+        if (cursor != null && sort.isByTime()) {
+            cursorKey = cursor.getEpochSecond();
+            cursorNano = cursor.getNano();
+        } else if (cursor != null && cursor.hasAmount()) {
+            cursorKey = cursor.getAmountCents();
+        }
+        IntBinaryOperator ascending = sort.isByTime() ? this::compareRows : this::compareRowsByAmount;
+        IntBinaryOperator order = sort.isDescending() ? (a, b) -> ascending.applyAsInt(b, a) : ascending;
+
+        lock.readLock().lock();
+        try {
+            ColumnFilter columns = ColumnFilter.of(filter, categories, accounts);
+            if (columns == null) {
+                return Page.empty();
+            }
+            ScanCounter.add(size);
+            // 大顶堆 (按 order, 堆顶是已选中的最后一名), 容量为一页加一条
+            int[] heap = new int[Math.min(request.getLimit() + 1, Math.max(size, 1))];
+            int selected = 0;
+            for (int row = 0; row < size; row++) {
+                if (!columns.matches(this, row)) {
+                    continue;
+                }
+                if (cursor != null) {
+                    int c = sort.isByTime()
+                            ? compareTime(row, cursorKey, cursorNano, cursor.getTransactionId())
+                            : compareAmount(row, cursorKey, cursor.getTransactionId());
+                    if ((sort.isDescending() ? -c : c) <= 0) {
+                        continue;
+                    }
+                }
+                if (selected < heap.length) {
+                    heap[selected] = row;
+                    siftUp(heap, selected++, order);
+                } else if (order.applyAsInt(row, heap[0]) < 0) {
+                    heap[0] = row;
+                    siftDown(heap, selected, order);
+                }
+            }
+            // 依次把堆顶换到末尾 (堆排序), 得到按 order 升序的行
+            for (int end = selected - 1; end > 0; end--) {
+                int top = heap[0];
+                heap[0] = heap[end];
+                heap[end] = top;
+                siftDown(heap, end, order);
+            }
+            List<Transaction> candidates = new ArrayList<>(selected);
+            for (int i = 0; i < selected; i++) {
+                candidates.add(materialize(heap[i]));
+            }
+            return Page.of(candidates, request);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void siftUp(int[] heap, int index, IntBinaryOperator order) {
+        int row = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (order.applyAsInt(heap[parent], row) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = row;
+    }
+
+    private static void siftDown(int[] heap, int length, IntBinaryOperator order) {
+        int row = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= length) {
+                break;
+            }
+            if (child + 1 < length && order.applyAsInt(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (order.applyAsInt(heap[child], row) <= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = row;
+    }
+
+    @Override
+    public Stream<Transaction> stream(TransactionFilter filter) {
+        String[] matchedIds;
+        lock.readLock().lock();
+        try {
+            ColumnFilter columns = ColumnFilter.of(filter, categories, accounts);
+            if (columns == null) {
+                return Stream.empty();
+            }
+            int[] rows = new int[size];
+            int matched = 0;
+            for (int row = 0; row < size; row++) {
+                if (columns.matches(this, row)) {
+                    rows[matched++] = row;
+                }
+            }
+            sortRowsByTime(rows, matched);
+            matchedIds = new String[matched];
+            for (int i = 0; i < matched; i++) {
+                matchedIds[i] = ids[rows[i]];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Iterator<List<Transaction>> chunks = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < matchedIds.length;
+            }
+
+            @Override
+            public List<Transaction> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int end = Math.min(next + STREAM_CHUNK, matchedIds.length);
+                List<Transaction> chunk = new ArrayList<>(end - next);
+                lock.readLock().lock();
+                try {
+                    for (int i = next; i < end; i++) {
+                        Integer row = rowById.get(matchedIds[i]);
+                        if (row != null) {
+                            chunk.add(materialize(row));
+                        }
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                next = end;
+                return chunk;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED), false)
+                .flatMap(List::stream);
+    }
+
+    /**
+     * 按 (时间, ID) 对行号做归并排序, 与 InMemoryTransactionRepository.BY_TIME 一致 (无日期的排在最前)
+     * 直接比较列值, 不装箱、不构造对象。调用时必须持有读锁。
+     */
+    private void sortRowsByTime(int[] rows, int length) {
+        int[] buffer = new int[length];
+        for (int width = 1; width < length; width *= 2) {
+            for (int lo = 0; lo < length - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, length);
+                if (compareRows(rows[mid - 1], rows[mid]) <= 0) {
+                    continue; // 两段已有序
+                }
+                System.arraycopy(rows, lo, buffer, lo, hi - lo);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) {
+                    rows[k++] = compareRows(buffer[i], buffer[j]) <= 0 ? buffer[i++] : buffer[j++];
+                }
+                while (i < mid) rows[k++] = buffer[i++];
+                while (j < hi) rows[k++] = buffer[j++];
+            }
+        }
+    }
+
+    private int compareRows(int a, int b) {
+        return compareTime(a, epochSeconds[b], nanos[b], ids[b]);
+    }
+
+    private int compareTime(int row, long epochSecond, int nano, String id) {
+        int bySecond = Long.compare(epochSeconds[row], epochSecond);
+        if (bySecond != 0) return bySecond;
+        int byNano = Integer.compare(nanos[row], nano);
+        if (byNano != 0) return byNano;
+        return ids[row].compareTo(id);
+    }
+
+    /**
+     * 按 (金额, ID) 比较, 与 PageRequest.BY_AMOUNT 一致
+     */
+    private int compareRowsByAmount(int a, int b) {
+        return compareAmount(a, cents[b], ids[b]);
+    }
+
+    private int compareAmount(int row, long amountCents, String id) {
+        int byAmount = Long.compare(cents[row], amountCents);
+        if (byAmount != 0) return byAmount;
+        return ids[row].compareTo(id);
+    }
+
+    /**
+     * 直接在列上做并行按月聚合, 不构造任何 Transaction 对象
+     */
+    @Override
+    public Map<YearMonth, Map<MonthlyRollupStore.Key, MonthlyRollupStore.Totals>> aggregateByMonth(TransactionFilter filter) {
+        lock.readLock().lock();
+        try {
+            if (categories.size() >= MAX_PACKED_CODE || accounts.size() >= MAX_PACKED_CODE) {
+                return ITransactionRepository.super.aggregateByMonth(filter);
+            }
+            ColumnFilter columns = ColumnFilter.of(filter, categories, accounts);
+            if (columns == null) {
+                return new HashMap<>();
+            }
+            // 调用线程持有读锁直到 invoke 返回, 期间各列不会被写入
+            Map<Long, long[]> packed = ForkJoinPool.commonPool().invoke(new ColumnAggregateTask(this, columns, 0, size));
+            Map<YearMonth, Map<MonthlyRollupStore.Key, MonthlyRollupStore.Totals>> result = new HashMap<>();
+            packed.forEach((key, totals) -> {
+                int monthIndex = (int) (key >> 44);
+                int type = (int) ((key >>> 42) & 0x3) - 1;
+                int category = (int) ((key >>> 21) & MAX_PACKED_CODE) - 1;
+                int account = (int) (key & MAX_PACKED_CODE) - 1;
+                YearMonth month = YearMonth.of(Math.floorDiv(monthIndex, 12), Math.floorMod(monthIndex, 12) + 1);
+                MonthlyRollupStore.Key rollupKey = new MonthlyRollupStore.Key(
+                        TYPES[type], categories.decode(category), accounts.decode(account));
+                result.computeIfAbsent(month, m -> new HashMap<>())
+                        .put(rollupKey, new MonthlyRollupStore.Totals(totals[0], totals[1]));
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void addChangeListener(TransactionChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TransactionChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void write(int row, Transaction tx, long amountCents) {
+        ids[row] = tx.getTransactionId();
+        cents[row] = amountCents;
+        epochSeconds[row] = tx.getEpochSecond();
+        nanos[row] = tx.getNano();
+        types[row] = tx.getType() != null ? (byte) tx.getType().ordinal() : NO_TYPE;
+        categoryCodes[row] = categories.encode(tx.getCategoryId());
+        accountCodes[row] = accounts.encode(tx.getAccountId());
+        counterAccountCodes[row] = accounts.encode(tx.getCounterAccountId());
+        statusCodes[row] = statuses.encode(tx.getStatus());
+        memos[row] = tx.getMemo();
+        tags[row] = tx.getTags();
+        attachmentIds[row] = tx.getAttachmentIds();
+    }
+
+    private void moveRow(int from, int to) {
+        ids[to] = ids[from];
+        cents[to] = cents[from];
+        epochSeconds[to] = epochSeconds[from];
+        nanos[to] = nanos[from];
+        types[to] = types[from];
+        categoryCodes[to] = categoryCodes[from];
+        accountCodes[to] = accountCodes[from];
+        counterAccountCodes[to] = counterAccountCodes[from];
+        statusCodes[to] = statusCodes[from];
+        memos[to] = memos[from];
+        tags[to] = tags[from];
+        attachmentIds[to] = attachmentIds[from];
+    }
+
+    @SuppressWarnings("unchecked")
+    private Transaction materialize(int row) {
+        LocalDateTime dateTime = epochSeconds[row] == NO_DATE
+                ? null
+                : LocalDateTime.ofEpochSecond(epochSeconds[row], nanos[row], ZoneOffset.UTC);
+        Transaction tx = new Transaction(
+                ids[row],
+                Money.toBigDecimal(cents[row]),
+                types[row] == NO_TYPE ? null : TYPES[types[row]],
+                dateTime,
+                categories.decode(categoryCodes[row]),
+                accounts.decode(accountCodes[row]));
+        tx.setCounterAccountId(accounts.decode(counterAccountCodes[row]));
+        tx.setStatus(statuses.decode(statusCodes[row]));
+        tx.setMemo(memos[row]);
+        tx.setTags((List<String>) tags[row]);
+        tx.setAttachmentIds((List<String>) attachmentIds[row]);
+        return tx;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+        nanos = Arrays.copyOf(nanos, capacity);
+        types = Arrays.copyOf(types, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        accountCodes = Arrays.copyOf(accountCodes, capacity);
+        counterAccountCodes = Arrays.copyOf(counterAccountCodes, capacity);
+        statusCodes = Arrays.copyOf(statusCodes, capacity);
+        memos = Arrays.copyOf(memos, capacity);
+        tags = Arrays.copyOf(tags, capacity);
+        attachmentIds = Arrays.copyOf(attachmentIds, capacity);
+    }
+
+    /**
+     * 纪元秒 (UTC) -> 月份序号 (year * 12 + month - 1), 不分配对象
+     * 算法见 Howard Hinnant 的 civil_from_days
+     */
+    static int monthIndexOf(long epochSecond) {
+        long z = Math.floorDiv(epochSecond, 86_400L) + 719_468L;
+        long era = Math.floorDiv(z, 146_097L);
+        long doe = z - era * 146_097L;
+        long yoe = (doe - doe / 1460 + doe / 36_524 - doe / 146_096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 12 + month - 1);
+    }
+
+    /**
+     * 翻译成列编码后的筛选条件
+     */
+    private static final class ColumnFilter {
+        private static final int ANY = Integer.MIN_VALUE;
+
+        private final int category;
+        private final int account;
+        private final int type;
+        private final boolean hasRange;
+        private final long startSecond;
+        private final int startNano;
+        private final long endSecond;
+        private final int endNano;
+
+        private ColumnFilter(int category, int account, int type, TransactionFilter filter) {
+            this.category = category;
+            this.account = account;
+            this.type = type;
+            this.hasRange = filter.hasDateRange();
+            LocalDateTime start = filter.getStart();
+            LocalDateTime end = filter.getEnd();
+            this.startSecond = start != null ? start.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE + 1;
+            this.startNano = start != null ? start.getNano() : 0;
+            this.endSecond = end != null ? end.toEpochSecond(ZoneOffset.UTC) : Long.MAX_VALUE;
+            this.endNano = end != null ? end.getNano() : 999_999_999;
+        }
+
+        /**
+         * 条件中引用了从未出现过的类别/账户, 或时间范围为空时返回 null (必然无结果)
+         */
+        static ColumnFilter of(TransactionFilter filter, IdDictionary categories, IdDictionary accounts) {
+            if (filter.isEmptyRange()) {
+                return null;
+            }
+            int category = ANY;
+            if (filter.getCategoryId() != null) {
+                category = categories.lookup(filter.getCategoryId());
+                if (category == IdDictionary.ABSENT) return null;
+            }
+            int account = ANY;
+            if (filter.getAccountId() != null) {
+                account = accounts.lookup(filter.getAccountId());
+                if (account == IdDictionary.ABSENT) return null;
+            }
+            int type = filter.getType() != null ? filter.getType().ordinal() : ANY;
+            return new ColumnFilter(category, account, type, filter);
+        }
+
+        boolean matches(ColumnarTransactionRepository repo, int row) {
+            if (category != ANY && repo.categoryCodes[row] != category) return false;
+            if (account != ANY && repo.accountCodes[row] != account) return false;
+            if (type != ANY && repo.types[row] != type) return false;
+            if (hasRange) {
+                long second = repo.epochSeconds[row];
+                if (second == NO_DATE) return false;
+                int nano = repo.nanos[row];
+                if (second < startSecond || (second == startSecond && nano < startNano)) return false;
+                if (second > endSecond || (second == endSecond && nano > endNano)) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 列上的 fork-join 聚合: 每段输出 packedKey -> {分合计, 笔数}
+     */
+    private static final class ColumnAggregateTask extends RecursiveTask<Map<Long, long[]>> {
+        private static final int THRESHOLD = 65_536;
+
+        private final ColumnarTransactionRepository repo;
+        private final ColumnFilter filter;
+        private final int from;
+        private final int to;
+
+        ColumnAggregateTask(ColumnarTransactionRepository repo, ColumnFilter filter, int from, int to) {
+            this.repo = repo;
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Long, long[]> compute() {
+            if (to - from > THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                ColumnAggregateTask left = new ColumnAggregateTask(repo, filter, from, mid);
+                left.fork();
+                Map<Long, long[]> right = new ColumnAggregateTask(repo, filter, mid, to).compute();
+                Map<Long, long[]> merged = left.join();
+                right.forEach((key, totals) -> merged.merge(key, totals, (a, b) -> {
+                    a[0] = Money.add(a[0], b[0]);
+                    a[1] += b[1];
+                    return a;
+                }));
+                return merged;
+            }
+            Map<Long, long[]> partial = new HashMap<>();
+            for (int row = from; row < to; row++) {
+                if (repo.types[row] == NO_TYPE || repo.epochSeconds[row] == NO_DATE || !filter.matches(repo, row)) {
+                    continue;
+                }
+                long key = ((long) monthIndexOf(repo.epochSeconds[row]) << 44)
+                        | ((long) (repo.types[row] + 1) << 42)
+                        | ((long) (repo.categoryCodes[row] + 1) << 21)
+                        | (repo.accountCodes[row] + 1);
+                long[] totals = partial.computeIfAbsent(key, k -> new long[2]);
+                totals[0] = Money.add(totals[0], repo.cents[row]);
+                totals[1]++;
+            }
+            return partial;
+        }
+    }
+}
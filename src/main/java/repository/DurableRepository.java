@@ -0,0 +1,195 @@
+package repository;
+
+import util.ValidationException;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * 带预写日志的存储库装饰器
+ * 每次 save/delete 先编码为日志记录追加到 WriteAheadLog, 再应用到内存中的 delegate;
+ * "追加 + 应用" 在同一把锁内完成, 保证日志中的顺序与内存状态的变更顺序一致。
+ * 同一日志上的所有存储库共享 appendGate: 写入者在 "追加 + 应用" 期间持有其读锁,
+ * 切换日志段 (checkpoint) 时持有写锁, 因此旧日志段中的每条记录在切换前都已应用到内存, 会被随后的快照覆盖。
+ * 等待落盘 (sync) 在锁外进行, 并发的写入者因此可以共享同一次 fsync (组提交)。
+ * 读操作直接访问 delegate。
+ *
+ * 日志记录格式: [byte 实体种类][byte 操作][负载], SAVE 的负载是实体编码, DELETE 的负载是ID
+ */
+public class DurableRepository<T> implements IDataRepository<T, String> {
+
+    static final byte OP_SAVE = 1;
+    static final byte OP_DELETE = 2;
+
+    private final IDataRepository<T, String> delegate;
+    private final WriteAheadLog wal;
+    private final byte kind;
+    private final EntityCodec<T> codec;
+    private final Function<T, String> idExtractor;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Lock appendGate;
+
+    public DurableRepository(IDataRepository<T, String> delegate, WriteAheadLog wal, byte kind,
+                             EntityCodec<T> codec, Function<T, String> idExtractor) {
+        this(delegate, wal, kind, codec, idExtractor, new ReentrantReadWriteLock());
+    }
+
+    public DurableRepository(IDataRepository<T, String> delegate, WriteAheadLog wal, byte kind,
+                             EntityCodec<T> codec, Function<T, String> idExtractor,
+                             ReentrantReadWriteLock appendGate) {
+        this.appendGate = appendGate.readLock();
+        this.delegate = delegate;
+        this.wal = wal;
+        this.kind = kind;
+        this.codec = codec;
+        this.idExtractor = idExtractor;
+    }
+
+    @Override
+    public T save(T entity) {
+        requireId(entity);
+        byte[] record = encodeSave(entity);
+        long seq;
+        T saved;
+        appendGate.lock();
+        writeLock.lock();
+        try {
+            seq = wal.append(record);
+            saved = delegate.save(entity);
+        } finally {
+            writeLock.unlock();
+            appendGate.unlock();
+        }
+        wal.sync(seq);
+        return saved;
+    }
+
+    /**
+     * 整批追加与应用, 最后只等待一次落盘
+     */
+    @Override
+    public List<T> saveAll(Collection<T> entities) {
+        if (entities.isEmpty()) {
+            return List.of();
+        }
+        entities.forEach(this::requireId);
+        byte[][] records = new byte[entities.size()][];
+        int i = 0;
+        for (T entity : entities) {
+            records[i++] = encodeSave(entity);
+        }
+        long seq = 0;
+        List<T> saved;
+        appendGate.lock();
+        writeLock.lock();
+        try {
+            for (byte[] record : records) {
+                seq = wal.append(record);
+            }
+            saved = delegate.saveAll(entities);
+        } finally {
+            writeLock.unlock();
+            appendGate.unlock();
+        }
+        wal.sync(seq);
+        return saved;
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        byte[] record = encode(OP_DELETE, out -> EntityCodecs.writeString(out, id));
+        long seq;
+        appendGate.lock();
+        writeLock.lock();
+        try {
+            seq = wal.append(record);
+            delegate.deleteById(id);
+        } finally {
+            writeLock.unlock();
+            appendGate.unlock();
+        }
+        wal.sync(seq);
+    }
+
+    /**
+     * 批量删除, 最后只等待一次落盘
+     */
+    public void deleteAllById(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        long seq = 0;
+        appendGate.lock();
+        writeLock.lock();
+        try {
+            for (String id : ids) {
+                seq = wal.append(encode(OP_DELETE, out -> EntityCodecs.writeString(out, id)));
+                delegate.deleteById(id);
+            }
+        } finally {
+            writeLock.unlock();
+            appendGate.unlock();
+        }
+        wal.sync(seq);
+    }
+
+    @Override
+    public List<T> query(Predicate<T> predicate) {
+        return delegate.query(predicate);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<T> streamAll() {
+        return delegate.streamAll();
+    }
+
+    protected IDataRepository<T, String> delegate() {
+        return delegate;
+    }
+
+    private void requireId(T entity) {
+        if (idExtractor.apply(entity) == null) {
+            throw new ValidationException("实体ID不能为空");
+        }
+    }
+
+    private byte[] encodeSave(T entity) {
+        return encode(OP_SAVE, out -> codec.write(entity, out));
+    }
+
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private byte[] encode(byte op, PayloadWriter payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(kind);
+            out.writeByte(op);
+            payload.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
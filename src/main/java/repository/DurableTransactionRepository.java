@@ -0,0 +1,56 @@
+package repository;
+
+import model.Transaction;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * 带预写日志的交易存储库: 写入经由 DurableRepository 记录日志, 结构化查询、聚合与变更监听直接交给底层实现
+ */
+public class DurableTransactionRepository extends DurableRepository<Transaction> implements ITransactionRepository {
+
+    private final ITransactionRepository transactions;
+
+    public DurableTransactionRepository(ITransactionRepository delegate, WriteAheadLog wal, byte kind) {
+        this(delegate, wal, kind, new ReentrantReadWriteLock());
+    }
+
+    public DurableTransactionRepository(ITransactionRepository delegate, WriteAheadLog wal, byte kind,
+                                        ReentrantReadWriteLock appendGate) {
+        super(delegate, wal, kind, EntityCodecs.TRANSACTION, Transaction::getTransactionId, appendGate);
+        this.transactions = delegate;
+    }
+
+    @Override
+    public List<Transaction> query(TransactionFilter filter) {
+        return transactions.query(filter);
+    }
+
+    @Override
+    public Stream<Transaction> stream(TransactionFilter filter) {
+        return transactions.stream(filter);
+    }
+
+    @Override
+    public Page page(TransactionFilter filter, PageRequest request) {
+        return transactions.page(filter, request);
+    }
+
+    @Override
+    public Map<YearMonth, Map<MonthlyRollupStore.Key, MonthlyRollupStore.Totals>> aggregateByMonth(TransactionFilter filter) {
+        return transactions.aggregateByMonth(filter);
+    }
+
+    @Override
+    public void addChangeListener(TransactionChangeListener listener) {
+        transactions.addChangeListener(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TransactionChangeListener listener) {
+        transactions.removeChangeListener(listener);
+    }
+}
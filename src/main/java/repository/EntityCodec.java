@@ -0,0 +1,17 @@
+package repository;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 实体的二进制编解码器, 供预写日志 (WAL) 与快照使用
+ *
+ * @param <T> 实体类型
+ */
+public interface EntityCodec<T> {
+
+    void write(T entity, DataOutput out) throws IOException;
+
+    T read(DataInput in) throws IOException;
+}
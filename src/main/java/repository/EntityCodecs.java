@@ -0,0 +1,243 @@
+package repository;
+
+import model.*;
+import util.TransactionType;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 各实体的二进制编解码器, 以及它们共用的基础类型读写方法。
+ * 所有引用类型字段都可以为 null; 字符串以 UTF-8 字节长度前缀存储, 不受 writeUTF 的 64KB 限制。
+ */
+public final class EntityCodecs {
+
+    private EntityCodecs() {
+    }
+
+    public static final EntityCodec<Transaction> TRANSACTION = new EntityCodec<>() {
+        @Override
+        public void write(Transaction tx, DataOutput out) throws IOException {
+            writeString(out, tx.getTransactionId());
+            writeDecimal(out, tx.getAmount());
+            writeEnum(out, tx.getType());
+            if (tx.getType() == TransactionType.TRANSFER) {
+                // 只有转账带对方账户, 收入/支出记录的格式与之前相同
+                writeString(out, tx.getCounterAccountId());
+            }
+            writeDateTime(out, tx.getDateTime());
+            writeString(out, tx.getCategoryId());
+            writeString(out, tx.getAccountId());
+            writeString(out, tx.getMemo());
+            writeStringList(out, tx.getTags());
+            writeString(out, tx.getStatus());
+            writeStringList(out, tx.getAttachmentIds());
+        }
+
+        @Override
+        public Transaction read(DataInput in) throws IOException {
+            String id = readString(in);
+            BigDecimal amount = readDecimal(in);
+            TransactionType type = readEnum(in, TransactionType.values());
+            String counterAccountId = type == TransactionType.TRANSFER ? readString(in) : null;
+            LocalDateTime dateTime = readDateTime(in);
+            String categoryId = readString(in);
+            String accountId = readString(in);
+            Transaction tx = new Transaction(id, amount, type, dateTime, categoryId, accountId);
+            tx.setCounterAccountId(counterAccountId);
+            tx.setMemo(readString(in));
+            tx.setTags(readStringList(in));
+            tx.setStatus(readString(in));
+            tx.setAttachmentIds(readStringList(in));
+            return tx;
+        }
+    };
+
+    public static final EntityCodec<Account> ACCOUNT = new EntityCodec<>() {
+        @Override
+        public void write(Account account, DataOutput out) throws IOException {
+            writeString(out, account.getAccountId());
+            writeString(out, account.getName());
+            out.writeLong(account.getBalanceCents());
+        }
+
+        @Override
+        public Account read(DataInput in) throws IOException {
+            String id = readString(in);
+            String name = readString(in);
+            return new Account(id, name, Money.toBigDecimal(in.readLong()));
+        }
+    };
+
+    public static final EntityCodec<Category> CATEGORY = new EntityCodec<>() {
+        @Override
+        public void write(Category category, DataOutput out) throws IOException {
+            writeString(out, category.getCategoryId());
+            writeString(out, category.getName());
+            writeEnum(out, category.getType());
+        }
+
+        @Override
+        public Category read(DataInput in) throws IOException {
+            return new Category(readString(in), readString(in), readEnum(in, TransactionType.values()));
+        }
+    };
+
+    public static final EntityCodec<Budget> BUDGET = new EntityCodec<>() {
+        @Override
+        public void write(Budget budget, DataOutput out) throws IOException {
+            writeString(out, budget.getBudgetId());
+            writeDecimal(out, budget.getMonthlyLimit());
+            writeString(out, budget.getCategoryId());
+        }
+
+        @Override
+        public Budget read(DataInput in) throws IOException {
+            return new Budget(readString(in), readDecimal(in), readString(in));
+        }
+    };
+
+    /**
+     * 附件编解码器; 内容位于外部存储的附件只写入哈希与大小, 读回的附件从 blobs 读取内容
+     */
+    public static final EntityCodec<Attachment> ATTACHMENT = attachment(null);
+
+    private static final int EXTERNAL_BLOB = -2;
+
+    /**
+     * 读回的外部存储附件绑定到 blobs; blobs 为 null 时读回的附件只有元数据, 读取内容会失败
+     */
+    public static EntityCodec<Attachment> attachment(BlobSource blobs) {
+        return new EntityCodec<>() {
+            @Override
+            public void write(Attachment attachment, DataOutput out) throws IOException {
+                writeString(out, attachment.getAttachmentId());
+                if (attachment.isInline()) {
+                    writeBytes(out, attachment.getImageData());
+                    return;
+                }
+                // 长度位置的 -2 (内联内容不会出现) 标记外部存储
+                out.writeInt(EXTERNAL_BLOB);
+                writeString(out, attachment.getContentHash());
+                out.writeLong(attachment.getSize());
+            }
+
+            @Override
+            public Attachment read(DataInput in) throws IOException {
+                String id = readString(in);
+                int length = in.readInt();
+                if (length == EXTERNAL_BLOB) {
+                    String hash = readString(in);
+                    return new Attachment(id, hash, in.readLong(), blobs);
+                }
+                byte[] bytes = null;
+                if (length >= 0) {
+                    bytes = new byte[length];
+                    in.readFully(bytes);
+                }
+                return new Attachment(id, bytes);
+            }
+        };
+    }
+
+    // ---------- 基础类型 ----------
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeBytes(DataOutput out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    public static byte[] readBytes(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    public static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value.scale());
+            writeBytes(out, value.unscaledValue().toByteArray());
+        }
+    }
+
+    public static BigDecimal readDecimal(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int scale = in.readInt();
+        return new BigDecimal(new BigInteger(readBytes(in)), scale);
+    }
+
+    public static void writeDateTime(DataOutput out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    public static LocalDateTime readDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long second = in.readLong();
+        return LocalDateTime.ofEpochSecond(second, in.readInt(), ZoneOffset.UTC);
+    }
+
+    public static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        out.writeByte(value == null ? -1 : value.ordinal());
+    }
+
+    public static <E extends Enum<E>> E readEnum(DataInput in, E[] values) throws IOException {
+        byte ordinal = in.readByte();
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    public static void writeStringList(DataOutput out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    public static List<String> readStringList(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+}
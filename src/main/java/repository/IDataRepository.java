@@ -1,8 +1,11 @@
 package repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * 接口: 数据持久化 (IDataRepository) 
@@ -23,6 +26,17 @@ public interface IDataRepository<T, ID> {
      */
     Optional<T> findById(ID id);
     
+    /**
+     * 批量保存, 实现可以一次性获取锁/分配空间来降低逐条保存的开销
+     */
+    default List<T> saveAll(Collection<T> entities) {
+        List<T> saved = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            saved.add(save(entity));
+        }
+        return saved;
+    }
+
     /**
      * 对应 delete(id)
      */
@@ -37,4 +51,12 @@ public interface IDataRepository<T, ID> {
      * 辅助方法，获取所有
      */
     List<T> findAll();
+
+    /**
+     * 惰性遍历全部实体, 不复制整个集合; 顺序不作保证
+     * 内存实现返回底层存储的弱一致视图, 遍历期间的并发写入可能可见也可能不可见
+     */
+    default Stream<T> streamAll() {
+        return findAll().stream();
+    }
 }
\ No newline at end of file
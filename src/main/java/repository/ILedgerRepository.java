@@ -0,0 +1,21 @@
+package repository;
+
+import model.*;
+
+/**
+ * 接口: 一本账的全部存储库 (五类实体各一个)
+ * InMemoryDataRepository 与 PersistentDataRepository 都实现该接口, 服务按此装配即可在两者之间切换;
+ * 多租户时每个分片 (见 ShardManager) 持有一个独立的实例
+ */
+public interface ILedgerRepository {
+
+    ITransactionRepository getTransactionRepository();
+
+    IDataRepository<Account, String> getAccountRepository();
+
+    IDataRepository<Category, String> getCategoryRepository();
+
+    IDataRepository<Budget, String> getBudgetRepository();
+
+    IDataRepository<Attachment, String> getAttachmentRepository();
+}
@@ -0,0 +1,74 @@
+package repository;
+
+import model.Transaction;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 接口: 交易数据持久化 (ITransactionRepository)
+ * 在 IDataRepository 的基础上增加结构化的组合查询 (时间范围/类别/账户/类型),
+ * 使报表与筛选只需访问命中的交易, 而不是扫描全部账本
+ */
+public interface ITransactionRepository extends IDataRepository<Transaction, String> {
+
+    /**
+     * 对应 query(conditions) 的结构化版本, 结果按交易时间升序排列
+     * 实现可以据此选择最具选择性的索引
+     */
+    List<Transaction> query(TransactionFilter filter);
+
+    /**
+     * 以流的形式按时间升序返回满足条件的交易, 供导出等需要遍历整本账的场景使用
+     * 默认实现基于 query; 实现应尽量惰性地产生元素, 使遍历时不必同时持有全部交易对象
+     */
+    default Stream<Transaction> stream(TransactionFilter filter) {
+        return query(filter).stream();
+    }
+
+    /**
+     * 分页查询: 按 request 的排序返回游标之后的至多 limit 笔交易
+     * 默认实现在 stream 上做堆选择 (O(N log K) 时间, O(K) 内存), 实现可以借助有序索引只访问一页附近的交易
+     */
+    default Page page(TransactionFilter filter, PageRequest request) {
+        if (filter.isEmptyRange()) {
+            return Page.empty();
+        }
+        try (Stream<Transaction> candidates = stream(filter)) {
+            return Page.of(TopK.select(candidates.filter(request::isAfterCursor).iterator(),
+                    request.getSort().comparator(), request.getLimit() + 1), request);
+        }
+    }
+
+    /**
+     * 排序最靠前的 k 笔交易, 例如最近 50 笔为 top(TransactionFilter.all(), PageRequest.Sort.TIME_DESC, 50)
+     */
+    default List<Transaction> top(TransactionFilter filter, PageRequest.Sort sort, int k) {
+        return page(filter, PageRequest.first(k, sort)).getItems();
+    }
+
+    /**
+     * 按交易时间范围查询, 闭区间 [start, end], 结果按交易时间升序排列
+     * start 或 end 为 null 表示该侧不设界
+     */
+    default List<Transaction> findByDateRange(LocalDateTime start, LocalDateTime end) {
+        return query(TransactionFilter.all().between(start, end));
+    }
+
+    /**
+     * 按月分组聚合: 对满足条件的交易按 (YearMonth, type, categoryId, accountId) 求 "分" 合计与笔数
+     * 默认实现先查询再并行聚合, 列式等实现可以直接在底层数据上计算而不构造交易对象
+     */
+    default Map<YearMonth, Map<MonthlyRollupStore.Key, MonthlyRollupStore.Totals>> aggregateByMonth(TransactionFilter filter) {
+        return MonthlyRollupStore.aggregate(query(filter));
+    }
+
+    /**
+     * 注册变更监听器, 之后的每次 save/delete 都会通知该监听器
+     */
+    void addChangeListener(TransactionChangeListener listener);
+
+    void removeChangeListener(TransactionChangeListener listener);
+}
@@ -8,12 +8,13 @@ import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * IDataRepository 的内存实现。
  * 为了演示，这个类将充当所有类型实体的“通用”存储库。
  */
-public class InMemoryDataRepository {
+public class InMemoryDataRepository implements ILedgerRepository {
     
     /**
      * 内部泛型实现
@@ -48,6 +49,7 @@ public class InMemoryDataRepository {
 
         @Override
         public List<T> query(Predicate<T> predicate) {
+            ScanCounter.add(storage.size());
             return storage.values().stream()
                     .filter(predicate)
                     .collect(Collectors.toList());
@@ -57,11 +59,15 @@ public class InMemoryDataRepository {
         public List<T> findAll() {
             return List.copyOf(storage.values());
         }
+
+        @Override
+        public Stream<T> streamAll() {
+            return storage.values().stream();
+        }
     }
 
     // 为UML中需要持久化的每个实体创建专用的存储库实例
-    private final IDataRepository<Transaction, String> transactionRepository =
-            new GenericInMemoryRepository<>(Transaction::getTransactionId);
+    private final ITransactionRepository transactionRepository;
             
     private final IDataRepository<Account, String> accountRepository =
             new GenericInMemoryRepository<>(Account::getAccountId);
@@ -75,8 +81,19 @@ public class InMemoryDataRepository {
     private final IDataRepository<Attachment, String> attachmentRepository =
             new GenericInMemoryRepository<>(Attachment::getAttachmentId);
             
+    public InMemoryDataRepository() {
+        this(new InMemoryTransactionRepository());
+    }
+
+    /**
+     * 使用指定的交易存储库 (例如 ColumnarTransactionRepository), 其余实体仍使用通用内存实现
+     */
+    public InMemoryDataRepository(ITransactionRepository transactionRepository) {
+        this.transactionRepository = transactionRepository;
+    }
+
     // 提供 Getters 以便 "依赖注入" 到服务中
-    public IDataRepository<Transaction, String> getTransactionRepository() { return transactionRepository; }
+    public ITransactionRepository getTransactionRepository() { return transactionRepository; }
     public IDataRepository<Account, String> getAccountRepository() { return accountRepository; }
     public IDataRepository<Category, String> getCategoryRepository() { return categoryRepository; }
     public IDataRepository<Budget, String> getBudgetRepository() { return budgetRepository; }
@@ -0,0 +1,395 @@
+package repository;
+
+import model.Transaction;
+import util.TransactionType;
+import util.ValidationException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * ITransactionRepository 的内存实现。
+ * 除主存储外, 额外维护:
+ *  - 按 dateTime 排序的跳表索引, 用于时间范围查询
+ *  - categoryId / accountId / type 的二级索引, 用于等值条件
+ * 组合查询时选择命中行数最少的索引驱动, 其余条件在候选集上求交集。
+ */
+class InMemoryTransactionRepository implements ITransactionRepository {
+
+    /** stream 时等值索引命中行数不超过该值才先排序再返回, 否则惰性地扫描时间索引 */
+    private static final int STREAM_SORT_LIMIT = 65_536;
+
+    /** 与时间索引一致的排序: 先按时间 (无日期的排在最前), 再按ID */
+    static final Comparator<Transaction> BY_TIME = Comparator
+            .comparingLong(Transaction::getEpochSecond) // 没有时间的交易为 NO_DATE, 排在最前
+            .thenComparingInt(Transaction::getNano)
+            .thenComparing(Transaction::getTransactionId);
+
+    private final Map<String, Transaction> storage = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<TimeKey, Transaction> timeIndex = new ConcurrentSkipListMap<>();
+    private final Set<Transaction> undated = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Transaction>> categoryIndex = new ConcurrentHashMap<>();
+    private final Map<String, Set<Transaction>> accountIndex = new ConcurrentHashMap<>();
+    private final Map<TransactionType, Set<Transaction>> typeIndex = new EnumMap<>(TransactionType.class);
+    private final List<TransactionChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    InMemoryTransactionRepository() {
+        for (TransactionType type : TransactionType.values()) {
+            typeIndex.put(type, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    @Override
+    public Transaction save(Transaction entity) {
+        String id = entity.getTransactionId();
+        if (id == null) {
+            throw new ValidationException("实体ID不能为空");
+        }
+        // 在同一个 compute 中替换主存储与索引, 保证同一ID的并发写入不会留下过期的索引项
+        Transaction[] replaced = new Transaction[1];
+        storage.compute(id, (key, previous) -> {
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(entity);
+            replaced[0] = previous;
+            return entity;
+        });
+        for (TransactionChangeListener listener : listeners) {
+            listener.onSaved(replaced[0], entity);
+        }
+        return entity;
+    }
+
+    @Override
+    public Optional<Transaction> findById(String id) {
+        return Optional.ofNullable(storage.get(id));
+    }
+
+    @Override
+    public void deleteById(String id) {
+        Transaction[] removed = new Transaction[1];
+        storage.computeIfPresent(id, (key, previous) -> {
+            unindex(previous);
+            removed[0] = previous;
+            return null;
+        });
+        if (removed[0] != null) {
+            for (TransactionChangeListener listener : listeners) {
+                listener.onDeleted(removed[0]);
+            }
+        }
+    }
+
+    @Override
+    public List<Transaction> query(Predicate<Transaction> predicate) {
+        ScanCounter.add(storage.size());
+        return storage.values().stream()
+                .filter(predicate)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Transaction> findAll() {
+        return List.copyOf(storage.values());
+    }
+
+    @Override
+    public Stream<Transaction> streamAll() {
+        return storage.values().stream();
+    }
+
+    @Override
+    public void addChangeListener(TransactionChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TransactionChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public List<Transaction> query(TransactionFilter filter) {
+        if (filter.isEmptyRange()) {
+            return List.of();
+        }
+
+        // 1. 在等值索引中找出命中行数最少的一个
+        Collection<Transaction> driver = smallestIndex(filter);
+        if (driver != null && driver.isEmpty()) {
+            return List.of();
+        }
+
+        // 2. 时间范围的大小无法 O(1) 得知, 最多走 driver.size() 步来判断它是否更小
+        if (filter.hasDateRange()) {
+            ConcurrentNavigableMap<TimeKey, Transaction> range = range(filter.getStart(), filter.getEnd());
+            if (driver == null || isSmallerThan(range, driver.size())) {
+                List<Transaction> result = new ArrayList<>();
+                long scanned = 0;
+                for (Transaction tx : range.values()) {
+                    scanned++;
+                    if (filter.matches(tx)) {
+                        result.add(tx);
+                    }
+                }
+                ScanCounter.add(scanned);
+                return result;
+            }
+        } else if (driver == null) {
+            List<Transaction> result = new ArrayList<>(undated);
+            result.sort(BY_TIME);
+            result.addAll(timeIndex.values());
+            ScanCounter.add(result.size());
+            return result;
+        }
+
+        // 3. 由最小的等值索引驱动, 其余条件逐条求交
+        ScanCounter.add(driver.size());
+        return driver.stream()
+                .filter(filter::matches)
+                .sorted(BY_TIME)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 惰性遍历: 默认沿时间索引 (弱一致视图) 逐条过滤, 不复制结果;
+     * 只有命中行数很少的等值索引才会被取出排序, 这样遍历整本账时内存占用与账本大小无关
+     */
+    @Override
+    public Stream<Transaction> stream(TransactionFilter filter) {
+        if (filter.isEmptyRange()) {
+            return Stream.empty();
+        }
+        Collection<Transaction> driver = smallestIndex(filter);
+        if (driver != null && driver.size() <= STREAM_SORT_LIMIT) {
+            return driver.stream()
+                    .filter(filter::matches)
+                    .sorted(BY_TIME);
+        }
+        Stream<Transaction> dated = range(filter.getStart(), filter.getEnd()).values().stream()
+                .filter(filter::matches);
+        if (filter.hasDateRange()) {
+            return dated;
+        }
+        Stream<Transaction> withoutDate = undated.stream()
+                .filter(filter::matches)
+                .sorted(BY_TIME);
+        return Stream.concat(withoutDate, dated);
+    }
+
+    /**
+     * 按时间排序的分页沿时间索引从游标处开始走, 凑满一页即停, 代价与页大小 (及被条件滤掉的行数) 成正比;
+     * 命中行数很少的等值索引与按金额排序则在候选集上做堆选择
+     */
+    @Override
+    public Page page(TransactionFilter filter, PageRequest request) {
+        if (filter.isEmptyRange()) {
+            return Page.empty();
+        }
+        Collection<Transaction> driver = smallestIndex(filter);
+        if (driver != null && driver.size() <= STREAM_SORT_LIMIT) {
+            return Page.of(TopK.select(driver.stream().filter(filter::matches).filter(request::isAfterCursor).iterator(),
+                    request.getSort().comparator(), request.getLimit() + 1), request);
+        }
+        if (!request.getSort().isByTime()) {
+            return ITransactionRepository.super.page(filter, request);
+        }
+        List<Transaction> candidates = new ArrayList<>(request.getLimit() + 1);
+        long scanned = 0;
+        Iterator<Transaction> it = inTimeOrder(filter, request).iterator();
+        while (candidates.size() <= request.getLimit() && it.hasNext()) {
+            Transaction tx = it.next();
+            scanned++;
+            if (filter.matches(tx) && request.isAfterCursor(tx)) {
+                candidates.add(tx);
+            }
+        }
+        ScanCounter.add(scanned);
+        return Page.of(candidates, request);
+    }
+
+    /**
+     * 按请求的时间方向排列、从游标处开始的交易序列 (惰性); 无日期的交易在升序时排最前, 降序时排最后
+     */
+    private Stream<Transaction> inTimeOrder(TransactionFilter filter, PageRequest request) {
+        boolean descending = request.getSort().isDescending();
+        Transaction cursor = request.cursor();
+        ConcurrentNavigableMap<TimeKey, Transaction> dated = range(filter.getStart(), filter.getEnd());
+        Stream<Transaction> datedPart;
+        if (cursor != null && !cursor.hasDateTime() && descending) {
+            datedPart = Stream.empty(); // 游标已在无日期的交易中, 有日期的都排在它前面
+        } else if (cursor != null && cursor.hasDateTime()) {
+            TimeKey key = TimeKey.of(cursor);
+            datedPart = descending
+                    ? dated.headMap(key, false).descendingMap().values().stream()
+                    : dated.tailMap(key, false).values().stream();
+        } else {
+            datedPart = descending ? dated.descendingMap().values().stream() : dated.values().stream();
+        }
+        boolean undatedReachable = !filter.hasDateRange()
+                && (descending || cursor == null || !cursor.hasDateTime());
+        if (!undatedReachable || undated.isEmpty()) {
+            return datedPart;
+        }
+        List<Transaction> undatedPart = new ArrayList<>(undated);
+        undatedPart.sort(request.getSort().comparator());
+        return descending ? Stream.concat(datedPart, undatedPart.stream()) : Stream.concat(undatedPart.stream(), datedPart);
+    }
+
+    /**
+     * 条件中命中行数最少的等值索引; 没有等值条件时为 null
+     */
+    private Collection<Transaction> smallestIndex(TransactionFilter filter) {
+        Collection<Transaction> driver = null;
+        if (filter.getCategoryId() != null) {
+            driver = smaller(driver, categoryIndex.get(filter.getCategoryId()));
+        }
+        if (filter.getAccountId() != null) {
+            driver = smaller(driver, accountIndex.get(filter.getAccountId()));
+        }
+        if (filter.getType() != null) {
+            driver = smaller(driver, typeIndex.get(filter.getType()));
+        }
+        return driver;
+    }
+
+    private static Collection<Transaction> smaller(Collection<Transaction> current, Set<Transaction> candidate) {
+        if (candidate == null) {
+            return Set.of();
+        }
+        return current == null || candidate.size() < current.size() ? candidate : current;
+    }
+
+    private static boolean isSmallerThan(Map<TimeKey, Transaction> range, int limit) {
+        Iterator<TimeKey> it = range.keySet().iterator();
+        for (int i = 0; i < limit; i++) {
+            if (!it.hasNext()) {
+                return true;
+            }
+            it.next();
+        }
+        return false;
+    }
+
+    private ConcurrentNavigableMap<TimeKey, Transaction> range(LocalDateTime start, LocalDateTime end) {
+        if (start == null && end == null) {
+            return timeIndex;
+        }
+        if (start == null) {
+            return timeIndex.headMap(TimeKey.upperBound(end), true);
+        }
+        if (end == null) {
+            return timeIndex.tailMap(TimeKey.lowerBound(start), true);
+        }
+        return timeIndex.subMap(TimeKey.lowerBound(start), true, TimeKey.upperBound(end), true);
+    }
+
+    private void index(Transaction tx) {
+        // 没有日期的交易无法落入任何时间范围, 单独存放
+        if (tx.hasDateTime()) {
+            timeIndex.put(TimeKey.of(tx), tx);
+        } else {
+            undated.add(tx);
+        }
+        addTo(categoryIndex, tx.getCategoryId(), tx);
+        addTo(accountIndex, tx.getAccountId(), tx);
+        if (tx.getType() != null) {
+            typeIndex.get(tx.getType()).add(tx);
+        }
+    }
+
+    private void unindex(Transaction tx) {
+        if (tx.hasDateTime()) {
+            timeIndex.remove(TimeKey.of(tx));
+        } else {
+            undated.remove(tx);
+        }
+        removeFrom(categoryIndex, tx.getCategoryId(), tx);
+        removeFrom(accountIndex, tx.getAccountId(), tx);
+        if (tx.getType() != null) {
+            typeIndex.get(tx.getType()).remove(tx);
+        }
+    }
+
+    private static void addTo(Map<String, Set<Transaction>> index, String key, Transaction tx) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (k, set) -> {
+            Set<Transaction> bucket = set != null ? set : ConcurrentHashMap.newKeySet();
+            bucket.add(tx);
+            return bucket;
+        });
+    }
+
+    private static void removeFrom(Map<String, Set<Transaction>> index, String key, Transaction tx) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(tx);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * 时间索引键: (epoch 秒, 纳秒, transactionId), 时间与 Transaction 一样按 UTC 换算, 每行不再持有 LocalDateTime。
+     * 同一时刻可能有多笔交易, 因此用ID消除重复; bound 用于构造范围查询的上下界哨兵。
+     */
+    static final class TimeKey implements Comparable<TimeKey> {
+        private final long epochSecond;
+        private final int nano;
+        private final byte bound; // -1: 下界哨兵, 0: 真实键, 1: 上界哨兵
+        private final String id;
+
+        private TimeKey(long epochSecond, int nano, String id, int bound) {
+            this.epochSecond = epochSecond;
+            this.nano = nano;
+            this.id = id;
+            this.bound = (byte) bound;
+        }
+
+        static TimeKey of(Transaction tx) {
+            return new TimeKey(tx.getEpochSecond(), tx.getNano(), tx.getTransactionId(), 0);
+        }
+
+        static TimeKey lowerBound(LocalDateTime dateTime) {
+            return new TimeKey(dateTime.toEpochSecond(ZoneOffset.UTC), dateTime.getNano(), null, -1);
+        }
+
+        static TimeKey upperBound(LocalDateTime dateTime) {
+            return new TimeKey(dateTime.toEpochSecond(ZoneOffset.UTC), dateTime.getNano(), null, 1);
+        }
+
+        @Override
+        public int compareTo(TimeKey other) {
+            int c = Long.compare(epochSecond, other.epochSecond);
+            if (c == 0) {
+                c = Integer.compare(nano, other.nano);
+            }
+            if (c != 0) {
+                return c;
+            }
+            if (bound != 0 || other.bound != 0) {
+                return Integer.compare(bound, other.bound);
+            }
+            return id.compareTo(other.id);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package repository;
+
+import model.Transaction;
+import util.TransactionType;
+
+/**
+ * 复式分录: 每笔交易分解为金额相等、方向相反的分录, 这里只给出资金账户一侧
+ *  - 收入: 账户 +金额, 对方为类别 (名义账户)
+ *  - 支出: 账户 -金额, 对方为类别 (名义账户)
+ *  - 转账: 转出账户 -金额, 转入账户 +金额
+ * 类别一侧的合计由 MonthlyRollupStore 维护; 账户余额本身仍保存在 Account 中, 由 TransactionService 按分录更新。
+ */
+public final class LedgerLegs {
+
+    private LedgerLegs() {
+    }
+
+    /**
+     * 依次回调交易在资金账户上的分录; 缺少类型、金额或账户的交易没有分录
+     */
+    public static void forEachLeg(Transaction tx, LegConsumer consumer) {
+        if (tx.getType() == null || !tx.hasAmount() || tx.getAccountId() == null) {
+            return;
+        }
+        long cents = tx.getAmountCents();
+        if (tx.getType() == TransactionType.INCOME) {
+            consumer.accept(tx.getAccountId(), cents);
+        } else if (tx.getType() == TransactionType.EXPENSE) {
+            consumer.accept(tx.getAccountId(), -cents);
+        } else if (tx.getType() == TransactionType.TRANSFER && tx.getCounterAccountId() != null) {
+            consumer.accept(tx.getAccountId(), -cents);
+            consumer.accept(tx.getCounterAccountId(), cents);
+        }
+    }
+
+    /**
+     * 分录回调: 资金账户与带符号的金额 (分, 转入为正)
+     */
+    public interface LegConsumer {
+        void accept(String accountId, long cents);
+    }
+}
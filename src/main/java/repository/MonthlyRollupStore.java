@@ -0,0 +1,322 @@
+package repository;
+
+import model.Money;
+import model.Transaction;
+import util.TransactionType;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 月度汇总 (物化视图)
+ * 按 (YearMonth, type, categoryId, accountId) 维护精确的金额合计与笔数,
+ * 作为 TransactionChangeListener 随交易的新增、覆盖与删除增量更新。
+ * 月度总览、分类占比与预算检查只需访问当月的汇总项, 代价与交易总数无关。
+ */
+public class MonthlyRollupStore implements TransactionChangeListener {
+
+    private volatile ConcurrentNavigableMap<YearMonth, Map<Key, Totals>> months = new ConcurrentSkipListMap<>();
+    /** load 期间正在构造的新汇总: 期间到达的增量同时计入新旧两份, 替换时不会丢失 */
+    private ConcurrentNavigableMap<YearMonth, Map<Key, Totals>> loading; // 由 swapLock 保护
+    /** 增量更新持读锁 (可并发), 开始与结束 load 持写锁 */
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private ITransactionRepository repository; // attachTo 挂上的存储库, 用于 detach
+
+    /**
+     * 创建汇总并挂到存储库上: 先注册监听再以现有数据初始化。
+     * 应在装配服务时 (写入开始之前) 调用, 否则初始化期间并发写入的交易可能被重复计入。
+     */
+    public static MonthlyRollupStore attachTo(ITransactionRepository repository) {
+        MonthlyRollupStore store = new MonthlyRollupStore();
+        store.repository = repository;
+        repository.addChangeListener(store);
+        store.load(repository.aggregateByMonth(TransactionFilter.all()));
+        return store;
+    }
+
+    /**
+     * 从 attachTo 挂上的存储库移除监听, 之后汇总不再随写入更新
+     */
+    public void detach() {
+        if (repository != null) {
+            repository.removeChangeListener(this);
+        }
+    }
+
+    /**
+     * 丢弃现有汇总, 用给定的交易重新计算
+     */
+    public void rebuild(List<Transaction> transactions) {
+        load(aggregate(transactions));
+    }
+
+    /**
+     * 丢弃现有汇总, 换成已聚合好的结果 (见 ITransactionRepository.aggregateByMonth)
+     * 先构造完整的新汇总再整体替换, 并发的读取看到的要么是旧汇总要么是新汇总, 不会看到空的中间状态;
+     * 构造期间经由监听到达的增量也计入新汇总, 替换后不会丢失 (aggregated 本身应在这些写入之前得出)
+     */
+    public void load(Map<YearMonth, Map<Key, Totals>> aggregated) {
+        ConcurrentNavigableMap<YearMonth, Map<Key, Totals>> loaded = new ConcurrentSkipListMap<>();
+        swapLock.writeLock().lock();
+        try {
+            loading = loaded;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        aggregated.forEach((month, entries) -> {
+            Map<Key, Totals> target = loaded.computeIfAbsent(month, m -> new ConcurrentHashMap<>());
+            entries.forEach((key, totals) -> target.merge(key, totals, (a, b) -> nonEmpty(a.plus(b))));
+        });
+        swapLock.writeLock().lock();
+        try {
+            months = loaded;
+            loading = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 对交易列表做一次遍历的按月聚合:
+     * 按 fork-join 切分到各个核心上分别求部分和, 再精确合并
+     */
+    public static Map<YearMonth, Map<Key, Totals>> aggregate(List<Transaction> transactions) {
+        return ForkJoinPool.commonPool().invoke(new AggregateTask(transactions, 0, transactions.size()));
+    }
+
+    /**
+     * 合并两个按月聚合的部分结果, 返回合并后的映射 (会修改并复用较大的一个)
+     */
+    static Map<YearMonth, Map<Key, Totals>> merge(Map<YearMonth, Map<Key, Totals>> a,
+                                                  Map<YearMonth, Map<Key, Totals>> b) {
+        if (a.size() < b.size()) {
+            return merge(b, a);
+        }
+        b.forEach((month, entries) -> {
+            Map<Key, Totals> target = a.computeIfAbsent(month, m -> new HashMap<>());
+            entries.forEach((key, totals) -> target.merge(key, totals, Totals::plus));
+        });
+        return a;
+    }
+
+    @Override
+    public void onSaved(Transaction previous, Transaction current) {
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(current, 1);
+    }
+
+    @Override
+    public void onDeleted(Transaction removed) {
+        apply(removed, -1);
+    }
+
+    private void apply(Transaction tx, int sign) {
+        if (!isAggregatable(tx)) {
+            return;
+        }
+        YearMonth month = tx.getYearMonth();
+        Key key = Key.of(tx);
+        long cents = sign > 0 ? tx.getAmountCents() : -tx.getAmountCents();
+        swapLock.readLock().lock();
+        try {
+            apply(months, month, key, cents, sign);
+            if (loading != null) {
+                apply(loading, month, key, cents, sign);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private static void apply(ConcurrentNavigableMap<YearMonth, Map<Key, Totals>> target,
+                              YearMonth month, Key key, long cents, int sign) {
+        target.computeIfAbsent(month, m -> new ConcurrentHashMap<>())
+                .compute(key, (k, totals) -> nonEmpty((totals != null ? totals : Totals.EMPTY).plus(cents, sign)));
+    }
+
+    /**
+     * 笔数归零的汇总项移除 (load 期间先到达的删除会暂时留下负的笔数, 与聚合结果合并后归零)
+     */
+    private static Totals nonEmpty(Totals totals) {
+        return totals.getCount() == 0 ? null : totals;
+    }
+
+    /**
+     * 无法归入任何月份/类型的数据不参与汇总
+     */
+    private static boolean isAggregatable(Transaction tx) {
+        return tx.hasDateTime() && tx.getType() != null && tx.hasAmount();
+    }
+
+    /**
+     * 某月的全部汇总项 (只读视图)
+     */
+    public Map<Key, Totals> getMonth(YearMonth month) {
+        Map<Key, Totals> entries = months.get(month);
+        return entries == null ? Map.of() : Collections.unmodifiableMap(entries);
+    }
+
+    /**
+     * 某月某类型的金额合计
+     */
+    public BigDecimal sum(YearMonth month, TransactionType type) {
+        return Money.toBigDecimal(sumCents(getMonth(month), type));
+    }
+
+    private static long sumCents(Map<Key, Totals> entries, TransactionType type) {
+        long sum = 0;
+        for (Map.Entry<Key, Totals> entry : entries.entrySet()) {
+            if (entry.getKey().getType() == type) {
+                sum = Money.add(sum, entry.getValue().getCents());
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 某月某类型按类别分组的金额合计
+     */
+    public Map<String, BigDecimal> sumByCategory(YearMonth month, TransactionType type) {
+        Map<String, Long> cents = new HashMap<>();
+        for (Map.Entry<Key, Totals> entry : getMonth(month).entrySet()) {
+            if (entry.getKey().getType() == type) {
+                cents.merge(entry.getKey().getCategoryId(), entry.getValue().getCents(), Money::add);
+            }
+        }
+        Map<String, BigDecimal> result = new HashMap<>();
+        cents.forEach((categoryId, sum) -> result.put(categoryId, Money.toBigDecimal(sum)));
+        return result;
+    }
+
+    /**
+     * 某类型在 [from, to] 各月的金额合计, 按月份升序; 没有交易的月份为 0
+     * 代价为 O(月数 × 每月汇总项数), 与交易总数无关
+     */
+    public NavigableMap<YearMonth, BigDecimal> sumByMonth(TransactionType type, YearMonth from, YearMonth to) {
+        NavigableMap<YearMonth, BigDecimal> result = new TreeMap<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            result.put(month, BigDecimal.ZERO);
+        }
+        for (Map.Entry<YearMonth, Map<Key, Totals>> monthEntry : months.subMap(from, true, to, true).entrySet()) {
+            result.put(monthEntry.getKey(), Money.toBigDecimal(sumCents(monthEntry.getValue(), type)));
+        }
+        return result;
+    }
+
+    /**
+     * 并行单遍聚合: 将交易列表二分直到足够小, 各段独立累加出按月的部分和, 回溯时逐项合并。
+     * 以 "分" 为单位的整数加法满足结合律且无舍入, 合并顺序不影响结果。
+     */
+    private static final class AggregateTask extends RecursiveTask<Map<YearMonth, Map<Key, Totals>>> {
+        private static final int THRESHOLD = 8192;
+
+        private final List<Transaction> transactions;
+        private final int from;
+        private final int to;
+
+        AggregateTask(List<Transaction> transactions, int from, int to) {
+            this.transactions = transactions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<YearMonth, Map<Key, Totals>> compute() {
+            if (to - from <= THRESHOLD) {
+                Map<YearMonth, Map<Key, Totals>> partial = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    Transaction tx = transactions.get(i);
+                    if (isAggregatable(tx)) {
+                        partial.computeIfAbsent(tx.getYearMonth(), m -> new HashMap<>())
+                                .merge(Key.of(tx), new Totals(tx.getAmountCents(), 1), Totals::plus);
+                    }
+                }
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(transactions, from, mid);
+            left.fork();
+            Map<YearMonth, Map<Key, Totals>> right = new AggregateTask(transactions, mid, to).compute();
+            return merge(left.join(), right);
+        }
+    }
+
+    /**
+     * 汇总键: (type, categoryId, accountId), 月份由外层映射区分
+     */
+    public static final class Key {
+        private final TransactionType type;
+        private final String categoryId;
+        private final String accountId;
+
+        public Key(TransactionType type, String categoryId, String accountId) {
+            this.type = type;
+            this.categoryId = categoryId;
+            this.accountId = accountId;
+        }
+
+        static Key of(Transaction tx) {
+            return new Key(tx.getType(), tx.getCategoryId(), tx.getAccountId());
+        }
+
+        public TransactionType getType() { return type; }
+        public String getCategoryId() { return categoryId; }
+        public String getAccountId() { return accountId; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return type == key.type
+                    && Objects.equals(categoryId, key.categoryId)
+                    && Objects.equals(accountId, key.accountId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, categoryId, accountId);
+        }
+    }
+
+    /**
+     * 不可变的合计值: 以 "分" 表示的精确金额与笔数
+     */
+    public static final class Totals {
+        static final Totals EMPTY = new Totals(0, 0);
+
+        private final long cents;
+        private final long count;
+
+        Totals(long cents, long count) {
+            this.cents = cents;
+            this.count = count;
+        }
+
+        Totals plus(long deltaCents, int countDelta) {
+            return new Totals(Money.add(cents, deltaCents), count + countDelta);
+        }
+
+        Totals plus(Totals other) {
+            return new Totals(Money.add(cents, other.cents), count + other.count);
+        }
+
+        public long getCents() { return cents; }
+        public BigDecimal getAmount() { return Money.toBigDecimal(cents); }
+        public long getCount() { return count; }
+    }
+}
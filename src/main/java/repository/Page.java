@@ -0,0 +1,45 @@
+package repository;
+
+import model.Transaction;
+import java.util.List;
+
+/**
+ * 一页交易: 本页的交易 (按请求的排序) 与取下一页用的游标
+ */
+public final class Page {
+
+    private final List<Transaction> items;
+    private final String nextCursor;
+
+    private Page(List<Transaction> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public static Page empty() {
+        return new Page(List.of(), null);
+    }
+
+    /**
+     * 由按请求排序、最多 limit + 1 条的候选构造: 多出的一条只用于判断是否还有下一页
+     */
+    static Page of(List<Transaction> candidates, PageRequest request) {
+        int limit = request.getLimit();
+        if (candidates.size() <= limit) {
+            return new Page(List.copyOf(candidates), null);
+        }
+        List<Transaction> items = List.copyOf(candidates.subList(0, limit));
+        return new Page(items, PageRequest.encode(request.getSort(), items.get(limit - 1)));
+    }
+
+    public List<Transaction> getItems() { return items; }
+
+    /**
+     * 下一页的游标, 传给 PageRequest.after; 已是最后一页时为 null
+     */
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,141 @@
+package repository;
+
+import model.Transaction;
+import util.ValidationException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+
+/**
+ * 交易分页请求: 排序方式 + 每页条数 + 游标 (上一页最后一条的排序键)
+ * 采用键集分页 (keyset pagination): 下一页从游标之后开始, 不需要跳过前面的页,
+ * 翻到第几页代价都只与页大小有关; 翻页期间插入或删除的交易不会造成重复或遗漏。
+ * 不可变对象, after 返回新的实例。
+ */
+public final class PageRequest {
+
+    public static final int MAX_LIMIT = 10_000;
+
+    /** 金额排序, 金额相同时按ID */
+    static final Comparator<Transaction> BY_AMOUNT = Comparator
+            .comparing(Transaction::getAmount, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Transaction::getTransactionId);
+
+    public enum Sort {
+        TIME_ASC(InMemoryTransactionRepository.BY_TIME),
+        TIME_DESC(InMemoryTransactionRepository.BY_TIME.reversed()),
+        AMOUNT_ASC(BY_AMOUNT),
+        AMOUNT_DESC(BY_AMOUNT.reversed());
+
+        private final Comparator<Transaction> comparator;
+
+        Sort(Comparator<Transaction> comparator) {
+            this.comparator = comparator;
+        }
+
+        public Comparator<Transaction> comparator() {
+            return comparator;
+        }
+
+        public boolean isByTime() {
+            return this == TIME_ASC || this == TIME_DESC;
+        }
+
+        public boolean isDescending() {
+            return this == TIME_DESC || this == AMOUNT_DESC;
+        }
+    }
+
+    private final Sort sort;
+    private final int limit;
+    private final Transaction cursor; // 只带排序键与ID的探针, 第一页为 null
+
+    private PageRequest(Sort sort, int limit, Transaction cursor) {
+        this.sort = sort;
+        this.limit = limit;
+        this.cursor = cursor;
+    }
+
+    /**
+     * 第一页; 例如最近 50 笔交易为 first(50, Sort.TIME_DESC)
+     */
+    public static PageRequest first(int limit, Sort sort) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ValidationException("每页条数必须在 1 到 " + MAX_LIMIT + " 之间");
+        }
+        if (sort == null) {
+            throw new ValidationException("排序方式不能为空");
+        }
+        return new PageRequest(sort, limit, null);
+    }
+
+    /**
+     * 从游标 (Page.getNextCursor) 之后继续; cursor 为 null 时即第一页
+     */
+    public PageRequest after(String cursor) {
+        return new PageRequest(sort, limit, cursor == null ? null : decode(sort, cursor));
+    }
+
+    public Sort getSort() { return sort; }
+    public int getLimit() { return limit; }
+    public boolean isFirstPage() { return cursor == null; }
+
+    /**
+     * 游标探针 (只有排序键与ID), 第一页为 null
+     */
+    Transaction cursor() {
+        return cursor;
+    }
+
+    /**
+     * 交易是否排在游标之后 (第一页时总为 true)
+     */
+    public boolean isAfterCursor(Transaction tx) {
+        return cursor == null || sort.comparator().compare(tx, cursor) > 0;
+    }
+
+    // ---------- 游标编码 ----------
+    // 时间排序: "t:<纪元秒>.<纳秒>:<ID>", 金额排序: "a:<金额>:<ID>"; 没有时间/金额时为 "-"
+
+    static String encode(Sort sort, Transaction last) {
+        StringBuilder token = new StringBuilder();
+        if (sort.isByTime()) {
+            LocalDateTime dateTime = last.getDateTime();
+            token.append("t:");
+            token.append(dateTime == null ? "-" : dateTime.toEpochSecond(ZoneOffset.UTC) + "." + dateTime.getNano());
+        } else {
+            token.append("a:").append(last.getAmount() == null ? "-" : last.getAmount().toPlainString());
+        }
+        return token.append(':').append(last.getTransactionId()).toString();
+    }
+
+    private static Transaction decode(Sort sort, String token) {
+        String[] parts = token.split(":", 3);
+        if (parts.length != 3 || !parts[0].equals(sort.isByTime() ? "t" : "a") || parts[2].isEmpty()) {
+            throw new ValidationException("无效的分页游标: " + token);
+        }
+        try {
+            LocalDateTime dateTime = null;
+            BigDecimal amount = null;
+            if (!parts[1].equals("-")) {
+                if (sort.isByTime()) {
+                    int dot = parts[1].indexOf('.');
+                    dateTime = LocalDateTime.ofEpochSecond(Long.parseLong(parts[1].substring(0, dot)),
+                            Integer.parseInt(parts[1].substring(dot + 1)), ZoneOffset.UTC);
+                } else {
+                    amount = new BigDecimal(parts[1]);
+                }
+            }
+            return new Transaction(parts[2], amount, null, dateTime, null, null);
+        } catch (RuntimeException e) {
+            throw new ValidationException("无效的分页游标: " + token);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PageRequest[sort=" + sort + ", limit=" + limit
+                + ", after=" + (cursor == null ? null : encode(sort, cursor)) + ']';
+    }
+}
@@ -0,0 +1,345 @@
+package repository;
+
+import model.*;
+import util.IdGenerator;
+import util.IdGenerators;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 持久化的数据存储库: 在 InMemoryDataRepository 之上为每个实体加一层预写日志
+ * 五类实体共用同一个日志 (因而共享组提交); 与 InMemoryDataRepository 提供相同的 Getters, 服务层无需改动即可切换。
+ *
+ * 目录中的文件按 "代" (generation) 编号:
+ *  - wal-N.log:      第 N 代日志段
+ *  - snapshot-N.bin: 第 N 代快照, 包含第 N 代之前全部日志段的内容 (以及第 N 代的一部分)
+ * 启动时加载最新的快照, 再依次回放不早于该代的日志段; 没有快照时从第 0 代日志开始回放。
+ * checkpoint 切换到新一代日志段后写快照, 成功后删除更早的快照与日志段, 重启只需回放很短的日志。
+ *
+ * 附件内容存放在 blobs 子目录 (AttachmentBlobStore) 中, 日志与快照里只有附件的哈希与大小;
+ * 通过 getBlobStore().store(...) 创建的附件保存后, 重启时仍然引用同一份内容。
+ */
+public class PersistentDataRepository implements ILedgerRepository, Closeable {
+
+    // 日志记录中的实体种类
+    static final byte KIND_TRANSACTION = 1;
+    static final byte KIND_ACCOUNT = 2;
+    static final byte KIND_CATEGORY = 3;
+    static final byte KIND_BUDGET = 4;
+    static final byte KIND_ATTACHMENT = 5;
+
+    private static final Pattern LOG_NAME = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)\\.bin");
+    private static final String BLOB_DIRECTORY = "blobs";
+
+    private final Path directory;
+    private final InMemoryDataRepository memory;
+    private final WriteAheadLog wal;
+    private final AttachmentBlobStore blobStore;
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private final ReentrantReadWriteLock appendGate = new ReentrantReadWriteLock();
+    private long generation;
+
+    private final DurableTransactionRepository transactionRepository;
+    private final DurableRepository<Account> accountRepository;
+    private final DurableRepository<Category> categoryRepository;
+    private final DurableRepository<Budget> budgetRepository;
+    private final DurableRepository<Attachment> attachmentRepository;
+
+    private PersistentDataRepository(Path directory, InMemoryDataRepository memory, WriteAheadLog wal,
+                                     AttachmentBlobStore blobStore, long generation) {
+        this.directory = directory;
+        this.memory = memory;
+        this.wal = wal;
+        this.blobStore = blobStore;
+        this.generation = generation;
+        this.transactionRepository = new DurableTransactionRepository(
+                memory.getTransactionRepository(), wal, KIND_TRANSACTION, appendGate);
+        this.accountRepository = new DurableRepository<>(memory.getAccountRepository(), wal,
+                KIND_ACCOUNT, EntityCodecs.ACCOUNT, Account::getAccountId, appendGate);
+        this.categoryRepository = new DurableRepository<>(memory.getCategoryRepository(), wal,
+                KIND_CATEGORY, EntityCodecs.CATEGORY, Category::getCategoryId, appendGate);
+        this.budgetRepository = new DurableRepository<>(memory.getBudgetRepository(), wal,
+                KIND_BUDGET, EntityCodecs.BUDGET, Budget::getBudgetId, appendGate);
+        this.attachmentRepository = new DurableRepository<>(memory.getAttachmentRepository(), wal,
+                KIND_ATTACHMENT, EntityCodecs.attachment(blobStore), Attachment::getAttachmentId, appendGate);
+    }
+
+    /**
+     * 打开 (必要时创建) 目录中的快照与日志, 恢复到新的内存存储库
+     */
+    public static PersistentDataRepository open(Path directory, WriteAheadLog.DurabilityMode mode) throws IOException {
+        return open(directory, mode, new InMemoryDataRepository());
+    }
+
+    /**
+     * 恢复到指定的内存存储库 (例如使用 ColumnarTransactionRepository 的实例)
+     */
+    public static PersistentDataRepository open(Path directory, WriteAheadLog.DurabilityMode mode,
+                                                InMemoryDataRepository memory) throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> snapshots = list(directory, SNAPSHOT_NAME);
+        TreeMap<Long, Path> logs = list(directory, LOG_NAME);
+        AttachmentBlobStore blobStore = AttachmentBlobStore.open(directory.resolve(BLOB_DIRECTORY));
+        EntityCodec<Attachment> attachments = EntityCodecs.attachment(blobStore);
+
+        // 1. 最新的快照 (并行的内存映射加载)
+        long generation = 0;
+        if (!snapshots.isEmpty()) {
+            generation = snapshots.lastKey();
+            SnapshotFile.load(snapshots.lastEntry().getValue(), memory, blobStore);
+        }
+
+        // 2. 回放不早于快照代数的日志段, 最后一段继续用于追加
+        NavigableMap<Long, Path> segments = logs.tailMap(generation, true);
+        long current = segments.isEmpty() ? generation : segments.lastKey();
+        for (Path segment : segments.headMap(current, false).values()) {
+            WriteAheadLog.replay(segment, record -> replay(memory, attachments, record));
+        }
+        WriteAheadLog wal = WriteAheadLog.open(directory.resolve(logName(current)), mode,
+                record -> replay(memory, attachments, record));
+
+        // 3. 让默认ID生成器越过已持久化的ID, 重启后 (即使时钟回拨) 新实体也不会重用旧ID
+        observeIds(memory);
+        return new PersistentDataRepository(directory, memory, wal, blobStore, current);
+    }
+
+    private static void observeIds(InMemoryDataRepository source) {
+        IdGenerator ids = IdGenerators.getDefault();
+        source.getTransactionRepository().streamAll().forEach(tx -> ids.observe(tx.getTransactionId()));
+        source.getAccountRepository().streamAll().forEach(account -> ids.observe(account.getAccountId()));
+        source.getCategoryRepository().streamAll().forEach(category -> ids.observe(category.getCategoryId()));
+        source.getBudgetRepository().streamAll().forEach(budget -> ids.observe(budget.getBudgetId()));
+        source.getAttachmentRepository().streamAll().forEach(attachment -> ids.observe(attachment.getAttachmentId()));
+    }
+
+    /**
+     * 把一条日志记录应用到内存存储库 (不再写日志)
+     */
+    static void replay(InMemoryDataRepository memory, EntityCodec<Attachment> attachments, ByteBuffer record) {
+        byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte kind = in.readByte();
+            byte op = in.readByte();
+            switch (kind) {
+                case KIND_TRANSACTION:
+                    apply(memory.getTransactionRepository(), EntityCodecs.TRANSACTION, op, in);
+                    break;
+                case KIND_ACCOUNT:
+                    apply(memory.getAccountRepository(), EntityCodecs.ACCOUNT, op, in);
+                    break;
+                case KIND_CATEGORY:
+                    apply(memory.getCategoryRepository(), EntityCodecs.CATEGORY, op, in);
+                    break;
+                case KIND_BUDGET:
+                    apply(memory.getBudgetRepository(), EntityCodecs.BUDGET, op, in);
+                    break;
+                case KIND_ATTACHMENT:
+                    apply(memory.getAttachmentRepository(), attachments, op, in);
+                    break;
+                default:
+                    throw new IOException("未知的实体种类: " + kind);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("日志记录损坏", e);
+        }
+    }
+
+    private static <T> void apply(IDataRepository<T, String> repo, EntityCodec<T> codec, byte op,
+                                  DataInputStream in) throws IOException {
+        if (op == DurableRepository.OP_SAVE) {
+            repo.save(codec.read(in));
+        } else if (op == DurableRepository.OP_DELETE) {
+            repo.deleteById(EntityCodecs.readString(in));
+        } else {
+            throw new IOException("未知的日志操作: " + op);
+        }
+    }
+
+    /**
+     * 检查点 (日志压缩): 切换到新一代日志段, 写入快照, 然后删除被快照覆盖的旧快照与日志段。
+     * 切换时持有 appendGate 的写锁, 等待已追加但尚未应用到内存的写入完成, 快照因此包含旧日志段的全部记录;
+     * 写快照期间写入者不会被阻塞, 它们的记录进入新日志段, 重启时在快照之上回放。
+     * 切换成功后立即推进代数: 即使快照写入失败, 下一次检查点也会切换到更新的日志段, 不会覆盖当前日志段。
+     */
+    public void checkpoint() throws IOException {
+        checkpointLock.lock();
+        try {
+            long next = generation + 1;
+            appendGate.writeLock().lock();
+            try {
+                wal.rotate(directory.resolve(logName(next)));
+            } finally {
+                appendGate.writeLock().unlock();
+            }
+            generation = next;
+            SnapshotFile.write(directory.resolve(snapshotName(next)), memory);
+            for (Path old : list(directory, SNAPSHOT_NAME).headMap(next).values()) {
+                Files.deleteIfExists(old);
+            }
+            for (Path old : list(directory, LOG_NAME).headMap(next).values()) {
+                Files.deleteIfExists(old);
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * 把当前全部数据写为一个独立的快照文件 (备份)
+     * 被引用的附件内容复制到快照旁的 "<文件名>.blobs" 目录, 与快照一起构成完整的备份
+     */
+    public void backupTo(Path file) throws IOException {
+        wal.flush();
+        SnapshotFile.write(file, memory);
+        AttachmentBlobStore target = null;
+        for (Attachment attachment : memory.getAttachmentRepository().findAll()) {
+            if (!attachment.isInline()) {
+                if (target == null) {
+                    target = AttachmentBlobStore.open(blobDirectoryOf(file));
+                }
+                blobStore.copyTo(target, attachment.getContentHash());
+            }
+        }
+    }
+
+    /**
+     * 从备份快照恢复: 备份中不存在的实体被删除, 其余实体被覆盖为备份中的状态。
+     * 变更照常写入日志并通知监听器 (报表等派生数据随之更新), 最后做一次检查点压缩日志。
+     */
+    public void restoreFrom(Path file) throws IOException {
+        InMemoryDataRepository restored = new InMemoryDataRepository();
+        SnapshotFile.load(file, restored, blobStore);
+        observeIds(restored);
+        // 先把备份中的附件内容导入本库的内容存储, 再替换实体
+        Path backupBlobs = blobDirectoryOf(file);
+        AttachmentBlobStore source = Files.isDirectory(backupBlobs) ? AttachmentBlobStore.open(backupBlobs) : null;
+        for (Attachment attachment : restored.getAttachmentRepository().findAll()) {
+            if (attachment.isInline() || blobStore.contains(attachment.getContentHash())) {
+                continue;
+            }
+            if (source == null || !source.contains(attachment.getContentHash())) {
+                throw new IOException("备份中缺少附件 " + attachment.getAttachmentId() + " 的内容");
+            }
+            source.copyTo(blobStore, attachment.getContentHash());
+        }
+        checkpointLock.lock();
+        try {
+            replaceAll(accountRepository, restored.getAccountRepository(), Account::getAccountId);
+            replaceAll(categoryRepository, restored.getCategoryRepository(), Category::getCategoryId);
+            replaceAll(budgetRepository, restored.getBudgetRepository(), Budget::getBudgetId);
+            replaceAll(attachmentRepository, restored.getAttachmentRepository(), Attachment::getAttachmentId);
+            replaceAll(transactionRepository, restored.getTransactionRepository(), Transaction::getTransactionId);
+        } finally {
+            checkpointLock.unlock();
+        }
+        checkpoint();
+    }
+
+    private static <T> void replaceAll(DurableRepository<T> current, IDataRepository<T, String> restored,
+                                       Function<T, String> idExtractor) {
+        List<T> entities = restored.findAll();
+        Set<String> keep = new HashSet<>(entities.size() * 2);
+        for (T entity : entities) {
+            keep.add(idExtractor.apply(entity));
+        }
+        List<String> removed = new ArrayList<>();
+        for (T entity : current.findAll()) {
+            String id = idExtractor.apply(entity);
+            if (!keep.contains(id)) {
+                removed.add(id);
+            }
+        }
+        current.deleteAllById(removed);
+        current.saveAll(entities);
+    }
+
+    /**
+     * 删除不再被任何附件引用的内容, 返回删除的个数
+     * 已写入内容存储但尚未保存的附件也会被当作无引用, 调用时不应有正在创建的附件
+     */
+    public int purgeUnreferencedBlobs() throws IOException {
+        Set<String> live = new HashSet<>();
+        for (Attachment attachment : memory.getAttachmentRepository().findAll()) {
+            if (!attachment.isInline()) {
+                live.add(attachment.getContentHash());
+            }
+        }
+        return blobStore.retainOnly(live);
+    }
+
+    /**
+     * 把已追加的全部记录写入并落盘 (ASYNC 模式下可用于显式的持久化点)
+     */
+    public void flush() {
+        wal.flush();
+    }
+
+    public WriteAheadLog.DurabilityMode getDurabilityMode() { return wal.getMode(); }
+
+    /**
+     * 当前正在追加的日志段文件
+     */
+    public Path getLogPath() { return wal.getPath(); }
+
+    /**
+     * 附件内容存储; 用它创建的附件只在堆上保留元数据
+     */
+    public AttachmentBlobStore getBlobStore() { return blobStore; }
+
+    // 提供 Getters 以便 "依赖注入" 到服务中
+    public ITransactionRepository getTransactionRepository() { return transactionRepository; }
+    public IDataRepository<Account, String> getAccountRepository() { return accountRepository; }
+    public IDataRepository<Category, String> getCategoryRepository() { return categoryRepository; }
+    public IDataRepository<Budget, String> getBudgetRepository() { return budgetRepository; }
+    public IDataRepository<Attachment, String> getAttachmentRepository() { return attachmentRepository; }
+
+    @Override
+    public void close() throws IOException {
+        wal.close();
+    }
+
+    private static Path blobDirectoryOf(Path backupFile) {
+        return backupFile.resolveSibling(backupFile.getFileName() + ".blobs");
+    }
+
+    private static String logName(long generation) {
+        return String.format("wal-%08d.log", generation);
+    }
+
+    private static String snapshotName(long generation) {
+        return String.format("snapshot-%08d.bin", generation);
+    }
+
+    private static TreeMap<Long, Path> list(Path directory, Pattern pattern) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), file);
+                }
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,27 @@
+package repository;
+
+/**
+ * 当前线程的查询扫描行数: 存储库在 query 中累加实际检查过的行数, 指标装饰器在调用前后各取一次
+ * 以线程为单位计数, 并发查询互不干扰; 计数单元在每个线程上只分配一次
+ */
+public final class ScanCounter {
+
+    private static final ThreadLocal<long[]> ROWS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private ScanCounter() {
+    }
+
+    static void add(long rows) {
+        ROWS.get()[0] += rows;
+    }
+
+    /**
+     * 返回自上次调用以来当前线程上累计的扫描行数, 并清零
+     */
+    public static long take() {
+        long[] rows = ROWS.get();
+        long value = rows[0];
+        rows[0] = 0;
+        return value;
+    }
+}
@@ -0,0 +1,324 @@
+package repository;
+
+import util.ValidationException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * 多租户分片: 按账本/租户ID把数据分到互相独立的分片, 每个分片有自己的存储库、索引与汇总,
+ * 单个租户的查询与报表只涉及自己的分片, 代价与系统中的租户总数无关。
+ *
+ * 分片在第一次使用时由 Loader 加载; 常驻分片数超过上限时, 最久未使用且没有被占用的分片被卸载以控制内存。
+ * 使用分片的代码应通过 withShard 或 acquire (try-with-resources) 占用它, 占用期间分片不会被卸载。
+ * 卸载 (持久化、关闭) 在槽位锁之外进行, 期间再次占用该分片的线程等待卸载结束后重新加载;
+ * 卸载失败的分片放回槽位继续常驻, 不会丢弃尚未落盘的数据。
+ *
+ * @param <S> 分片类型, 例如 PersistentDataRepository 或包装了存储库与服务的对象
+ */
+public class ShardManager<S> implements Closeable {
+
+    /** 分片ID同时用作目录名, 只允许字母、数字、下划线与连字符 */
+    private static final Pattern SHARD_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final Logger LOG = Logger.getLogger(ShardManager.class.getName());
+
+    /**
+     * 分片的加载与卸载
+     */
+    public interface Loader<S> {
+
+        S load(String shardId) throws IOException;
+
+        /**
+         * 卸载前调用, 用于持久化并释放资源; 默认在分片实现 Closeable 时关闭它
+         * 抛出异常表示分片没有安全卸载, 此时分片应仍可使用 (例如持久化失败时不要关闭), 它会继续常驻
+         */
+        default void unload(String shardId, S shard) throws IOException {
+            if (shard instanceof Closeable) {
+                ((Closeable) shard).close();
+            }
+        }
+    }
+
+    private final Loader<S> loader;
+    private final int maxResident;
+    private final Map<String, Slot<S>> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger resident = new AtomicInteger();
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * @param maxResident 常驻分片数上限; 被占用的分片不会被卸载, 因此实际常驻数可能暂时超过上限
+     */
+    public ShardManager(Loader<S> loader, int maxResident) {
+        if (maxResident < 1) {
+            throw new IllegalArgumentException("常驻分片数上限必须为正数");
+        }
+        this.loader = loader;
+        this.maxResident = maxResident;
+    }
+
+    /**
+     * 全部分片常驻内存, 永不卸载 (卸载内存分片会丢失数据)
+     */
+    public static ShardManager<InMemoryDataRepository> inMemory() {
+        return new ShardManager<>(shardId -> new InMemoryDataRepository(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * 每个分片是 root 下以分片ID命名的目录中的 PersistentDataRepository; 卸载时先做检查点再关闭,
+     * 下次加载只需读取快照
+     */
+    public static ShardManager<PersistentDataRepository> persistent(Path root, WriteAheadLog.DurabilityMode mode,
+                                                                    int maxResident) {
+        return new ShardManager<>(new Loader<>() {
+            @Override
+            public PersistentDataRepository load(String shardId) throws IOException {
+                return PersistentDataRepository.open(root.resolve(shardId), mode);
+            }
+
+            @Override
+            public void unload(String shardId, PersistentDataRepository shard) throws IOException {
+                shard.checkpoint(); // 失败时不关闭, 分片继续常驻
+                shard.close();
+            }
+        }, maxResident);
+    }
+
+    /**
+     * 占用分片 (必要时加载), 在 action 执行期间不会被卸载
+     */
+    public <R> R withShard(String shardId, Function<? super S, R> action) {
+        try (Lease<S> lease = acquire(shardId)) {
+            return action.apply(lease.get());
+        }
+    }
+
+    /**
+     * 占用分片直到返回的 Lease 被关闭; 加载失败 (或等待卸载时被中断) 时抛出 UncheckedIOException
+     */
+    public Lease<S> acquire(String shardId) {
+        if (shardId == null || !SHARD_ID.matcher(shardId).matches()) {
+            throw new ValidationException("无效的分片ID: " + shardId);
+        }
+        Slot<S> slot = slots.computeIfAbsent(shardId, Slot::new);
+        S shard;
+        boolean loaded = false;
+        synchronized (slot) {
+            awaitUnloaded(slot);
+            if (slot.shard == null) {
+                try {
+                    slot.shard = loader.load(shardId);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("无法加载分片: " + shardId, e);
+                }
+                loaded = true;
+            }
+            slot.pins++;
+            slot.lastUsed = clock.incrementAndGet();
+            shard = slot.shard;
+        }
+        if (loaded && resident.incrementAndGet() > maxResident) {
+            evictIdle();
+        }
+        return new Lease<>(this, slot, shard);
+    }
+
+    /**
+     * 等待该槽位上进行中的卸载结束; 调用方持有槽位锁
+     */
+    private static void awaitUnloaded(Slot<?> slot) {
+        while (slot.unloading) {
+            try {
+                slot.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("等待分片卸载时被中断: " + slot.id));
+            }
+        }
+    }
+
+    private void release(Slot<S> slot) {
+        synchronized (slot) {
+            slot.pins--;
+            slot.lastUsed = clock.incrementAndGet();
+        }
+        if (resident.get() > maxResident) {
+            evictIdle();
+        }
+    }
+
+    /**
+     * 按最久未使用的顺序卸载空闲分片, 直到常驻数不超过上限或没有可卸载的分片
+     * 每次挑选要遍历全部分片槽位, 代价与租户数成正比, 只在超出上限时发生。
+     * 在 acquire/release 中顺带进行, 卸载失败只记录日志 (分片继续常驻), 不影响触发回收的调用方
+     */
+    private void evictIdle() {
+        while (resident.get() > maxResident) {
+            Slot<S> victim = null;
+            for (Slot<S> slot : slots.values()) {
+                if (slot.isIdle() && (victim == null || slot.lastUsed < victim.lastUsed)) {
+                    victim = slot;
+                }
+            }
+            if (victim == null) {
+                return;
+            }
+            try {
+                if (!unloadIfIdle(victim)) {
+                    return;
+                }
+            } catch (IOException | RuntimeException e) {
+                // 同一个分片下次仍会被选中, 本轮不再重试, 等下一次超出上限时再回收
+                LOG.log(Level.WARNING, "无法卸载分片 " + victim.id + ", 分片继续常驻", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在槽位锁内把空闲分片摘下, 在锁外执行 loader.unload; 分片不空闲时返回 false
+     * 卸载失败时把分片放回槽位 (继续常驻) 并抛出异常
+     */
+    private boolean unloadIfIdle(Slot<S> slot) throws IOException {
+        S shard;
+        synchronized (slot) {
+            if (!slot.isIdle()) {
+                return false;
+            }
+            shard = slot.shard;
+            slot.shard = null;
+            slot.unloading = true;
+            resident.decrementAndGet();
+        }
+        boolean unloaded = false;
+        try {
+            loader.unload(slot.id, shard);
+            unloaded = true;
+        } finally {
+            synchronized (slot) {
+                if (!unloaded) {
+                    slot.shard = shard;
+                    resident.incrementAndGet();
+                }
+                slot.unloading = false;
+                slot.notifyAll();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 立即卸载指定分片; 分片正被占用时返回 false, 卸载失败时抛出 UncheckedIOException (分片继续常驻)
+     */
+    public boolean unload(String shardId) {
+        Slot<S> slot = slots.get(shardId);
+        try {
+            return slot != null && unloadIfIdle(slot);
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法卸载分片: " + shardId, e);
+        }
+    }
+
+    public boolean isResident(String shardId) {
+        Slot<S> slot = slots.get(shardId);
+        if (slot == null) {
+            return false;
+        }
+        synchronized (slot) {
+            return slot.shard != null;
+        }
+    }
+
+    public int residentCount() {
+        return resident.get();
+    }
+
+    /**
+     * 卸载全部空闲分片 (仍被占用的分片保持不动); 卸载失败的分片继续常驻, 第一个失败作为异常抛出, 其余附在其上
+     */
+    @Override
+    public void close() throws IOException {
+        List<IOException> failures = new ArrayList<>();
+        for (Slot<S> slot : slots.values()) {
+            try {
+                unloadIfIdle(slot);
+            } catch (IOException e) {
+                failures.add(e);
+            }
+        }
+        if (!failures.isEmpty()) {
+            IOException error = failures.get(0);
+            for (int i = 1; i < failures.size(); i++) {
+                error.addSuppressed(failures.get(i));
+            }
+            throw error;
+        }
+    }
+
+    /**
+     * 对一个分片的占用; 关闭后分片可以被卸载, 之后不应再使用 get 返回的对象
+     */
+    public static final class Lease<S> implements AutoCloseable {
+        private final ShardManager<S> owner;
+        private final Slot<S> slot;
+        private final S shard;
+        private boolean released;
+
+        private Lease(ShardManager<S> owner, Slot<S> slot, S shard) {
+            this.owner = owner;
+            this.slot = slot;
+            this.shard = shard;
+        }
+
+        public S get() {
+            if (released) {
+                throw new IllegalStateException("分片占用已释放: " + slot.id);
+            }
+            return shard;
+        }
+
+        public String getShardId() {
+            return slot.id;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                owner.release(slot);
+            }
+        }
+    }
+
+    /**
+     * 分片槽位: 分片卸载后槽位保留 (只有几十字节), 再次使用时原地重新加载
+     * shard、pins 与 unloading 由槽位自身的锁保护
+     */
+    private static final class Slot<S> {
+        final String id;
+        S shard;
+        int pins;
+        boolean unloading; // loader.unload 正在锁外执行
+        volatile long lastUsed;
+
+        Slot(String id) {
+            this.id = id;
+        }
+
+        boolean isIdle() {
+            return shard != null && pins == 0;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package repository;
+
+import model.Attachment;
+import model.BlobSource;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 全部五类实体的二进制快照文件
+ * 格式: 文件头 [int 魔数][int 版本][long 创建时间毫秒], 之后是若干数据块, 以种类为 0 的块结束。
+ * 数据块: [byte 实体种类][int 记录数][int 字节数][int CRC32][按 EntityCodec 编码的记录...]
+ * 每个数据块最多 BLOCK_RECORDS 条记录, 可以独立校验和解码, 恢复时各块并行加载。
+ *
+ * 写入读取的是各存储库 findAll() 的弱一致视图, 不会阻塞写入者; 因此快照是 "模糊" 的,
+ * 需要与快照开始之前切换出的日志段一起回放 (日志记录是整实体覆盖, 重复回放是幂等的)。
+ */
+public final class SnapshotFile {
+
+    private static final int MAGIC = 0x424B534E; // "BKSN"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int BLOCK_HEADER_SIZE = 13;
+    private static final byte END_OF_BLOCKS = 0;
+    static final int BLOCK_RECORDS = 16 * 1024;
+    private static final int BLOCK_BYTES = 4 * 1024 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * 把内存存储库写为快照: 先写临时文件并 fsync, 再原子地替换目标文件
+     */
+    public static void write(Path file, InMemoryDataRepository source) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            writeSection(out, PersistentDataRepository.KIND_ACCOUNT, EntityCodecs.ACCOUNT, source.getAccountRepository());
+            writeSection(out, PersistentDataRepository.KIND_CATEGORY, EntityCodecs.CATEGORY, source.getCategoryRepository());
+            writeSection(out, PersistentDataRepository.KIND_BUDGET, EntityCodecs.BUDGET, source.getBudgetRepository());
+            writeSection(out, PersistentDataRepository.KIND_ATTACHMENT, EntityCodecs.ATTACHMENT, source.getAttachmentRepository());
+            writeSection(out, PersistentDataRepository.KIND_TRANSACTION, EntityCodecs.TRANSACTION, source.getTransactionRepository());
+            out.writeByte(END_OF_BLOCKS);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static <T> void writeSection(DataOutputStream out, byte kind, EntityCodec<T> codec,
+                                         IDataRepository<T, String> repo) throws IOException {
+        ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_BYTES);
+        DataOutputStream blockOut = new DataOutputStream(block);
+        int count = 0;
+        for (T entity : repo.findAll()) {
+            codec.write(entity, blockOut);
+            if (++count == BLOCK_RECORDS || block.size() >= BLOCK_BYTES) {
+                writeBlock(out, kind, count, block);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            writeBlock(out, kind, count, block);
+        }
+    }
+
+    private static void writeBlock(DataOutputStream out, byte kind, int count, ByteArrayOutputStream block) throws IOException {
+        byte[] bytes = block.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        out.writeByte(kind);
+        out.writeInt(count);
+        out.writeInt(bytes.length);
+        out.writeInt((int) crc.getValue());
+        out.write(bytes);
+        block.reset();
+    }
+
+    /**
+     * 以内存映射方式读取快照, 各数据块并行解码并批量写入目标存储库 (索引随之并行重建)
+     */
+    public static void load(Path file, InMemoryDataRepository target) throws IOException {
+        load(file, target, null);
+    }
+
+    /**
+     * 同上, 内容位于外部存储的附件绑定到 blobs
+     */
+    public static void load(Path file, InMemoryDataRepository target, BlobSource blobs) throws IOException {
+        EntityCodec<Attachment> attachments = EntityCodecs.attachment(blobs);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Block> blocks = scanBlocks(channel);
+            try {
+                blocks.parallelStream().forEach(block -> block.loadInto(channel, target, attachments));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * 顺序读取块头, 只记录每个块的位置而不读取内容
+     */
+    private static List<Block> scanBlocks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            throw new IOException("快照文件不完整");
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("不是有效的快照文件");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("不支持的快照版本: " + version);
+        }
+
+        List<Block> blocks = new ArrayList<>();
+        long position = HEADER_SIZE;
+        ByteBuffer kindByte = ByteBuffer.allocate(1);
+        ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE - 1);
+        while (true) {
+            if (position >= size) {
+                throw new IOException("快照文件缺少结束标记");
+            }
+            kindByte.clear();
+            readFully(channel, kindByte, position);
+            byte kind = kindByte.get(0);
+            if (kind == END_OF_BLOCKS) {
+                return blocks;
+            }
+            if (position + BLOCK_HEADER_SIZE > size) {
+                throw new IOException("快照数据块头不完整");
+            }
+            blockHeader.clear();
+            readFully(channel, blockHeader, position + 1);
+            blockHeader.flip();
+            int count = blockHeader.getInt();
+            int length = blockHeader.getInt();
+            int crc = blockHeader.getInt();
+            long dataStart = position + BLOCK_HEADER_SIZE;
+            if (length < 0 || dataStart + length > size) {
+                throw new IOException("快照数据块不完整");
+            }
+            blocks.add(new Block(kind, count, dataStart, length, crc));
+            position = dataStart + length;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("快照文件意外结束");
+            }
+            position += read;
+        }
+    }
+
+    private static final class Block {
+        final byte kind;
+        final int count;
+        final long offset;
+        final int length;
+        final int crc;
+
+        Block(byte kind, int count, long offset, int length, int crc) {
+            this.kind = kind;
+            this.count = count;
+            this.offset = offset;
+            this.length = length;
+            this.crc = crc;
+        }
+
+        void loadInto(FileChannel channel, InMemoryDataRepository target, EntityCodec<Attachment> attachments) {
+            try {
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                CRC32 checksum = new CRC32();
+                checksum.update(data.duplicate());
+                if ((int) checksum.getValue() != crc) {
+                    throw new IOException("快照数据块校验失败, 偏移量 " + offset);
+                }
+                DataInputStream in = new DataInputStream(new ByteBufferInputStream(data));
+                switch (kind) {
+                    case PersistentDataRepository.KIND_TRANSACTION:
+                        target.getTransactionRepository().saveAll(decode(in, EntityCodecs.TRANSACTION));
+                        break;
+                    case PersistentDataRepository.KIND_ACCOUNT:
+                        target.getAccountRepository().saveAll(decode(in, EntityCodecs.ACCOUNT));
+                        break;
+                    case PersistentDataRepository.KIND_CATEGORY:
+                        target.getCategoryRepository().saveAll(decode(in, EntityCodecs.CATEGORY));
+                        break;
+                    case PersistentDataRepository.KIND_BUDGET:
+                        target.getBudgetRepository().saveAll(decode(in, EntityCodecs.BUDGET));
+                        break;
+                    case PersistentDataRepository.KIND_ATTACHMENT:
+                        target.getAttachmentRepository().saveAll(decode(in, attachments));
+                        break;
+                    default:
+                        throw new IOException("未知的实体种类: " + kind);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private <T> List<T> decode(DataInputStream in, EntityCodec<T> codec) throws IOException {
+            List<T> entities = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entities.add(codec.read(in));
+            }
+            return entities;
+        }
+    }
+
+    /**
+     * 以 InputStream 形式读取 ByteBuffer, 供 DataInputStream 解码映射的数据块
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, n);
+            return n;
+        }
+    }
+}
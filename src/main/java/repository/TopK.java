@@ -0,0 +1,38 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 前 K 项选择: 用大小为 K 的堆 (堆顶为当前第 K 名) 过一遍输入, 代价 O(N log K), 内存 O(K), 不做全量排序
+ */
+final class TopK {
+
+    private TopK() {
+    }
+
+    /**
+     * 按 order 排序最靠前的至多 k 项, 结果按 order 升序
+     */
+    static <T> List<T> select(Iterator<? extends T> items, Comparator<? super T> order, int k) {
+        PriorityQueue<T> heap = new PriorityQueue<>(k, order.reversed());
+        long scanned = 0;
+        while (items.hasNext()) {
+            T item = items.next();
+            scanned++;
+            if (heap.size() < k) {
+                heap.add(item);
+            } else if (order.compare(item, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+        ScanCounter.add(scanned);
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+}
@@ -0,0 +1,24 @@
+package repository;
+
+import model.Transaction;
+
+/**
+ * 交易存储库的变更监听器
+ * 用于维护依附于交易数据的派生结构 (如月度汇总), 使其随 save/delete 增量更新
+ * 回调在写入完成后于写线程上同步执行, 实现应当轻量且线程安全
+ */
+public interface TransactionChangeListener {
+
+    /**
+     * 交易被保存后回调
+     *
+     * @param previous 被覆盖的旧版本, 新增时为 null
+     * @param current  新保存的交易
+     */
+    void onSaved(Transaction previous, Transaction current);
+
+    /**
+     * 交易被删除后回调
+     */
+    void onDeleted(Transaction removed);
+}
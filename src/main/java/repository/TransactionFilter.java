@@ -0,0 +1,130 @@
+package repository;
+
+import model.Transaction;
+import util.TransactionType;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Objects;
+
+/**
+ * 交易组合筛选条件 (对应 findTransactions(filters) 的结构化形式)
+ * 与不透明的 Predicate 不同, 存储库可以据此选择最具选择性的索引, 再用其余条件求交集。
+ * 未设置的条件 (null) 表示不限制; 时间范围为闭区间 [start, end]。
+ * 不可变对象, 每个 with 方法都返回新的实例。
+ */
+public final class TransactionFilter {
+
+    private static final TransactionFilter ALL = new TransactionFilter(null, null, null, null, null);
+
+    private final String categoryId;
+    private final String accountId;
+    private final TransactionType type;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    // 时间范围换算为与 Transaction 相同的 (UTC epoch 秒, 纳秒), matches 逐条比较时不创建 LocalDateTime
+    private final long startSecond;
+    private final int startNano;
+    private final long endSecond;
+    private final int endNano;
+
+    private TransactionFilter(String categoryId, String accountId, TransactionType type,
+                              LocalDateTime start, LocalDateTime end) {
+        this.categoryId = categoryId;
+        this.accountId = accountId;
+        this.type = type;
+        this.start = start;
+        this.end = end;
+        this.startSecond = start != null ? start.toEpochSecond(ZoneOffset.UTC) : 0;
+        this.startNano = start != null ? start.getNano() : 0;
+        this.endSecond = end != null ? end.toEpochSecond(ZoneOffset.UTC) : 0;
+        this.endNano = end != null ? end.getNano() : 0;
+    }
+
+    /**
+     * 不带任何条件的筛选 (匹配全部交易)
+     */
+    public static TransactionFilter all() {
+        return ALL;
+    }
+
+    public TransactionFilter withCategory(String categoryId) {
+        return new TransactionFilter(blankToNull(categoryId), accountId, type, start, end);
+    }
+
+    public TransactionFilter withAccount(String accountId) {
+        return new TransactionFilter(categoryId, blankToNull(accountId), type, start, end);
+    }
+
+    public TransactionFilter withType(TransactionType type) {
+        return new TransactionFilter(categoryId, accountId, type, start, end);
+    }
+
+    public TransactionFilter between(LocalDateTime start, LocalDateTime end) {
+        return new TransactionFilter(categoryId, accountId, type, start, end);
+    }
+
+    // Getters...
+    public String getCategoryId() { return categoryId; }
+    public String getAccountId() { return accountId; }
+    public TransactionType getType() { return type; }
+    public LocalDateTime getStart() { return start; }
+    public LocalDateTime getEnd() { return end; }
+
+    public boolean hasDateRange() {
+        return start != null || end != null;
+    }
+
+    /**
+     * 时间范围为空集 (起点晚于终点)
+     */
+    public boolean isEmptyRange() {
+        return start != null && end != null && start.isAfter(end);
+    }
+
+    /**
+     * 逐条判断交易是否满足全部条件, 用于索引命中后的剩余条件校验及无索引的实现
+     */
+    public boolean matches(Transaction tx) {
+        if (categoryId != null && !categoryId.equals(tx.getCategoryId())) return false;
+        if (accountId != null && !accountId.equals(tx.getAccountId())) return false;
+        if (type != null && type != tx.getType()) return false;
+        if (hasDateRange()) {
+            if (!tx.hasDateTime()) return false;
+            if (start != null && compareTime(tx, startSecond, startNano) < 0) return false;
+            if (end != null && compareTime(tx, endSecond, endNano) > 0) return false;
+        }
+        return true;
+    }
+
+    private static int compareTime(Transaction tx, long second, int nano) {
+        int c = Long.compare(tx.getEpochSecond(), second);
+        return c != 0 ? c : Integer.compare(tx.getNano(), nano);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TransactionFilter)) return false;
+        TransactionFilter that = (TransactionFilter) o;
+        return Objects.equals(categoryId, that.categoryId)
+                && Objects.equals(accountId, that.accountId)
+                && type == that.type
+                && Objects.equals(start, that.start)
+                && Objects.equals(end, that.end);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(categoryId, accountId, type, start, end);
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionFilter[categoryId='" + categoryId + "', accountId='" + accountId +
+                "', type=" + type + ", start=" + start + ", end=" + end + ']';
+    }
+}
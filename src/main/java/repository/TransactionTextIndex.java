@@ -0,0 +1,307 @@
+package repository;
+
+import model.Transaction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 交易备注与标签的倒排索引 (词项 -> 交易ID集合)
+ * 作为 TransactionChangeListener 随交易的新增、覆盖与删除增量更新, 搜索只访问命中词项的交易。
+ *
+ * 分词规则 (建索引与查询相同, 不区分大小写):
+ *  - 连续的字母/数字 (非汉字) 为一个词, 如 "Starbucks"、"2024"
+ *  - 汉字没有分隔符, 每个字与相邻两个字各为一个词项 (单字 + 二元组), 多字的查询词要求其全部二元组都出现
+ *  - 每个标签另外以 "#标签" 整体作为词项, 查询 "#外卖" 只匹配带该标签的交易
+ *
+ * 查询语法: 以空白分隔的多个词, 全部满足才命中 (AND); 以 * 结尾的词按前缀匹配 (如 "star*"、"#工作*")
+ */
+public class TransactionTextIndex implements TransactionChangeListener {
+
+    private static final char TAG_MARK = '#';
+    private static final char PREFIX_MARK = '*';
+
+    private final ITransactionRepository repository;
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+    // 词典, 只用于前缀查找; 词项的倒排表清空后不从词典删除, 查找时跳过即可
+    private final NavigableSet<String> terms = new ConcurrentSkipListSet<>();
+
+    private TransactionTextIndex(ITransactionRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * 创建索引并挂到存储库上: 先注册监听再以现有数据并行初始化。
+     * 初始化期间并发写入造成的过期词项不影响结果 (搜索对候选交易做复核)
+     */
+    public static TransactionTextIndex attachTo(ITransactionRepository repository) {
+        TransactionTextIndex index = new TransactionTextIndex(repository);
+        repository.addChangeListener(index);
+        repository.query(TransactionFilter.all()).parallelStream().forEach(index::add);
+        return index;
+    }
+
+    public void detach() {
+        repository.removeChangeListener(this);
+    }
+
+    @Override
+    public void onSaved(Transaction previous, Transaction current) {
+        if (previous != null) {
+            remove(previous);
+        }
+        add(current);
+    }
+
+    @Override
+    public void onDeleted(Transaction removed) {
+        remove(removed);
+    }
+
+    private void add(Transaction tx) {
+        String id = tx.getTransactionId();
+        for (String term : termsOf(tx)) {
+            postings.compute(term, (t, ids) -> {
+                Set<String> target = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                target.add(id);
+                return target;
+            });
+            terms.add(term);
+        }
+    }
+
+    private void remove(Transaction tx) {
+        String id = tx.getTransactionId();
+        for (String term : termsOf(tx)) {
+            postings.computeIfPresent(term, (t, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * 搜索备注与标签满足 query 且满足 filter 的交易, 结果按交易时间升序排列
+     * query 为空时等价于 repository.query(filter)
+     */
+    public List<Transaction> search(String query, TransactionFilter filter) {
+        List<QueryTerm> queryTerms = parse(query);
+        if (queryTerms.isEmpty()) {
+            return repository.query(filter);
+        }
+        if (filter.isEmptyRange()) {
+            return List.of();
+        }
+        List<Set<String>> lists = new ArrayList<>();
+        for (QueryTerm term : queryTerms) {
+            Set<String> ids = term.prefix ? unionOfPrefix(term.text) : postings.getOrDefault(term.text, Set.of());
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            lists.add(ids);
+        }
+        // 从最短的倒排表出发求交集, 再逐条复核
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<String> smallest = lists.get(0);
+        List<Set<String>> others = lists.subList(1, lists.size());
+        List<Transaction> result = new ArrayList<>();
+        for (String id : smallest) {
+            if (!containedInAll(id, others)) {
+                continue;
+            }
+            Optional<Transaction> found = repository.findById(id);
+            if (found.isPresent() && filter.matches(found.get()) && matchesAll(found.get(), queryTerms)) {
+                result.add(found.get());
+            }
+        }
+        ScanCounter.add(smallest.size());
+        result.sort(InMemoryTransactionRepository.BY_TIME);
+        return result;
+    }
+
+    /**
+     * 索引中的词项个数 (含倒排表已清空、等待复用的词项)
+     */
+    public int termCount() {
+        return terms.size();
+    }
+
+    private Set<String> unionOfPrefix(String prefix) {
+        Set<String> union = new HashSet<>();
+        for (String term : terms.tailSet(prefix)) {
+            if (!term.startsWith(prefix)) {
+                break;
+            }
+            union.addAll(postings.getOrDefault(term, Set.of()));
+        }
+        return union;
+    }
+
+    private static boolean containedInAll(String id, List<Set<String>> sets) {
+        for (Set<String> set : sets) {
+            if (!set.contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 复核: 交易当前的备注与标签仍包含每个查询词 (排除并发修改留下的过期词项)
+     */
+    private static boolean matchesAll(Transaction tx, List<QueryTerm> queryTerms) {
+        Set<String> current = termsOf(tx);
+        for (QueryTerm term : queryTerms) {
+            if (term.prefix ? !hasPrefix(current, term.text) : !current.contains(term.text)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasPrefix(Set<String> terms, String prefix) {
+        for (String term : terms) {
+            if (term.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------- 分词 ----------
+
+    static Set<String> termsOf(Transaction tx) {
+        Set<String> result = new HashSet<>();
+        tokenize(tx.getMemo(), result);
+        List<String> tags = tx.getTags();
+        if (tags != null) {
+            for (String tag : tags) {
+                if (tag != null && !tag.isBlank()) {
+                    result.add(TAG_MARK + tag.strip().toLowerCase(Locale.ROOT));
+                    tokenize(tag, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 把文本切分为词项加入 out: 非汉字的字母数字串为一个词, 汉字取单字与相邻二元组
+     */
+    static void tokenize(String text, Set<String> out) {
+        if (text == null) {
+            return;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int wordStart = -1;
+        int previousHan = -1;
+        for (int i = 0; i < lower.length(); ) {
+            int codePoint = lower.codePointAt(i);
+            int next = i + Character.charCount(codePoint);
+            boolean han = Character.isIdeographic(codePoint);
+            if (wordStart >= 0 && (han || !Character.isLetterOrDigit(codePoint))) {
+                out.add(lower.substring(wordStart, i));
+                wordStart = -1;
+            }
+            if (han) {
+                out.add(lower.substring(i, next));
+                if (previousHan >= 0) {
+                    out.add(lower.substring(previousHan, next));
+                }
+                previousHan = i;
+            } else {
+                previousHan = -1;
+                if (wordStart < 0 && Character.isLetterOrDigit(codePoint)) {
+                    wordStart = i;
+                }
+            }
+            i = next;
+        }
+        if (wordStart >= 0) {
+            out.add(lower.substring(wordStart));
+        }
+    }
+
+    /**
+     * 查询中必须出现的一个索引词项 (多字汉语词被拆成多个二元组词项)
+     */
+    private static final class QueryTerm {
+        final String text;
+        final boolean prefix;
+
+        QueryTerm(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+    }
+
+    private static List<QueryTerm> parse(String query) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        List<QueryTerm> result = new ArrayList<>();
+        for (String word : query.strip().split("\\s+")) {
+            boolean prefix = word.length() > 1 && word.charAt(word.length() - 1) == PREFIX_MARK;
+            if (prefix) {
+                word = word.substring(0, word.length() - 1);
+            }
+            if (word.length() > 1 && word.charAt(0) == TAG_MARK) {
+                result.add(new QueryTerm(word.toLowerCase(Locale.ROOT), prefix));
+                continue;
+            }
+            List<String> parts = queryTermsOf(word);
+            if (parts.isEmpty()) {
+                continue;
+            }
+            // 前缀只作用于最后一个词项, 其余词项按精确匹配
+            for (int i = 0; i < parts.size() - 1; i++) {
+                result.add(new QueryTerm(parts.get(i), false));
+            }
+            result.add(new QueryTerm(parts.get(parts.size() - 1), prefix));
+        }
+        return result;
+    }
+
+    /**
+     * 查询词的索引词项: 字母数字串原样, 单个汉字为单字, 连续多个汉字为其全部二元组
+     */
+    private static List<String> queryTermsOf(String word) {
+        String lower = word.toLowerCase(Locale.ROOT);
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        while (start < lower.length()) {
+            int codePoint = lower.codePointAt(start);
+            int end = start + Character.charCount(codePoint);
+            if (Character.isIdeographic(codePoint)) {
+                List<Integer> bounds = new ArrayList<>(List.of(start, end));
+                while (end < lower.length() && Character.isIdeographic(lower.codePointAt(end))) {
+                    end += Character.charCount(lower.codePointAt(end));
+                    bounds.add(end);
+                }
+                if (bounds.size() == 2) {
+                    result.add(lower.substring(start, end));
+                }
+                for (int i = 2; i < bounds.size(); i++) {
+                    result.add(lower.substring(bounds.get(i - 2), bounds.get(i)));
+                }
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                while (end < lower.length() && Character.isLetterOrDigit(lower.codePointAt(end))
+                        && !Character.isIdeographic(lower.codePointAt(end))) {
+                    end += Character.charCount(lower.codePointAt(end));
+                }
+                result.add(lower.substring(start, end));
+            }
+            start = end;
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
@@ -0,0 +1,371 @@
+package repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 只追加的二进制预写日志 (Write-Ahead Log)
+ * 文件格式: 8 字节文件头 (魔数 + 版本), 之后是若干帧 [int 长度][int CRC32][负载]。
+ * 追加先进入内存缓冲区并分配递增的序号, 再按持久化模式写入 FileChannel 并 fsync:
+ *  - PER_WRITE: 每条记录单独写入并 fsync 后才返回
+ *  - BATCHED:   组提交, 并发的写入者共享一次 fsync, 各自等到自己的记录落盘后返回
+ *  - ASYNC:     后台线程定期写入并 fsync, 调用方立即返回 (崩溃时可能丢失最近一个周期的数据)
+ * 打开时校验每一帧, 遇到不完整或 CRC 不符的尾部 (崩溃时写了一半) 会将其截断。
+ * rotate 把之后的追加切换到新的日志段文件, 配合快照实现日志压缩。
+ */
+public class WriteAheadLog implements Closeable {
+
+    /**
+     * 持久化模式
+     */
+    public enum DurabilityMode {
+        PER_WRITE,
+        BATCHED,
+        ASYNC
+    }
+
+    private static final int MAGIC = 0x424B574C; // "BKWL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final long DEFAULT_ASYNC_INTERVAL_MILLIS = 10;
+
+    private volatile Path path;          // 当前日志段, rotate 时替换 (受 lock 保护)
+    private volatile FileChannel channel;
+    private final DurabilityMode mode;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private byte[] pending = new byte[64 * 1024];
+    private int pendingLength;
+    private byte[] spare = new byte[64 * 1024];
+    private long appendedSeq;   // 已进入缓冲区的最大序号
+    private long durableSeq;    // 已 fsync 的最大序号
+    private boolean flushing;
+    private boolean closed;
+    private IOException failure;
+
+    private final Thread asyncFlusher;
+
+    private WriteAheadLog(Path path, FileChannel channel, DurabilityMode mode, long asyncIntervalMillis) {
+        this.path = path;
+        this.channel = channel;
+        this.mode = mode;
+        if (mode == DurabilityMode.ASYNC) {
+            asyncFlusher = new Thread(() -> runAsyncFlusher(asyncIntervalMillis), "wal-flusher-" + path.getFileName());
+            asyncFlusher.setDaemon(true);
+            asyncFlusher.start();
+        } else {
+            asyncFlusher = null;
+        }
+    }
+
+    /**
+     * 打开 (必要时创建) 日志文件, 先把已有的每条记录交给 replay 回放, 然后定位到末尾等待追加
+     */
+    public static WriteAheadLog open(Path path, DurabilityMode mode, Consumer<ByteBuffer> replay) throws IOException {
+        return open(path, mode, DEFAULT_ASYNC_INTERVAL_MILLIS, replay);
+    }
+
+    public static WriteAheadLog open(Path path, DurabilityMode mode, long asyncIntervalMillis,
+                                     Consumer<ByteBuffer> replay) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end = recover(channel, replay, true);
+            channel.position(end);
+            return new WriteAheadLog(path, channel, mode, asyncIntervalMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 只读地回放一个已切换出的日志段 (不截断, 文件不存在或为空时不回放任何记录)
+     */
+    public static void replay(Path path, Consumer<ByteBuffer> replay) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() >= HEADER_SIZE) {
+                recover(channel, replay, false);
+            }
+        }
+    }
+
+    /**
+     * 校验文件头并逐帧回放, 返回最后一个完整帧之后的位置; truncateTail 时截断之后的残缺数据
+     */
+    private static long recover(FileChannel channel, Consumer<ByteBuffer> replay, boolean truncateTail) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            writeHeader(channel);
+            return HEADER_SIZE;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("不是有效的预写日志文件");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("不支持的预写日志版本: " + version);
+        }
+
+        long position = HEADER_SIZE;
+        long size = channel.size();
+        ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        while (position + FRAME_HEADER_SIZE <= size) {
+            frameHeader.clear();
+            readFully(channel, frameHeader, position);
+            frameHeader.flip();
+            int length = frameHeader.getInt();
+            int checksum = frameHeader.getInt();
+            if (length < 0 || position + FRAME_HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + FRAME_HEADER_SIZE);
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            payload.flip();
+            replay.accept(payload.asReadOnlyBuffer());
+            position += FRAME_HEADER_SIZE + length;
+        }
+        if (truncateTail && position < size) {
+            channel.truncate(position);
+            channel.force(true);
+        }
+        return position;
+    }
+
+    public Path getPath() { return path; }
+    public DurabilityMode getMode() { return mode; }
+
+    /**
+     * 追加一条记录, 返回其序号。
+     * PER_WRITE 模式下返回时记录已落盘; 其他模式需要再调用 sync(序号) (ASYNC 下 sync 不等待)。
+     */
+    public long append(byte[] payload) {
+        lock.lock();
+        try {
+            ensureOpen();
+            int frameLength = FRAME_HEADER_SIZE + payload.length;
+            if (pendingLength + frameLength > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + frameLength));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer.wrap(pending, pendingLength, FRAME_HEADER_SIZE)
+                    .putInt(payload.length)
+                    .putInt((int) crc.getValue());
+            System.arraycopy(payload, 0, pending, pendingLength + FRAME_HEADER_SIZE, payload.length);
+            pendingLength += frameLength;
+            long seq = ++appendedSeq;
+            if (mode == DurabilityMode.PER_WRITE) {
+                awaitDurable(seq);
+            }
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待序号 seq 及之前的记录落盘 (ASYNC 模式下直接返回)
+     */
+    public void sync(long seq) {
+        if (mode == DurabilityMode.ASYNC) {
+            return;
+        }
+        lock.lock();
+        try {
+            awaitDurable(seq);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 立即把缓冲区中的全部记录写入并落盘 (任何模式下都会等待)
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            awaitDurable(appendedSeq);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 组提交: 第一个发现需要刷盘的线程成为 leader, 在锁外写入当前缓冲区的全部记录并 fsync;
+     * 其余线程等待, leader 完成后被唤醒。leader 写盘期间新到达的记录由下一个 leader 一并提交。
+     * 调用时必须持有 lock。
+     */
+    private void awaitDurable(long seq) {
+        while (durableSeq < seq) {
+            if (failure != null) {
+                throw new UncheckedIOException("预写日志写入失败", failure);
+            }
+            if (flushing) {
+                flushed.awaitUninterruptibly();
+                continue;
+            }
+            flushing = true;
+            byte[] batch = pending;
+            int batchLength = pendingLength;
+            long target = appendedSeq;
+            FileChannel segment = channel;
+            pending = spare;
+            pendingLength = 0;
+
+            IOException error = null;
+            lock.unlock();
+            try {
+                writeFully(segment, ByteBuffer.wrap(batch, 0, batchLength), -1);
+                segment.force(false);
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                lock.lock();
+            }
+            spare = batch;
+            flushing = false;
+            if (error != null) {
+                failure = error;
+            } else {
+                durableSeq = target;
+            }
+            flushed.signalAll();
+        }
+        if (failure != null && durableSeq < seq) {
+            throw new UncheckedIOException("预写日志写入失败", failure);
+        }
+    }
+
+    private void runAsyncFlusher(long intervalMillis) {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                flushed.await(intervalMillis, TimeUnit.MILLISECONDS);
+                if (appendedSeq > durableSeq && failure == null) {
+                    awaitDurable(appendedSeq);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (UncheckedIOException e) {
+                // 失败已记录在 failure 中, 之后的 flush/close 会抛出
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("预写日志已关闭: " + path);
+        }
+    }
+
+    /**
+     * 切换日志段: 先把已追加的记录全部写入当前段并落盘, 之后的追加写入新文件 newPath。
+     * 返回后旧段不再被写入, 调用方可以在其内容被快照覆盖后删除它。
+     * newPath 已存在且非空时拒绝切换 (抛出 IOException), 避免截断其中的记录。
+     */
+    public void rotate(Path newPath) throws IOException {
+        lock.lock();
+        try {
+            ensureOpen();
+            if (newPath.equals(path) || (Files.exists(newPath) && Files.size(newPath) > 0)) {
+                throw new IOException("目标日志段已存在且非空, 拒绝覆盖: " + newPath);
+            }
+            awaitDurable(appendedSeq);
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            FileChannel next = FileChannel.open(newPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                writeHeader(next);
+                next.position(HEADER_SIZE);
+            } catch (IOException e) {
+                next.close();
+                throw e;
+            }
+            FileChannel previous = channel;
+            channel = next;
+            path = newPath;
+            previous.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            try {
+                awaitDurable(appendedSeq);
+            } finally {
+                closed = true;
+                flushed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+            if (asyncFlusher != null) {
+                asyncFlusher.interrupt();
+            }
+            channel.close();
+        }
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+        channel.truncate(0);
+        writeFully(channel, header, 0);
+        channel.force(true);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (position < 0) {
+                channel.write(buffer);
+            } else {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("预写日志意外结束");
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package service;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 账户分段锁 (AccountLockManager)
+ * 按 accountId 的哈希把账户映射到固定数量的锁上, 保护 "读取账户 -> 更新余额 -> 保存" 这一组合操作。
+ * 涉及多个账户时 (转账/批量录入) 按锁的下标升序加锁, 不会产生死锁;
+ * 互不重叠的账户大概率落在不同的锁上, 吞吐随核数扩展。
+ * 同一组存储库上的所有服务应共享同一个实例。
+ */
+public class AccountLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public AccountLockManager() {
+        this(Runtime.getRuntime().availableProcessors() * 16);
+    }
+
+    /**
+     * @param minStripes 最少的锁数量, 实际会向上取整为 2 的幂
+     */
+    public AccountLockManager(int minStripes) {
+        int size = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    int stripeOf(String accountId) {
+        int h = accountId.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * 持有单个账户的锁执行 action
+     */
+    public <T> T withLock(String accountId, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(accountId)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 持有多个账户的锁执行 action, 按锁下标升序加锁以避免死锁
+     */
+    public <T> T withLocks(Collection<String> accountIds, Supplier<T> action) {
+        int[] indexes = accountIds.stream()
+                .mapToInt(this::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package service;
+
+import model.Budget;
+import util.TransactionType;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 报表服务的异步门面: 报表在 executor 上计算, 请求线程不会在整个计算期间被占用
+ * 同一个 ReportingService 可以被多个请求并发调用 (月度汇总是线程安全的)
+ */
+public class AsyncReportingService {
+
+    private final ReportingService delegate;
+    private final Executor executor;
+
+    public AsyncReportingService(ReportingService delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Map<String, BigDecimal>> getMonthlyOverview(YearMonth month) {
+        return ServiceExecutors.supply(executor, () -> delegate.getMonthlyOverview(month));
+    }
+
+    public CompletableFuture<Map<String, BigDecimal>> getCategoryBreakdown(YearMonth month) {
+        return ServiceExecutors.supply(executor, () -> delegate.getCategoryBreakdown(month));
+    }
+
+    public CompletableFuture<Map<YearMonth, BigDecimal>> getTrendAnalysis(TransactionType type, int months) {
+        return ServiceExecutors.supply(executor, () -> delegate.getTrendAnalysis(type, months));
+    }
+
+    public CompletableFuture<Map<YearMonth, BigDecimal>> getTrendAnalysis(TransactionType type, YearMonth endMonth,
+                                                                          int months) {
+        return ServiceExecutors.supply(executor, () -> delegate.getTrendAnalysis(type, endMonth, months));
+    }
+
+    public CompletableFuture<List<Budget>> checkBudgetAlerts(YearMonth month) {
+        return ServiceExecutors.supply(executor, () -> delegate.checkBudgetAlerts(month));
+    }
+
+    public ReportingService getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,69 @@
+package service;
+
+import model.Transaction;
+import repository.Page;
+import repository.PageRequest;
+import repository.TransactionFilter;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 交易服务的异步门面: 每个方法在 executor 上执行对应的同步方法, 调用线程立即返回 CompletableFuture
+ * 校验失败、数据不存在、余额不足等异常使 Future 异常完成 (join 时包装为 CompletionException)
+ * executor 的生命周期由调用方管理, 见 ServiceExecutors
+ */
+public class AsyncTransactionService {
+
+    private final TransactionService delegate;
+    private final Executor executor;
+
+    public AsyncTransactionService(TransactionService delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Transaction> recordTransaction(Transaction data) {
+        return ServiceExecutors.supply(executor, () -> delegate.recordTransaction(data));
+    }
+
+    public CompletableFuture<List<Transaction>> recordTransactions(List<Transaction> batch) {
+        return ServiceExecutors.supply(executor, () -> delegate.recordTransactions(batch));
+    }
+
+    public CompletableFuture<Void> transferFunds(String fromAccountId, String toAccountId, BigDecimal amount) {
+        return ServiceExecutors.supply(executor, () -> {
+            delegate.transferFunds(fromAccountId, toAccountId, amount);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Transaction> transferFunds(String fromAccountId, String toAccountId, BigDecimal amount,
+                                                        LocalDateTime dateTime, String memo) {
+        return ServiceExecutors.supply(executor,
+                () -> delegate.transferFunds(fromAccountId, toAccountId, amount, dateTime, memo));
+    }
+
+    public CompletableFuture<List<Transaction>> findTransactions(String categoryId, LocalDateTime start,
+                                                                 LocalDateTime end) {
+        return ServiceExecutors.supply(executor, () -> delegate.findTransactions(categoryId, start, end));
+    }
+
+    public CompletableFuture<Page> findTransactions(TransactionFilter filter, PageRequest page) {
+        return ServiceExecutors.supply(executor, () -> delegate.findTransactions(filter, page));
+    }
+
+    public CompletableFuture<List<Transaction>> searchTransactions(String query, TransactionFilter filter) {
+        return ServiceExecutors.supply(executor, () -> delegate.searchTransactions(query, filter));
+    }
+
+    public CompletableFuture<BigDecimal> getBalanceAt(String accountId, LocalDateTime dateTime) {
+        return ServiceExecutors.supply(executor, () -> delegate.getBalanceAt(accountId, dateTime));
+    }
+
+    public TransactionService getDelegate() {
+        return delegate;
+    }
+}
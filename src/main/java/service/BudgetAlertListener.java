@@ -0,0 +1,20 @@
+package service;
+
+import model.Budget;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+/**
+ * 预算超支回调 (见 BudgetMonitor)
+ * 在写入交易的线程上同步执行, 实现应当轻量; 耗时的通知 (邮件、推送等) 应转交给其他线程
+ */
+@FunctionalInterface
+public interface BudgetAlertListener {
+
+    /**
+     * 某预算在某月的支出刚刚超过限额 (Budget.checkOverspend 由 false 变为 true)
+     *
+     * @param spent 超支时该预算覆盖范围内的当月支出合计 (类别预算为该类别, 总预算为全部支出)
+     */
+    void onBudgetExceeded(Budget budget, YearMonth month, BigDecimal spent);
+}
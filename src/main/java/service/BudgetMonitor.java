@@ -0,0 +1,264 @@
+package service;
+
+import model.Budget;
+import model.Money;
+import model.Transaction;
+import repository.IDataRepository;
+import repository.ITransactionRepository;
+import repository.MonthlyRollupStore;
+import repository.TransactionChangeListener;
+import repository.TransactionFilter;
+import util.TransactionType;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 事件驱动的预算监控
+ * 作为 TransactionChangeListener 挂在交易存储库上, 按 (月份, 类别) 与月份维护支出合计 ("分"),
+ * 每笔支出的新增、修改或删除只更新两个计数器并检查与该类别相关的预算及总预算, 代价与账本大小无关。
+ * 某预算在某月的支出第一次超过限额时回调 BudgetAlertListener; 支出回落到限额以内 (如删除交易) 后再次超过会再次回调。
+ * 计数器的更新不加锁; 超支状态的判断在该月的锁内重新读取计数器的当前值, 因此并发写入与 refreshBudgets
+ * 结束后, 超支集合总与最终的合计一致。
+ *
+ * 预算的增删改不经过交易存储库, 修改预算后应调用 refreshBudgets()
+ */
+public class BudgetMonitor implements TransactionChangeListener {
+
+    private static final Logger LOG = Logger.getLogger(BudgetMonitor.class.getName());
+
+    private final ITransactionRepository transactionRepo; // attachTo 挂上的存储库, 用于 detach
+    private final IDataRepository<Budget, String> budgetRepo;
+    private final Map<YearMonth, MonthSpending> months = new ConcurrentHashMap<>();
+    private final List<BudgetAlertListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Budgets budgets = Budgets.EMPTY;
+
+    private BudgetMonitor(ITransactionRepository transactionRepo, IDataRepository<Budget, String> budgetRepo) {
+        this.transactionRepo = transactionRepo;
+        this.budgetRepo = budgetRepo;
+    }
+
+    /**
+     * 创建监控并挂到存储库上: 先注册监听, 再以现有交易初始化各月支出 (初始化时已超支的预算不回调)
+     * 与 MonthlyRollupStore.attachTo 相同, 应在写入开始之前调用
+     */
+    public static BudgetMonitor attachTo(ITransactionRepository transactionRepo,
+                                         IDataRepository<Budget, String> budgetRepo) {
+        BudgetMonitor monitor = new BudgetMonitor(transactionRepo, budgetRepo);
+        transactionRepo.addChangeListener(monitor);
+        transactionRepo.aggregateByMonth(TransactionFilter.all().withType(TransactionType.EXPENSE))
+                .forEach((month, entries) -> {
+                    MonthSpending spending = monitor.spending(month);
+                    for (Map.Entry<MonthlyRollupStore.Key, MonthlyRollupStore.Totals> entry : entries.entrySet()) {
+                        long cents = entry.getValue().getCents();
+                        spending.category(entry.getKey().getCategoryId()).addAndGet(cents);
+                        spending.total.addAndGet(cents);
+                    }
+                });
+        monitor.refreshBudgets();
+        return monitor;
+    }
+
+    /**
+     * 从存储库移除监听, 之后支出合计不再随写入更新, 也不再回调
+     */
+    public void detach() {
+        transactionRepo.removeChangeListener(this);
+    }
+
+    public void addAlertListener(BudgetAlertListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeAlertListener(BudgetAlertListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 从预算存储库重新加载预算, 并重新计算各月的超支状态 (不回调)
+     */
+    public void refreshBudgets() {
+        Budgets loaded = new Budgets(budgetRepo.findAll());
+        budgets = loaded;
+        for (MonthSpending spending : months.values()) {
+            spending.lock.lock();
+            try {
+                spending.exceeded.clear();
+                for (Tracked tracked : loaded.all) {
+                    if (spending.spent(tracked) > tracked.limitCents) {
+                        spending.exceeded.add(tracked.budget.getBudgetId());
+                    }
+                }
+            } finally {
+                spending.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 某预算在某月已花费的金额
+     */
+    public BigDecimal getSpent(Budget budget, YearMonth month) {
+        MonthSpending spending = months.get(month);
+        long cents = spending == null ? 0 : spending.spent(new Tracked(budget));
+        return Money.toBigDecimal(cents);
+    }
+
+    /**
+     * 某月当前处于超支状态的预算
+     */
+    public List<Budget> getExceededBudgets(YearMonth month) {
+        MonthSpending spending = months.get(month);
+        List<Budget> exceeded = new ArrayList<>();
+        if (spending != null) {
+            for (Tracked tracked : budgets.all) {
+                if (spending.exceeded.contains(tracked.budget.getBudgetId())) {
+                    exceeded.add(tracked.budget);
+                }
+            }
+        }
+        return exceeded;
+    }
+
+    @Override
+    public void onSaved(Transaction previous, Transaction current) {
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(current, 1);
+    }
+
+    @Override
+    public void onDeleted(Transaction removed) {
+        apply(removed, -1);
+    }
+
+    private void apply(Transaction tx, int sign) {
+        if (tx.getType() != TransactionType.EXPENSE || !tx.hasDateTime() || !tx.hasAmount()) {
+            return;
+        }
+        YearMonth month = tx.getYearMonth();
+        long cents = tx.getAmountCents() * sign;
+        MonthSpending spending = spending(month);
+        spending.category(tx.getCategoryId()).addAndGet(cents);
+        spending.total.addAndGet(cents);
+
+        Budgets current = budgets;
+        List<Tracked> categoryBudgets = current.byCategory.get(tx.getCategoryId());
+        if (categoryBudgets != null) {
+            for (Tracked tracked : categoryBudgets) {
+                evaluate(spending, month, tracked);
+            }
+        }
+        for (Tracked tracked : current.totals) {
+            evaluate(spending, month, tracked);
+        }
+    }
+
+    /**
+     * 与 Budget.checkOverspend 的判断相同 (支出严格大于限额), 只是直接比较 "分"
+     * 在该月的锁内读取计数器的当前值再更新超支集合: 先完成加减的写入者也许读到的是之后的合计,
+     * 但最后一个进入锁的判断总是基于全部写入之后的值; 回调在锁外进行
+     */
+    private void evaluate(MonthSpending spending, YearMonth month, Tracked tracked) {
+        String budgetId = tracked.budget.getBudgetId();
+        long spentCents;
+        boolean newlyExceeded = false;
+        spending.lock.lock();
+        try {
+            spentCents = spending.spent(tracked);
+            if (spentCents > tracked.limitCents) {
+                newlyExceeded = spending.exceeded.add(budgetId);
+            } else {
+                spending.exceeded.remove(budgetId);
+            }
+        } finally {
+            spending.lock.unlock();
+        }
+        if (newlyExceeded) {
+            fire(tracked.budget, month, spentCents);
+        }
+    }
+
+    private void fire(Budget budget, YearMonth month, long spentCents) {
+        BigDecimal spent = Money.toBigDecimal(spentCents);
+        for (BudgetAlertListener listener : listeners) {
+            try {
+                listener.onBudgetExceeded(budget, month, spent);
+            } catch (RuntimeException e) {
+                // 回调失败不应让已完成的交易写入报错
+                LOG.log(Level.WARNING, "预算提醒回调失败: " + budget.getBudgetId(), e);
+            }
+        }
+    }
+
+    private MonthSpending spending(YearMonth month) {
+        return months.computeIfAbsent(month, m -> new MonthSpending());
+    }
+
+    /**
+     * 一个月的支出合计与处于超支状态的预算ID; exceeded 的修改在 lock 内进行
+     */
+    private static final class MonthSpending {
+        final Map<String, AtomicLong> byCategory = new ConcurrentHashMap<>();
+        final AtomicLong total = new AtomicLong();
+        final Set<String> exceeded = ConcurrentHashMap.newKeySet();
+        final ReentrantLock lock = new ReentrantLock();
+
+        AtomicLong category(String categoryId) {
+            AtomicLong spent = byCategory.get(categoryId);
+            return spent != null ? spent : byCategory.computeIfAbsent(categoryId, id -> new AtomicLong());
+        }
+
+        long spent(Tracked tracked) {
+            if (tracked.budget.getCategoryId() == null) {
+                return total.get();
+            }
+            AtomicLong spent = byCategory.get(tracked.budget.getCategoryId());
+            return spent == null ? 0 : spent.get();
+        }
+    }
+
+    private static final class Tracked {
+        final Budget budget;
+        final long limitCents;
+
+        Tracked(Budget budget) {
+            this.budget = budget;
+            this.limitCents = Money.toCents(budget.getMonthlyLimit());
+        }
+    }
+
+    /**
+     * 预算的不可变快照: 按类别分组的类别预算与总预算 (categoryId 为 null)
+     */
+    private static final class Budgets {
+        static final Budgets EMPTY = new Budgets(List.of());
+
+        final List<Tracked> all = new ArrayList<>();
+        final Map<String, List<Tracked>> byCategory = new HashMap<>();
+        final List<Tracked> totals = new ArrayList<>();
+
+        Budgets(List<Budget> budgets) {
+            for (Budget budget : budgets) {
+                Tracked tracked = new Tracked(budget);
+                all.add(tracked);
+                if (budget.getCategoryId() == null) {
+                    totals.add(tracked);
+                } else {
+                    byCategory.computeIfAbsent(budget.getCategoryId(), id -> new ArrayList<>()).add(tracked);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package service;
+
+import model.Budget;
+import model.Transaction;
+import repository.IDataRepository;
+import repository.ITransactionRepository;
+import repository.MonthlyRollupStore;
+import repository.TransactionChangeListener;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 带结果缓存的报表服务: 按 (报表类型, 月份) 缓存月度总览与分类占比
+ *
+ * 缓存容量有上限, 超出时淘汰最久未访问的项 (LRU)。
+ * 作为交易存储库的监听器, 只有被写入 (新增、覆盖、删除) 交易所在的月份的缓存项会失效,
+ * 不再变动的历史月份计算一次后一直命中。返回的映射是只读的, 由所有调用方共享。
+ */
+public class CachingReportingService extends ReportingService {
+
+    /** 可缓存的报表类型 */
+    enum Report { MONTHLY_OVERVIEW, CATEGORY_BREAKDOWN }
+
+    private final int maxEntries;
+    private final Map<Key, Map<String, BigDecimal>> cache; // 由自身的锁保护
+    /** 各月份的写入代数: 计算期间该月被写入时, 计算结果不放入缓存 */
+    private final Map<YearMonth, Long> generations = new ConcurrentHashMap<>();
+    private volatile long epoch; // invalidateAll 时递增
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final ITransactionRepository transactionRepo;
+    private final Invalidator invalidator = new Invalidator();
+
+    /**
+     * 共用已挂上的月度汇总 (见 ReportingService 的构造函数); rollups 必须先于本服务挂到存储库上
+     */
+    public CachingReportingService(ITransactionRepository transactionRepo,
+                                   IDataRepository<Budget, String> budgetRepo,
+                                   PrecisionEngine precisionEngine,
+                                   MonthlyRollupStore rollups,
+                                   int maxEntries) {
+        super(transactionRepo, budgetRepo, precisionEngine, rollups);
+        this.transactionRepo = transactionRepo;
+        this.maxEntries = checkCapacity(maxEntries);
+        this.cache = newCache();
+        // 在月度汇总之后注册, 失效时汇总已经是最新的
+        transactionRepo.addChangeListener(invalidator);
+    }
+
+    private static int checkCapacity(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("缓存容量必须为正数");
+        }
+        return maxEntries;
+    }
+
+    private Map<Key, Map<String, BigDecimal>> newCache() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Map<String, BigDecimal>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 移除缓存失效监听, 并卸下本服务创建的月度汇总
+     */
+    @Override
+    public void close() {
+        transactionRepo.removeChangeListener(invalidator);
+        super.close();
+    }
+
+    @Override
+    public Map<String, BigDecimal> getMonthlyOverview(YearMonth month) {
+        return cached(Report.MONTHLY_OVERVIEW, month, () -> super.getMonthlyOverview(month));
+    }
+
+    @Override
+    public Map<String, BigDecimal> getCategoryBreakdown(YearMonth month) {
+        return cached(Report.CATEGORY_BREAKDOWN, month, () -> super.getCategoryBreakdown(month));
+    }
+
+    private Map<String, BigDecimal> cached(Report report, YearMonth month, Supplier<Map<String, BigDecimal>> compute) {
+        Key key = new Key(report, month);
+        synchronized (cache) {
+            Map<String, BigDecimal> value = cache.get(key);
+            if (value != null) {
+                hits.increment();
+                return value;
+            }
+        }
+        misses.increment();
+        // 先读代数再计算: 若计算期间发生写入, 代数已变, 旧结果不会覆盖失效
+        long startEpoch = epoch;
+        long generation = generations.getOrDefault(month, 0L);
+        Map<String, BigDecimal> value = Collections.unmodifiableMap(compute.get());
+        synchronized (cache) {
+            if (epoch == startEpoch && generations.getOrDefault(month, 0L) == generation) {
+                cache.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 使某月的全部报表缓存失效
+     */
+    public void invalidate(YearMonth month) {
+        generations.merge(month, 1L, Long::sum);
+        synchronized (cache) {
+            for (Report report : Report.values()) {
+                cache.remove(new Key(report, month));
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (cache) {
+            epoch++;
+            cache.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 命中率; 尚无请求时为 0
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private final class Invalidator implements TransactionChangeListener {
+        @Override
+        public void onSaved(Transaction previous, Transaction current) {
+            if (previous != null) {
+                onDeleted(previous);
+            }
+            onDeleted(current);
+        }
+
+        @Override
+        public void onDeleted(Transaction removed) {
+            if (removed.hasDateTime()) {
+                invalidate(removed.getYearMonth());
+            }
+        }
+    }
+
+    private static final class Key {
+        final Report report;
+        final YearMonth month;
+
+        Key(Report report, YearMonth month) {
+            this.report = report;
+            this.month = month;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return report == other.report && Objects.equals(month, other.month);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(report, month);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package service;
+
+import java.io.IOException;
+
+/**
+ * 批量导入中途失败
+ * 失败之前已写入的批次不会撤销 (每一批各自全有或全无), getPartialReport 给出截至失败时
+ * 读取/导入/拒绝的行数, 调用方据此核对或清理已导入的部分; 原始错误见 getCause
+ */
+public class ImportAbortedException extends IOException {
+
+    private final ImportReport partialReport;
+
+    public ImportAbortedException(ImportReport partialReport, Throwable cause) {
+        super("导入中断, 已导入 " + partialReport.getRowsImported() + " 行: " + cause.getMessage(), cause);
+        this.partialReport = partialReport;
+    }
+
+    public ImportReport getPartialReport() {
+        return partialReport;
+    }
+}
@@ -0,0 +1,65 @@
+package service;
+
+import java.util.List;
+
+/**
+ * 批量导入的结果报告: 读取/导入/拒绝的行数、被拒绝的行 (最多保留 TransactionImporter.MAX_REJECTS_KEPT 条) 与吞吐量
+ */
+public class ImportReport {
+
+    /**
+     * 被拒绝的一行: 行号 (文件中的物理行号, 从 1 开始) 与原因
+     */
+    public static class RejectedLine {
+        private final long lineNumber;
+        private final String reason;
+
+        public RejectedLine(long lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() { return lineNumber; }
+        public String getReason() { return reason; }
+
+        @Override
+        public String toString() {
+            return "第 " + lineNumber + " 行: " + reason;
+        }
+    }
+
+    private final long rowsRead;
+    private final long rowsImported;
+    private final long rowsRejected;
+    private final List<RejectedLine> rejectedLines;
+    private final long elapsedNanos;
+
+    public ImportReport(long rowsRead, long rowsImported, long rowsRejected,
+                        List<RejectedLine> rejectedLines, long elapsedNanos) {
+        this.rowsRead = rowsRead;
+        this.rowsImported = rowsImported;
+        this.rowsRejected = rowsRejected;
+        this.rejectedLines = List.copyOf(rejectedLines);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRowsRead() { return rowsRead; }
+    public long getRowsImported() { return rowsImported; }
+    public long getRowsRejected() { return rowsRejected; }
+    /** 按行号排序; 被拒绝的行过多时只保留前面的部分, 总数见 getRowsRejected */
+    public List<RejectedLine> getRejectedLines() { return rejectedLines; }
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    /**
+     * 吞吐量: 每秒读取的数据行数
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("导入完成: 读取 %d 行, 导入 %d 行, 拒绝 %d 行, %.0f 行/秒",
+                rowsRead, rowsImported, rowsRejected, getRowsPerSecond());
+    }
+}
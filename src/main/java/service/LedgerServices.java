@@ -0,0 +1,87 @@
+package service;
+
+import repository.BalanceCheckpoints;
+import repository.ILedgerRepository;
+import repository.InMemoryDataRepository;
+import repository.MonthlyRollupStore;
+import repository.PersistentDataRepository;
+import repository.ShardManager;
+import repository.WriteAheadLog;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 一本账 (一个租户分片) 的存储库与服务
+ * 服务只装配在本分片的存储库上, 月度汇总等派生结构也只覆盖本分片的数据, 租户之间互不可见。
+ * 与 ShardManager 配合使用: 分片加载时创建, 卸载时关闭底层存储库。
+ */
+public class LedgerServices implements Closeable {
+
+    private final String ledgerId;
+    private final ILedgerRepository repository;
+    private final BalanceCheckpoints balanceCheckpoints; // 本分片唯一的一份, 由 close 卸下
+    private final MonthlyRollupStore rollups; // 同上
+    private final TransactionService transactionService;
+    private final ReportingService reportingService;
+
+    public LedgerServices(String ledgerId, ILedgerRepository repository, PrecisionEngine precisionEngine) {
+        this.ledgerId = ledgerId;
+        this.repository = repository;
+        this.balanceCheckpoints = BalanceCheckpoints.attachTo(repository.getTransactionRepository());
+        this.transactionService = new TransactionService(repository.getTransactionRepository(),
+                repository.getAccountRepository(), repository.getCategoryRepository(), precisionEngine,
+                new AccountLockManager(), balanceCheckpoints);
+        this.rollups = MonthlyRollupStore.attachTo(repository.getTransactionRepository());
+        this.reportingService = new ReportingService(repository.getTransactionRepository(),
+                repository.getBudgetRepository(), precisionEngine, rollups);
+    }
+
+    /**
+     * 每个账本一个内存分片, 全部常驻
+     */
+    public static ShardManager<LedgerServices> inMemoryShards(PrecisionEngine precisionEngine) {
+        return new ShardManager<>(ledgerId ->
+                new LedgerServices(ledgerId, new InMemoryDataRepository(), precisionEngine), Integer.MAX_VALUE);
+    }
+
+    /**
+     * 每个账本是 root 下的一个持久化目录; 最多 maxResident 个账本常驻内存, 卸载时先做检查点再关闭
+     */
+    public static ShardManager<LedgerServices> persistentShards(Path root, WriteAheadLog.DurabilityMode mode,
+                                                                int maxResident, PrecisionEngine precisionEngine) {
+        return new ShardManager<>(new ShardManager.Loader<>() {
+            @Override
+            public LedgerServices load(String ledgerId) throws IOException {
+                return new LedgerServices(ledgerId, PersistentDataRepository.open(root.resolve(ledgerId), mode),
+                        precisionEngine);
+            }
+
+            @Override
+            public void unload(String ledgerId, LedgerServices ledger) throws IOException {
+                // 检查点失败时不关闭, 账本继续常驻 (见 ShardManager.Loader.unload)
+                ((PersistentDataRepository) ledger.getRepository()).checkpoint();
+                ledger.close();
+            }
+        }, maxResident);
+    }
+
+    public String getLedgerId() { return ledgerId; }
+    public ILedgerRepository getRepository() { return repository; }
+    public TransactionService getTransactionService() { return transactionService; }
+    public ReportingService getReportingService() { return reportingService; }
+
+    /**
+     * 卸下服务挂在存储库上的派生结构 (月度汇总、余额检查点等), 再关闭底层存储库 (内存存储库无需关闭)
+     */
+    @Override
+    public void close() throws IOException {
+        reportingService.close();
+        transactionService.close();
+        balanceCheckpoints.detach();
+        rollups.detach();
+        if (repository instanceof Closeable) {
+            ((Closeable) repository).close();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package service;
 
+import model.Money;
 import model.Transaction;
 import util.ValidationException;
 import java.math.BigDecimal;
@@ -49,4 +50,36 @@ public class PrecisionEngine {
                 
         return format(sum); // 返回格式化后的总和
     }
-}
\ No newline at end of file
+
+    /**
+     * 定点数模式: BigDecimal -> 分 (按 HALF_UP 舍入到两位小数)
+     */
+    public long toCents(BigDecimal amount) {
+        return Money.toCents(amount);
+    }
+
+    /**
+     * 定点数模式: 分 -> BigDecimal, 仅在 API 边界使用
+     */
+    public BigDecimal fromCents(long cents) {
+        return Money.toBigDecimal(cents);
+    }
+
+    /**
+     * calculateSum 的定点数版本: 对以 "分" 表示的金额数组求和, 不分配对象, 溢出时抛出 ValidationException
+     */
+    public long calculateSum(long[] cents) {
+        return calculateSum(cents, 0, cents.length);
+    }
+
+    /**
+     * 对 cents[from, to) 求和
+     */
+    public long calculateSum(long[] cents, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum = Money.add(sum, cents[i]);
+        }
+        return sum;
+    }
+}
@@ -1,14 +1,16 @@
 package service;
 
 import model.Budget;
-import model.Transaction;
 import repository.IDataRepository;
+import repository.ITransactionRepository;
+import repository.MonthlyRollupStore;
 import util.TransactionType;
+import util.ValidationException;
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.stream.Collectors;
 
 /**
@@ -16,18 +18,32 @@ import java.util.stream.Collectors;
  * 负责协调数据的查询和统计,提供月度总览、分类占比、趋势等视图 [cite: 92]
  * 对应UML用例: 查看统计报表 [cite: 145]
  */
-public class ReportingService {
+public class ReportingService implements AutoCloseable {
     
-    private final IDataRepository<Transaction, String> transactionRepo;
+    private final ITransactionRepository transactionRepo;
     private final IDataRepository<Budget, String> budgetRepo;
     private final PrecisionEngine precisionEngine;
+    private final MonthlyRollupStore rollups; // 增量维护的月度汇总
 
-    public ReportingService(IDataRepository<Transaction, String> transactionRepo,
+    /**
+     * rollups 为已挂在 transactionRepo 上的月度汇总: 每个存储库只挂一份,
+     * 由存储库的持有方 (如 LedgerServices) 在写入开始前挂接, 供其上的各个报表服务 (含缓存/计时装饰) 共用并负责卸下
+     */
+    public ReportingService(ITransactionRepository transactionRepo,
                             IDataRepository<Budget, String> budgetRepo,
-                            PrecisionEngine precisionEngine) {
+                            PrecisionEngine precisionEngine,
+                            MonthlyRollupStore rollups) {
         this.transactionRepo = transactionRepo;
         this.budgetRepo = budgetRepo;
         this.precisionEngine = precisionEngine;
+        this.rollups = rollups;
+    }
+
+    /**
+     * 卸下本服务自己注册的监听 (如缓存失效); 共用的月度汇总由调用方卸下, 不受影响
+     */
+    @Override
+    public void close() {
     }
 
     /**
@@ -35,26 +51,9 @@ public class ReportingService {
      * 对应UML用例: 查看月度总览 [cite: 148]
      */
     public Map<String, BigDecimal> getMonthlyOverview(YearMonth month) {
-        LocalDateTime start = month.atDay(1).atStartOfDay();
-        LocalDateTime end = month.atEndOfMonth().atTime(23, 59, 59);
-
-        // 依赖 IDataRepository::query [cite: 59]
-        List<Transaction> monthTransactions = transactionRepo.query(
-            tx -> !tx.getDateTime().isBefore(start) && !tx.getDateTime().isAfter(end)
-        );
-
-        // 依赖 PrecisionEngine::calculateSum [cite: 52]
-        BigDecimal totalIncome = precisionEngine.calculateSum(
-            monthTransactions.stream()
-                .filter(tx -> tx.getType() == TransactionType.INCOME)
-                .collect(Collectors.toList())
-        );
-
-        BigDecimal totalExpense = precisionEngine.calculateSum(
-            monthTransactions.stream()
-                .filter(tx -> tx.getType() == TransactionType.EXPENSE)
-                .collect(Collectors.toList())
-        );
+        // 由月度汇总直接得出, 无需再扫描本月的每一笔交易
+        BigDecimal totalIncome = precisionEngine.format(rollups.sum(month, TransactionType.INCOME));
+        BigDecimal totalExpense = precisionEngine.format(rollups.sum(month, TransactionType.EXPENSE));
         
         BigDecimal netIncome = totalIncome.subtract(totalExpense);
 
@@ -70,47 +69,52 @@ public class ReportingService {
      * 对应UML用例: 查看分类占比与趋势 [cite: 144]
      */
     public Map<String, BigDecimal> getCategoryBreakdown(YearMonth month) {
-        LocalDateTime start = month.atDay(1).atStartOfDay();
-        LocalDateTime end = month.atEndOfMonth().atTime(23, 59, 59);
-
-        List<Transaction> monthExpenses = transactionRepo.query(
-            tx -> tx.getType() == TransactionType.EXPENSE &&
-                  !tx.getDateTime().isBefore(start) && 
-                  !tx.getDateTime().isAfter(end)
-        );
-        
-        Map<String, BigDecimal> breakdown = monthExpenses.stream()
-            .collect(Collectors.groupingBy(
-                Transaction::getCategoryId,
-                Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add)
-            ));
-            
-        breakdown.forEach((key, value) -> breakdown.put(key, precisionEngine.format(value)));
+        Map<String, BigDecimal> breakdown = rollups.sumByCategory(month, TransactionType.EXPENSE);
+        breakdown.replaceAll((key, value) -> precisionEngine.format(value));
         return breakdown;
     }
     
     /**
      * 对应UML中的 getTrendAnalysis() (SHOULD) [cite: 58]
+     * 返回截至本月 (含) 的最近 months 个月中, 指定类型每月的金额合计, 按月份升序
      */
     public Map<YearMonth, BigDecimal> getTrendAnalysis(TransactionType type, int months) {
-        System.out.println("趋势分析 ( " + type + ", " + months + "个月 ) 正在执行...");
-        return Map.of();
+        return getTrendAnalysis(type, YearMonth.now(), months);
+    }
+
+    /**
+     * 以 endMonth 为最后一个月的趋势分析
+     * 各月合计一次性取自月度汇总, 不会对每个月重复查询账本
+     */
+    public Map<YearMonth, BigDecimal> getTrendAnalysis(TransactionType type, YearMonth endMonth, int months) {
+        if (type == null) {
+            throw new ValidationException("交易类型不能为空");
+        }
+        if (months <= 0) {
+            throw new ValidationException("趋势分析的月数必须大于 0 (传入: " + months + ")");
+        }
+        NavigableMap<YearMonth, BigDecimal> trend =
+                rollups.sumByMonth(type, endMonth.minusMonths(months - 1L), endMonth);
+        trend.replaceAll((month, value) -> precisionEngine.format(value));
+        return trend;
     }
     
     /**
      * 对应UML中的 checkBudgetAlerts() (SHOULD) [cite: 61]
      * 对应UML用例: 设置预算与提醒 [cite: 151]
+     * 总预算 (categoryId 为 null) 与当月全部支出比较; 需要在记账时即时提醒的场景见 BudgetMonitor
      */
     public List<Budget> checkBudgetAlerts(YearMonth month) {
         List<Budget> allBudgets = budgetRepo.findAll();
         Map<String, BigDecimal> categorySpending = getCategoryBreakdown(month);
+        BigDecimal totalSpending = precisionEngine.format(rollups.sum(month, TransactionType.EXPENSE));
         
         List<Budget> overspentBudgets = allBudgets.stream()
             .filter(budget -> {
                 String categoryId = budget.getCategoryId();
-                if (categoryId == null) return false; // 跳过总预算
-                
-                BigDecimal spent = categorySpending.getOrDefault(categoryId, BigDecimal.ZERO);
+                BigDecimal spent = categoryId == null
+                        ? totalSpending
+                        : categorySpending.getOrDefault(categoryId, BigDecimal.ZERO);
                 return budget.checkOverspend(spent); // [cite: 19]
             })
             .collect(Collectors.toList());
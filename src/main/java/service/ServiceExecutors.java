@@ -0,0 +1,104 @@
+package service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 异步服务 (AsyncTransactionService / AsyncReportingService) 使用的执行器
+ *
+ * 运行在 Java 21+ 上时可以为每个任务创建一个虚拟线程: 阻塞在锁或磁盘上的请求不占用平台线程,
+ * 数千个并发报表请求也不会耗尽线程池。项目以 Java 11 为编译目标, 因此通过反射查找该工厂方法。
+ * 在更早的 JDK 上退回有界线程池, 队列满时拒绝新任务而不是无限堆积。
+ */
+public final class ServiceExecutors {
+
+    private static final Method VIRTUAL_PER_TASK = findVirtualPerTask();
+
+    private ServiceExecutors() {
+    }
+
+    private static Method findVirtualPerTask() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 当前 JVM 是否支持虚拟线程 (Java 21+)
+     */
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_PER_TASK != null;
+    }
+
+    /**
+     * 每个任务一个虚拟线程; JVM 不支持时抛出 UnsupportedOperationException
+     */
+    public static ExecutorService virtualThreadPerTask() {
+        if (VIRTUAL_PER_TASK == null) {
+            throw new UnsupportedOperationException("虚拟线程需要 Java 21 或更高版本, 当前为 "
+                    + System.getProperty("java.specification.version"));
+        }
+        try {
+            return (ExecutorService) VIRTUAL_PER_TASK.invoke(null);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法创建虚拟线程执行器", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("无法创建虚拟线程执行器", e.getCause());
+        }
+    }
+
+    /**
+     * 固定数量的守护线程加有界队列; 队列已满时提交的任务被拒绝 (异步服务返回异常完成的 Future)
+     */
+    public static ExecutorService boundedPool(int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("线程数与队列容量必须为正数");
+        }
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("ledger-async-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 支持虚拟线程时每任务一个虚拟线程, 否则为 2 倍核数的有界线程池 (队列容量 10000)
+     */
+    public static ExecutorService defaultExecutor() {
+        if (virtualThreadsAvailable()) {
+            return virtualThreadPerTask();
+        }
+        return boundedPool(Runtime.getRuntime().availableProcessors() * 2, 10_000);
+    }
+
+    /**
+     * 在 executor 上执行 action; 任务被拒绝时返回异常完成的 Future, 而不是在调用线程上抛出
+     */
+    static <T> CompletableFuture<T> supply(Executor executor, Supplier<T> action) {
+        try {
+            return CompletableFuture.supplyAsync(action, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger sequence = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -2,27 +2,54 @@ package service;
 
 import model.*;
 import repository.IDataRepository;
+import repository.ITransactionRepository;
+import repository.PersistentDataRepository;
+import repository.TransactionFilter;
 import util.DataNotFoundException;
 import util.TransactionType;
-import util.ValidationException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.logging.Logger;
 
 /**
  * 服务: 系统服务 (SystemService) [cite: 65]
  */
 public class SystemService {
+    private static final Logger LOG = Logger.getLogger(SystemService.class.getName());
     
     private final IDataRepository<Category, String> categoryRepo;
-    private final IDataRepository<Transaction, String> transactionRepo;
+    private final ITransactionRepository transactionRepo;
     private final UserConfiguration userConfiguration;
+    private final PersistentDataRepository store; // 为 null 时备份与恢复不可用
+    private final Path backupFile;
+    private final TransactionExporter exporter;
 
     public SystemService(
             IDataRepository<Category, String> categoryRepo,
-            IDataRepository<Transaction, String> transactionRepo,
+            ITransactionRepository transactionRepo,
             UserConfiguration userConfiguration) {
+        this(categoryRepo, transactionRepo, userConfiguration, null, null);
+    }
+
+    /**
+     * 使用持久化存储库时, 备份写为 backupFile 处的快照文件, 恢复从该文件读取
+     */
+    public SystemService(
+            IDataRepository<Category, String> categoryRepo,
+            ITransactionRepository transactionRepo,
+            UserConfiguration userConfiguration,
+            PersistentDataRepository store,
+            Path backupFile) {
         this.categoryRepo = categoryRepo;
         this.transactionRepo = transactionRepo;
         this.userConfiguration = userConfiguration;
+        this.store = store;
+        this.backupFile = backupFile;
+        this.exporter = new TransactionExporter(transactionRepo, categoryRepo);
     }
     
     /**
@@ -52,31 +79,73 @@ public class SystemService {
     /**
      * 对应UML中的 exportData(format) (SHOULD) [cite: 68]
      * 对应UML用例: 导出数据 [cite: 152]
+     * 只校验格式并记录请求, 不扫描账本; 实际写出数据使用带 OutputStream / Channel 的重载
      */
     public void exportData(String format) {
-        if (!format.equals("CSV") && !format.equals("Excel")) {
-            throw new ValidationException("不支持的导出格式: " + format);
+        TransactionExporter.Format.of(format);
+        LOG.info(() -> "正在将交易导出为 " + format + "...");
+    }
+
+    /**
+     * 将满足筛选条件的交易以 format ("CSV" / "Excel") 流式导出到 out, 返回导出的行数
+     */
+    public long exportData(String format, TransactionFilter filter, OutputStream out) {
+        try {
+            return exporter.export(filter, TransactionExporter.Format.of(format), out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("导出失败", e);
+        }
+    }
+
+    /**
+     * 大账本的并行分块导出, parallelism 为同时编码的块数 (不大于 1 时退化为顺序导出)
+     */
+    public long exportData(String format, TransactionFilter filter, WritableByteChannel out, int parallelism) {
+        try {
+            return exporter.exportParallel(filter, TransactionExporter.Format.of(format), out, parallelism);
+        } catch (IOException e) {
+            throw new UncheckedIOException("导出失败", e);
         }
-        System.out.println("正在将 " + transactionRepo.findAll().size() + " 条交易导出为 " + format + "...");
     }
 
     /**
      * 对应UML中的 backupData() (SHOULD) [cite: 69]
      * 对应UML用例: 备份与恢复数据 [cite: 153]
+     * 未配置持久化存储时抛出 IllegalStateException
      */
     public void backupData() {
         if (userConfiguration.isLocalBackupEnabled()) { // [cite: 78]
-            System.out.println("正在执行本地备份...");
+            PersistentDataRepository target = requireStore();
+            LOG.info("正在执行本地备份...");
+            try {
+                target.backupTo(backupFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException("备份失败: " + backupFile, e);
+            }
         } else {
-            System.out.println("本地备份已禁用，跳过。");
+            LOG.info("本地备份已禁用，跳过。");
         }
     }
     
     /**
      * 对应UML中的 restoreData() (SHOULD) [cite: 70]
+     * 未配置持久化存储时抛出 IllegalStateException
      */
     public void restoreData() {
-        System.out.println("正在从备份恢复数据...");
+        PersistentDataRepository target = requireStore();
+        LOG.info("正在从备份恢复数据...");
+        try {
+            target.restoreFrom(backupFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("恢复失败: " + backupFile, e);
+        }
+    }
+
+    private PersistentDataRepository requireStore() {
+        if (store == null) {
+            throw new IllegalStateException("未配置持久化存储, 备份与恢复不可用");
+        }
+        return store;
     }
     
     /**
@@ -84,6 +153,6 @@ public class SystemService {
      * 对应UML用例: 删除个人数据 [cite: 154]
      */
     public void deleteUserData() {
-        System.out.println("警告: 正在删除所有用户数据...");
+        LOG.warning("正在删除所有用户数据...");
     }
 }
\ No newline at end of file
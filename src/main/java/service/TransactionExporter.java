@@ -0,0 +1,403 @@
+package service;
+
+import model.Category;
+import model.Transaction;
+import repository.IDataRepository;
+import repository.ITransactionRepository;
+import repository.TransactionFilter;
+import util.ValidationException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * 服务: 交易导出 (对应 exportData(format) [cite: 68])
+ * 通过 ITransactionRepository.stream 逐条读取交易, 格式化为文本后经可复用的缓冲区编码为 UTF-8 写出,
+ * 内存占用与导出的行数无关。
+ * 并行模式下按块 (CHUNK_ROWS 行) 读取, 各块在线程池中并行格式化与编码, 再按原顺序写出;
+ * 同时在途的块数有上限, 输出与顺序模式逐字节相同。
+ */
+public class TransactionExporter {
+
+    /**
+     * 导出格式; EXCEL 为 Excel 可直接打开的 XML 电子表格 (SpreadsheetML 2003), 可以流式写出
+     */
+    public enum Format {
+        CSV,
+        EXCEL;
+
+        /**
+         * 解析 exportData 使用的格式名 ("CSV" / "Excel")
+         */
+        public static Format of(String name) {
+            if ("CSV".equals(name)) {
+                return CSV;
+            }
+            if ("Excel".equals(name)) {
+                return EXCEL;
+            }
+            throw new ValidationException("不支持的导出格式: " + name);
+        }
+    }
+
+    static final int CHUNK_ROWS = 4096;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int TEXT_FLUSH_CHARS = 16 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 32;
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String[] COLUMNS = {"交易ID", "日期", "类型", "金额", "类别", "账户ID", "转入账户ID", "备注", "标签", "状态"};
+
+    private final ITransactionRepository transactionRepo;
+    private final IDataRepository<Category, String> categoryRepo;
+    private final ConcurrentLinkedQueue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+
+    public TransactionExporter(ITransactionRepository transactionRepo, IDataRepository<Category, String> categoryRepo) {
+        this.transactionRepo = transactionRepo;
+        this.categoryRepo = categoryRepo;
+    }
+
+    /**
+     * 顺序导出到输出流, 返回导出的行数 (不含表头)。不会关闭 out。
+     */
+    public long export(TransactionFilter filter, Format format, OutputStream out) throws IOException {
+        long rows = export(filter, format, Channels.newChannel(out));
+        out.flush();
+        return rows;
+    }
+
+    /**
+     * 顺序导出到通道, 返回导出的行数 (不含表头)。不会关闭 channel。
+     */
+    public long export(TransactionFilter filter, Format format, WritableByteChannel channel) throws IOException {
+        Map<String, String> categoryNames = new HashMap<>(); // 类别ID -> 名称, 只在本次导出内有效
+        ChunkEncoder encoder = new ChunkEncoder(channel);
+        StringBuilder text = new StringBuilder(TEXT_FLUSH_CHARS + 1024);
+        header(format, text);
+        long rows = 0;
+        try (Stream<Transaction> transactions = transactionRepo.stream(filter)) {
+            Iterator<Transaction> it = transactions.iterator();
+            while (it.hasNext()) {
+                row(format, it.next(), text, categoryNames);
+                rows++;
+                if (text.length() >= TEXT_FLUSH_CHARS) {
+                    encoder.encode(text);
+                }
+            }
+        }
+        footer(format, text);
+        encoder.encode(text);
+        encoder.finish();
+        return rows;
+    }
+
+    /**
+     * 并行分块导出, 使用 ForkJoinPool 公共线程池
+     */
+    public long exportParallel(TransactionFilter filter, Format format, WritableByteChannel channel,
+                               int parallelism) throws IOException {
+        return exportParallel(filter, format, channel, parallelism, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行分块导出: 读取线程按顺序切块, executor 并行编码, 最多 parallelism * 2 个块同时在途
+     */
+    public long exportParallel(TransactionFilter filter, Format format, WritableByteChannel channel,
+                               int parallelism, Executor executor) throws IOException {
+        if (parallelism <= 1) {
+            return export(filter, format, channel);
+        }
+        Map<String, String> categoryNames = new ConcurrentHashMap<>(); // 各编码线程共用, 只在本次导出内有效
+        int maxInFlight = parallelism * 2;
+        Deque<CompletableFuture<List<ByteBuffer>>> inFlight = new ArrayDeque<>();
+        long rows = 0;
+        try {
+            StringBuilder head = new StringBuilder();
+            header(format, head);
+            inFlight.add(CompletableFuture.completedFuture(encodeChunk(head)));
+
+            try (Stream<Transaction> transactions = transactionRepo.stream(filter)) {
+                Iterator<Transaction> it = transactions.iterator();
+                while (it.hasNext()) {
+                    List<Transaction> chunk = new ArrayList<>(CHUNK_ROWS);
+                    while (chunk.size() < CHUNK_ROWS && it.hasNext()) {
+                        chunk.add(it.next());
+                    }
+                    rows += chunk.size();
+                    inFlight.add(CompletableFuture.supplyAsync(() -> {
+                        StringBuilder text = new StringBuilder(chunk.size() * 96);
+                        for (Transaction tx : chunk) {
+                            row(format, tx, text, categoryNames);
+                        }
+                        return encodeChunk(text);
+                    }, executor));
+                    while (inFlight.size() >= maxInFlight) {
+                        writeChunk(inFlight.poll(), channel);
+                    }
+                }
+            }
+
+            StringBuilder tail = new StringBuilder();
+            footer(format, tail);
+            inFlight.add(CompletableFuture.completedFuture(encodeChunk(tail)));
+            while (!inFlight.isEmpty()) {
+                writeChunk(inFlight.poll(), channel);
+            }
+            return rows;
+        } finally {
+            // 出错时归还仍在途的缓冲区
+            for (CompletableFuture<List<ByteBuffer>> pending : inFlight) {
+                pending.thenAccept(buffers -> buffers.forEach(this::release));
+            }
+        }
+    }
+
+    private void writeChunk(CompletableFuture<List<ByteBuffer>> future, WritableByteChannel channel) throws IOException {
+        List<ByteBuffer> buffers;
+        try {
+            buffers = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("导出被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("导出失败", cause);
+        }
+        try {
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } finally {
+            buffers.forEach(this::release);
+        }
+    }
+
+    /**
+     * 把一块文本编码为若干个 (读模式的) 池化缓冲区
+     */
+    private List<ByteBuffer> encodeChunk(StringBuilder text) {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        CharBuffer chars = CharBuffer.wrap(text);
+        ByteBuffer buffer = acquire();
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                buffers.add(buffer.flip());
+                buffer = acquire();
+                continue;
+            }
+            if (result.isError()) {
+                throw new UncheckedIOException(new IOException("无法编码导出内容: " + result));
+            }
+            break;
+        }
+        encoder.flush(buffer);
+        buffers.add(buffer.flip());
+        return buffers;
+    }
+
+    private ByteBuffer acquire() {
+        ByteBuffer buffer = bufferPool.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    private void release(ByteBuffer buffer) {
+        if (bufferPool.size() < MAX_POOLED_BUFFERS) {
+            bufferPool.offer(buffer);
+        }
+    }
+
+    /**
+     * 顺序模式的编码器: 一个池化缓冲区反复使用, 写满即写入通道
+     */
+    private final class ChunkEncoder {
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer buffer = acquire();
+
+        ChunkEncoder(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void encode(StringBuilder text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, false);
+                if (result.isOverflow()) {
+                    drain();
+                    continue;
+                }
+                if (result.isError()) {
+                    throw new IOException("无法编码导出内容: " + result);
+                }
+                break;
+            }
+            text.setLength(0);
+        }
+
+        void finish() throws IOException {
+            try {
+                encoder.encode(CharBuffer.allocate(0), buffer, true);
+                encoder.flush(buffer);
+                drain();
+            } finally {
+                release(buffer);
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // ---------- 格式 ----------
+
+    private void header(Format format, StringBuilder out) {
+        if (format == Format.CSV) {
+            out.append('\uFEFF'); // BOM, 使 Excel 以 UTF-8 打开 CSV 中的中文
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) out.append(',');
+                out.append(COLUMNS[i]);
+            }
+            out.append("\r\n");
+        } else {
+            out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+               .append("<?mso-application progid=\"Excel.Sheet\"?>\n")
+               .append("<Workbook xmlns=\"urn:schemas-microsoft-com:office:spreadsheet\"")
+               .append(" xmlns:ss=\"urn:schemas-microsoft-com:office:spreadsheet\">\n")
+               .append("<Worksheet ss:Name=\"交易\">\n<Table>\n<Row>");
+            for (String column : COLUMNS) {
+                xmlCell(out, column);
+            }
+            out.append("</Row>\n");
+        }
+    }
+
+    private void footer(Format format, StringBuilder out) {
+        if (format == Format.EXCEL) {
+            out.append("</Table>\n</Worksheet>\n</Workbook>\n");
+        }
+    }
+
+    private void row(Format format, Transaction tx, StringBuilder out, Map<String, String> categoryNames) {
+        String dateTime = tx.getDateTime() != null ? DATE_TIME.format(tx.getDateTime()) : null;
+        String type = tx.getType() != null ? tx.getType().name() : null;
+        String tags = tx.getTags() != null && !tx.getTags().isEmpty() ? String.join(";", tx.getTags()) : null;
+        if (format == Format.CSV) {
+            csvField(out, tx.getTransactionId()).append(',');
+            csvField(out, dateTime).append(',');
+            csvField(out, type).append(',');
+            if (tx.getAmount() != null) out.append(tx.getAmount().toPlainString());
+            out.append(',');
+            csvField(out, categoryName(tx.getCategoryId(), categoryNames)).append(',');
+            csvField(out, tx.getAccountId()).append(',');
+            csvField(out, tx.getCounterAccountId()).append(',');
+            csvField(out, tx.getMemo()).append(',');
+            csvField(out, tags).append(',');
+            csvField(out, tx.getStatus()).append("\r\n");
+        } else {
+            out.append("<Row>");
+            xmlCell(out, tx.getTransactionId());
+            xmlCell(out, dateTime);
+            xmlCell(out, type);
+            if (tx.getAmount() != null) {
+                out.append("<Cell><Data ss:Type=\"Number\">").append(tx.getAmount().toPlainString()).append("</Data></Cell>");
+            } else {
+                out.append("<Cell/>");
+            }
+            xmlCell(out, categoryName(tx.getCategoryId(), categoryNames));
+            xmlCell(out, tx.getAccountId());
+            xmlCell(out, tx.getCounterAccountId());
+            xmlCell(out, tx.getMemo());
+            xmlCell(out, tags);
+            xmlCell(out, tx.getStatus());
+            out.append("</Row>\n");
+        }
+    }
+
+    private String categoryName(String categoryId, Map<String, String> categoryNames) {
+        if (categoryId == null) {
+            return null;
+        }
+        return categoryNames.computeIfAbsent(categoryId,
+                id -> categoryRepo.findById(id).map(Category::getName).orElse(id));
+    }
+
+    /**
+     * RFC 4180: 含逗号、引号或换行的字段加引号, 引号写两次
+     */
+    private static StringBuilder csvField(StringBuilder out, String value) {
+        if (value == null) {
+            return out;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') out.append('"');
+            out.append(c);
+        }
+        return out.append('"');
+    }
+
+    private static void xmlCell(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("<Cell/>");
+            return;
+        }
+        out.append("<Cell><Data ss:Type=\"String\">");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&': out.append("&amp;"); break;
+                case '<': out.append("&lt;"); break;
+                case '>': out.append("&gt;"); break;
+                case '"': out.append("&quot;"); break;
+                default:
+                    // XML 1.0 不允许除制表/换行/回车以外的控制字符
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append("</Data></Cell>");
+    }
+}
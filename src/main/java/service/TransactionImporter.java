@@ -0,0 +1,804 @@
+package service;
+
+import model.Account;
+import model.Category;
+import model.Money;
+import model.Transaction;
+import repository.IDataRepository;
+import util.BatchValidationException;
+import util.TransactionType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 服务: 批量导入银行/对账单 CSV
+ * 三段有界流水线:
+ *  1. 读取: 以内存映射方式按窗口读取文件, 只扫描记录边界 (识别引号内的换行), 把若干条记录切成一个零拷贝的分片
+ *  2. 解析: 多个工作线程直接在字节上拆分字段, 金额直接解析为 "分", 日期不经 DateTimeFormatter,
+ *     类别/账户名称经预加载的名称缓存解析为ID; 未通过校验的行记入报告
+ *  3. 写入: 调用线程把每批合格的交易交给 TransactionService.recordTransactions (整批更新余额)
+ * 各段之间是有界队列, 内存占用与文件大小无关。
+ *
+ * 表头决定列的位置, 支持中英文列名 (见 COLUMN_ALIASES), 可以直接导入 TransactionExporter 导出的 CSV。
+ * 没有 "类型" 列时按金额的正负区分支出 (负) 与收入 (正)。
+ * 类型为转账的行没有类别, 必须有 "转入账户" (与 "账户" 一样接受ID或名称)。
+ *
+ * 导入不是全有或全无: 每一批整批写入或整批不写, 中途失败 (读取出错、存储库写入失败等) 时停止写入后续批次,
+ * 已写入的批次保留, 以 ImportAbortedException 报告已导入的行数。
+ */
+public class TransactionImporter {
+
+    static final int BATCH_RECORDS = 2048;
+    static final int MAX_REJECTS_KEPT = 1000;
+    private static final long WINDOW_BYTES = 64L * 1024 * 1024;
+
+    private static final int DATE = 0, AMOUNT = 1, TYPE = 2, CATEGORY = 3, ACCOUNT = 4, MEMO = 5, TAGS = 6,
+            COUNTER_ACCOUNT = 7;
+    private static final String[][] COLUMN_ALIASES = {
+            {"日期", "交易日期", "时间", "交易时间", "date", "datetime"},
+            {"金额", "交易金额", "amount"},
+            {"类型", "收支", "收/支", "type"},
+            {"类别", "分类", "类别id", "category", "categoryid"},
+            {"账户", "账户id", "账户名称", "account", "accountid"},
+            {"备注", "摘要", "说明", "memo", "description"},
+            {"标签", "tags"},
+            {"转入账户", "转入账户id", "对方账户", "counteraccount", "counteraccountid"},
+    };
+
+    private final TransactionService transactionService;
+    private final IDataRepository<Account, String> accountRepo;
+    private final IDataRepository<Category, String> categoryRepo;
+    private final int parallelism;
+
+    public TransactionImporter(TransactionService transactionService,
+                               IDataRepository<Account, String> accountRepo,
+                               IDataRepository<Category, String> categoryRepo) {
+        this(transactionService, accountRepo, categoryRepo, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TransactionImporter(TransactionService transactionService,
+                               IDataRepository<Account, String> accountRepo,
+                               IDataRepository<Category, String> categoryRepo,
+                               int parallelism) {
+        this.transactionService = transactionService;
+        this.accountRepo = accountRepo;
+        this.categoryRepo = categoryRepo;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 导入一个 UTF-8 编码的 CSV 文件 (第一行为表头)
+     * 表头不合格时抛出 IOException, 不写入任何数据; 开始写入之后的失败抛出 ImportAbortedException, 附带部分结果的报告
+     */
+    public ImportReport importCsv(Path file) throws IOException {
+        long startNanos = System.nanoTime();
+        NameCache names = new NameCache(accountRepo.findAll(), categoryRepo.findAll());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Reader reader = new Reader(channel);
+            int[] layout = reader.readHeader();
+
+            BlockingQueue<Chunk> raw = new ArrayBlockingQueue<>(parallelism * 2);
+            BlockingQueue<Parsed> parsed = new ArrayBlockingQueue<>(parallelism * 2);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            ExecutorService pool = Executors.newFixedThreadPool(parallelism + 1, runnable -> {
+                Thread thread = new Thread(runnable, "csv-import");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                // 1. 读取
+                pool.execute(() -> {
+                    try {
+                        reader.readChunks(raw, failure);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        for (int i = 0; i < parallelism; i++) {
+                            putUninterruptibly(raw, Chunk.END);
+                        }
+                    }
+                });
+                // 2. 解析 (出错后仍继续消费, 保证上游不会阻塞)
+                for (int i = 0; i < parallelism; i++) {
+                    pool.execute(() -> {
+                        RecordParser parser = new RecordParser(layout, names);
+                        while (true) {
+                            Chunk chunk = takeUninterruptibly(raw);
+                            if (chunk == Chunk.END) {
+                                putUninterruptibly(parsed, Parsed.END);
+                                return;
+                            }
+                            if (failure.get() != null) {
+                                continue;
+                            }
+                            try {
+                                putUninterruptibly(parsed, parser.parse(chunk));
+                            } catch (Throwable e) {
+                                failure.compareAndSet(null, e);
+                            }
+                        }
+                    });
+                }
+                // 3. 写入
+                return insertAll(parsed, failure, startNanos);
+            } finally {
+                pool.shutdownNow();
+                try {
+                    pool.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private ImportReport insertAll(BlockingQueue<Parsed> parsed, AtomicReference<Throwable> failure,
+                                   long startNanos) throws IOException {
+        long rowsRead = 0;
+        long imported = 0;
+        long rejectedCount = 0;
+        List<ImportReport.RejectedLine> rejected = new ArrayList<>();
+        int finishedWorkers = 0;
+        while (finishedWorkers < parallelism) {
+            Parsed batch = takeUninterruptibly(parsed);
+            if (batch == Parsed.END) {
+                finishedWorkers++;
+                continue;
+            }
+            if (failure.get() != null) {
+                continue;
+            }
+            rowsRead += batch.records;
+            List<ImportReport.RejectedLine> batchRejects = new ArrayList<>(batch.rejects);
+            try {
+                imported += insert(batch, batchRejects);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+                continue;
+            }
+            rejectedCount += batchRejects.size();
+            for (ImportReport.RejectedLine line : batchRejects) {
+                if (rejected.size() < MAX_REJECTS_KEPT) {
+                    rejected.add(line);
+                }
+            }
+        }
+
+        rejected.sort(Comparator.comparingLong(ImportReport.RejectedLine::getLineNumber));
+        ImportReport report = new ImportReport(rowsRead, imported, rejectedCount, rejected,
+                System.nanoTime() - startNanos);
+        Throwable error = failure.get();
+        if (error != null) {
+            // 失败之前写入的批次已经生效, 连同报告一起交给调用方
+            throw new ImportAbortedException(report, error);
+        }
+        return report;
+    }
+
+    /**
+     * 整批写入; 批内仍有行被服务层拒绝 (例如账户在导入期间被删除) 时, 记下这些行并重试其余的行
+     */
+    private long insert(Parsed batch, List<ImportReport.RejectedLine> rejects) {
+        List<Transaction> rows = batch.rows;
+        long[] lines = batch.lineNumbers;
+        while (!rows.isEmpty()) {
+            try {
+                transactionService.recordTransactions(rows);
+                return rows.size();
+            } catch (BatchValidationException e) {
+                List<Transaction> remaining = new ArrayList<>(rows.size());
+                long[] remainingLines = new long[rows.size()];
+                for (int i = 0; i < rows.size(); i++) {
+                    String error = e.getRowErrors().get(i);
+                    if (error != null) {
+                        rejects.add(new ImportReport.RejectedLine(lines[i], error));
+                    } else {
+                        remainingLines[remaining.size()] = lines[i];
+                        remaining.add(rows.get(i));
+                    }
+                }
+                rows = remaining;
+                lines = remainingLines;
+            }
+        }
+        return 0;
+    }
+
+    // ---------- 读取 ----------
+
+    /**
+     * 一个分片: 文件中连续的若干条完整记录 (映射缓冲区的只读视图) 及第一条记录的物理行号
+     */
+    private static final class Chunk {
+        static final Chunk END = new Chunk(null, 0);
+
+        final ByteBuffer data;
+        final long firstLine;
+
+        Chunk(ByteBuffer data, long firstLine) {
+            this.data = data;
+            this.firstLine = firstLine;
+        }
+    }
+
+    private static final class Parsed {
+        static final Parsed END = new Parsed(0, List.of(), new long[0], List.of());
+
+        final int records;
+        final List<Transaction> rows;
+        final long[] lineNumbers;
+        final List<ImportReport.RejectedLine> rejects;
+
+        Parsed(int records, List<Transaction> rows, long[] lineNumbers, List<ImportReport.RejectedLine> rejects) {
+            this.records = records;
+            this.rows = rows;
+            this.lineNumbers = lineNumbers;
+            this.rejects = rejects;
+        }
+    }
+
+    /**
+     * 按窗口映射文件并切分记录; 记录以引号外的 '\n' 结束
+     */
+    private static final class Reader {
+        private final FileChannel channel;
+        private final long size;
+        private long position;
+        private long line = 1;
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        /**
+         * 读取表头, 返回每个逻辑列 (DATE..TAGS) 在文件中的列号, 缺失为 -1
+         */
+        int[] readHeader() throws IOException {
+            MappedByteBuffer window = map();
+            int start = 0;
+            if (window.limit() >= 3 && (window.get(0) & 0xFF) == 0xEF
+                    && (window.get(1) & 0xFF) == 0xBB && (window.get(2) & 0xFF) == 0xBF) {
+                start = 3; // UTF-8 BOM
+            }
+            int end = nextRecordEnd(window, start);
+            if (end < 0) {
+                if (position + window.limit() < size || window.limit() == start) {
+                    throw new IOException("CSV 文件缺少表头");
+                }
+                end = window.limit();
+            }
+            ByteBuffer headerBytes = window.duplicate().position(start).limit(end);
+            List<String> header = RecordParser.splitToStrings(headerBytes);
+            position += Math.min(end + 1, window.limit());
+            line += countNewlines(window, start, Math.min(end + 1, window.limit()));
+
+            int[] layout = new int[COLUMN_ALIASES.length];
+            Arrays.fill(layout, -1);
+            for (int column = 0; column < header.size(); column++) {
+                String name = header.get(column).trim().toLowerCase(Locale.ROOT);
+                for (int field = 0; field < COLUMN_ALIASES.length; field++) {
+                    if (layout[field] < 0 && Arrays.asList(COLUMN_ALIASES[field]).contains(name)) {
+                        layout[field] = column;
+                    }
+                }
+            }
+            // 类别在转账行中可以为空, 由各行自行校验
+            for (int required : new int[]{DATE, AMOUNT, ACCOUNT}) {
+                if (layout[required] < 0) {
+                    throw new IOException("CSV 表头缺少必需的列: " + COLUMN_ALIASES[required][0]);
+                }
+            }
+            return layout;
+        }
+
+        void readChunks(BlockingQueue<Chunk> out, AtomicReference<Throwable> failure) throws IOException {
+            while (position < size && failure.get() == null) {
+                MappedByteBuffer window = map();
+                boolean lastWindow = position + window.limit() >= size;
+                int chunkStart = 0;
+                int cursor = 0;
+                int records = 0;
+                long chunkLine = line;
+                while (true) {
+                    int end = nextRecordEnd(window, cursor);
+                    if (end < 0) {
+                        break;
+                    }
+                    line += countNewlines(window, cursor, end + 1);
+                    cursor = end + 1;
+                    if (++records == BATCH_RECORDS) {
+                        putUninterruptibly(out, new Chunk(slice(window, chunkStart, cursor), chunkLine));
+                        chunkStart = cursor;
+                        chunkLine = line;
+                        records = 0;
+                    }
+                }
+                if (lastWindow && cursor < window.limit()) {
+                    // 文件末尾没有换行的最后一条记录
+                    line += countNewlines(window, cursor, window.limit());
+                    cursor = window.limit();
+                    records++;
+                }
+                if (records > 0) {
+                    putUninterruptibly(out, new Chunk(slice(window, chunkStart, cursor), chunkLine));
+                }
+                if (cursor == 0 && !lastWindow) {
+                    throw new IOException("第 " + line + " 行超过 " + WINDOW_BYTES + " 字节");
+                }
+                position += cursor;
+            }
+        }
+
+        private MappedByteBuffer map() throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, size - position));
+        }
+
+        private static ByteBuffer slice(ByteBuffer window, int from, int to) {
+            return window.duplicate().position(from).limit(to).slice().asReadOnlyBuffer();
+        }
+
+        /**
+         * 从 from 开始找到当前记录结尾的 '\n' (引号内的不算), 找不到返回 -1
+         */
+        private static int nextRecordEnd(ByteBuffer buffer, int from) {
+            boolean quoted = false;
+            for (int i = from, limit = buffer.limit(); i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static int countNewlines(ByteBuffer buffer, int from, int to) {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (buffer.get(i) == '\n') count++;
+            }
+            return count;
+        }
+    }
+
+    // ---------- 解析 ----------
+
+    /**
+     * 每个工作线程一个: 复用字段位置数组与字符串缓冲区
+     */
+    private static final class RecordParser {
+        private final int[] layout;
+        private final NameCache names;
+        private int[] fieldStart = new int[16];
+        private int[] fieldEnd = new int[16];
+        private boolean[] fieldQuoted = new boolean[16];
+        private int fieldCount;
+        private byte[] scratch = new byte[256];
+
+        RecordParser(int[] layout, NameCache names) {
+            this.layout = layout;
+            this.names = names;
+        }
+
+        Parsed parse(Chunk chunk) {
+            ByteBuffer data = chunk.data;
+            List<Transaction> rows = new ArrayList<>(BATCH_RECORDS);
+            long[] lineNumbers = new long[BATCH_RECORDS];
+            List<ImportReport.RejectedLine> rejects = new ArrayList<>();
+            int records = 0;
+            long line = chunk.firstLine;
+            int position = 0;
+            int limit = data.limit();
+            while (position < limit) {
+                int end = split(data, position, limit);
+                long recordLine = line;
+                for (int i = position; i < end && i < limit; i++) {
+                    if (data.get(i) == '\n') line++;
+                }
+                position = end + 1;
+                line += end < limit ? 1 : 0;
+                if (fieldCount == 1 && fieldStart[0] == fieldEnd[0]) {
+                    continue; // 空行
+                }
+                records++;
+                try {
+                    if (rows.size() == lineNumbers.length) {
+                        lineNumbers = Arrays.copyOf(lineNumbers, lineNumbers.length * 2);
+                    }
+                    lineNumbers[rows.size()] = recordLine;
+                    rows.add(toTransaction(data));
+                } catch (IllegalArgumentException e) {
+                    rejects.add(new ImportReport.RejectedLine(recordLine, e.getMessage()));
+                }
+            }
+            return new Parsed(records, rows, lineNumbers, rejects);
+        }
+
+        /**
+         * 拆分从 start 开始的一条记录, 返回记录结尾 '\n' 的位置 (没有换行时为 limit)
+         */
+        private int split(ByteBuffer data, int start, int limit) {
+            fieldCount = 0;
+            int i = start;
+            while (true) {
+                ensureFieldCapacity();
+                boolean quoted = i < limit && data.get(i) == '"';
+                int fieldBegin = quoted ? i + 1 : i;
+                if (quoted) {
+                    i++;
+                    while (i < limit) {
+                        if (data.get(i) == '"') {
+                            if (i + 1 < limit && data.get(i + 1) == '"') {
+                                i += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        i++;
+                    }
+                    fieldStart[fieldCount] = fieldBegin;
+                    fieldEnd[fieldCount] = Math.min(i, limit);
+                    i++; // 结束引号
+                    while (i < limit && data.get(i) != ',' && data.get(i) != '\n') i++;
+                } else {
+                    while (i < limit && data.get(i) != ',' && data.get(i) != '\n') i++;
+                    int fieldFinish = i;
+                    if (fieldFinish > fieldBegin && (i >= limit || data.get(i) == '\n') && data.get(fieldFinish - 1) == '\r') {
+                        fieldFinish--; // CRLF
+                    }
+                    fieldStart[fieldCount] = fieldBegin;
+                    fieldEnd[fieldCount] = fieldFinish;
+                }
+                fieldQuoted[fieldCount] = quoted;
+                fieldCount++;
+                if (i >= limit || data.get(i) == '\n') {
+                    return Math.min(i, limit);
+                }
+                i++; // 逗号
+            }
+        }
+
+        private void ensureFieldCapacity() {
+            if (fieldCount == fieldStart.length) {
+                fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+                fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+                fieldQuoted = Arrays.copyOf(fieldQuoted, fieldCount * 2);
+            }
+        }
+
+        private Transaction toTransaction(ByteBuffer data) {
+            LocalDateTime dateTime = parseDateTime(data, field(DATE));
+            long cents = parseCents(data, field(AMOUNT));
+
+            TransactionType type;
+            int typeField = field(TYPE);
+            if (typeField >= 0 && fieldEnd[typeField] > fieldStart[typeField]) {
+                type = parseType(string(data, typeField));
+                if (cents <= 0) {
+                    throw new IllegalArgumentException("金额必须大于 0");
+                }
+            } else {
+                if (cents == 0) {
+                    throw new IllegalArgumentException("金额必须大于 0");
+                }
+                type = cents < 0 ? TransactionType.EXPENSE : TransactionType.INCOME;
+                cents = Math.abs(cents);
+            }
+
+            String categoryId = null;
+            String counterAccountId = null;
+            if (type == TransactionType.TRANSFER) {
+                counterAccountId = account(data, COUNTER_ACCOUNT, "转入账户");
+            } else {
+                String categoryName = requiredString(data, CATEGORY, "类别");
+                categoryId = names.category(categoryName, type);
+                if (categoryId == null) {
+                    throw new IllegalArgumentException("类别不存在或不唯一: " + categoryName);
+                }
+            }
+            String accountId = account(data, ACCOUNT, "账户");
+
+            Transaction tx = new Transaction(Money.toBigDecimal(cents), type, dateTime, categoryId, accountId);
+            tx.setCounterAccountId(counterAccountId);
+            int memoField = field(MEMO);
+            if (memoField >= 0 && fieldEnd[memoField] > fieldStart[memoField]) {
+                tx.setMemo(string(data, memoField));
+            }
+            int tagsField = field(TAGS);
+            if (tagsField >= 0 && fieldEnd[tagsField] > fieldStart[tagsField]) {
+                tx.setTags(List.of(string(data, tagsField).split(";")));
+            }
+            return tx;
+        }
+
+        private String account(ByteBuffer data, int logical, String label) {
+            String name = requiredString(data, logical, label);
+            String accountId = names.account(name);
+            if (accountId == null) {
+                throw new IllegalArgumentException(label + "不存在或不唯一: " + name);
+            }
+            return accountId;
+        }
+
+        /**
+         * 逻辑列在本行中的字段序号, 该列不存在或本行字段不足时返回 -1
+         */
+        private int field(int logical) {
+            int column = layout[logical];
+            return column >= 0 && column < fieldCount ? column : -1;
+        }
+
+        private String requiredString(ByteBuffer data, int logical, String label) {
+            int f = field(logical);
+            String value = f >= 0 ? string(data, f).trim() : "";
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException(label + "是必填项");
+            }
+            return value;
+        }
+
+        private String string(ByteBuffer data, int f) {
+            int length = 0;
+            int capacity = fieldEnd[f] - fieldStart[f];
+            if (scratch.length < capacity) {
+                scratch = new byte[Math.max(capacity, scratch.length * 2)];
+            }
+            for (int i = fieldStart[f]; i < fieldEnd[f]; i++) {
+                byte b = data.get(i);
+                scratch[length++] = b;
+                if (b == '"' && fieldQuoted[f]) {
+                    i++; // "" -> "
+                }
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 直接把金额解析为 "分": 可选正负号与千分位逗号, 最多两位小数
+         */
+        private long parseCents(ByteBuffer data, int f) {
+            if (f < 0) {
+                throw new IllegalArgumentException("金额是必填项");
+            }
+            return parseCents(data, fieldStart[f], fieldEnd[f]);
+        }
+
+        private static long parseCents(ByteBuffer data, int start, int end) {
+            while (start < end && data.get(start) == ' ') start++;
+            while (end > start && data.get(end - 1) == ' ') end--;
+            boolean negative = false;
+            if (start < end && (data.get(start) == '-' || data.get(start) == '+')) {
+                negative = data.get(start) == '-';
+                start++;
+            }
+            long units = 0;
+            int decimals = -1;
+            boolean digits = false;
+            for (int i = start; i < end; i++) {
+                byte b = data.get(i);
+                if (b >= '0' && b <= '9') {
+                    if (decimals >= 0 && ++decimals > Money.SCALE) {
+                        throw new IllegalArgumentException("金额精度不能超过 2 位小数");
+                    }
+                    if (units > (Long.MAX_VALUE - 9) / 10) {
+                        throw new IllegalArgumentException("金额超出可表示范围");
+                    }
+                    units = units * 10 + (b - '0');
+                    digits = true;
+                } else if (b == '.' && decimals < 0) {
+                    decimals = 0;
+                } else if (b != ',' || decimals >= 0) {
+                    throw new IllegalArgumentException("金额格式错误");
+                }
+            }
+            if (!digits) {
+                throw new IllegalArgumentException("金额是必填项");
+            }
+            for (int d = Math.max(decimals, 0); d < Money.SCALE; d++) {
+                if (units > Long.MAX_VALUE / 10) {
+                    throw new IllegalArgumentException("金额超出可表示范围");
+                }
+                units *= 10;
+            }
+            return negative ? -units : units;
+        }
+
+        /**
+         * yyyy-MM-dd / yyyy/MM/dd, 可带 " HH:mm" 或 " HH:mm:ss" (分隔符也可以是 'T')
+         */
+        private LocalDateTime parseDateTime(ByteBuffer data, int f) {
+            if (f < 0 || fieldEnd[f] == fieldStart[f]) {
+                throw new IllegalArgumentException("日期是必填项");
+            }
+            int[] pos = {fieldStart[f]};
+            int end = fieldEnd[f];
+            while (pos[0] < end && data.get(pos[0]) == ' ') pos[0]++;
+            while (end > pos[0] && data.get(end - 1) == ' ') end--;
+            try {
+                int year = number(data, pos, end, 4);
+                separator(data, pos, end, '-', '/');
+                int month = number(data, pos, end, 2);
+                separator(data, pos, end, '-', '/');
+                int day = number(data, pos, end, 2);
+                int hour = 0, minute = 0, second = 0;
+                if (pos[0] < end) {
+                    separator(data, pos, end, ' ', 'T');
+                    hour = number(data, pos, end, 2);
+                    separator(data, pos, end, ':', ':');
+                    minute = number(data, pos, end, 2);
+                    if (pos[0] < end) {
+                        separator(data, pos, end, ':', ':');
+                        second = number(data, pos, end, 2);
+                    }
+                }
+                if (pos[0] != end) {
+                    throw new IllegalArgumentException();
+                }
+                return LocalDateTime.of(year, month, day, hour, minute, second);
+            } catch (IllegalArgumentException | DateTimeException e) {
+                throw new IllegalArgumentException("日期格式错误: " + string(data, f));
+            }
+        }
+
+        private static int number(ByteBuffer data, int[] pos, int end, int maxDigits) {
+            int value = 0;
+            int digits = 0;
+            while (pos[0] < end && digits < maxDigits) {
+                byte b = data.get(pos[0]);
+                if (b < '0' || b > '9') break;
+                value = value * 10 + (b - '0');
+                digits++;
+                pos[0]++;
+            }
+            if (digits == 0) {
+                throw new IllegalArgumentException();
+            }
+            return value;
+        }
+
+        private static void separator(ByteBuffer data, int[] pos, int end, char a, char b) {
+            if (pos[0] >= end || (data.get(pos[0]) != a && data.get(pos[0]) != b)) {
+                throw new IllegalArgumentException();
+            }
+            pos[0]++;
+        }
+
+        private static TransactionType parseType(String value) {
+            switch (value.trim().toUpperCase(Locale.ROOT)) {
+                case "收入": case "收": case "INCOME":
+                    return TransactionType.INCOME;
+                case "支出": case "支": case "EXPENSE":
+                    return TransactionType.EXPENSE;
+                case "转账": case "TRANSFER":
+                    return TransactionType.TRANSFER;
+                default:
+                    throw new IllegalArgumentException("无法识别的类型: " + value);
+            }
+        }
+
+        /**
+         * 拆分一条记录为字符串 (只用于表头)
+         */
+        static List<String> splitToStrings(ByteBuffer record) {
+            RecordParser parser = new RecordParser(new int[0], null);
+            parser.split(record, record.position(), record.limit());
+            List<String> fields = new ArrayList<>(parser.fieldCount);
+            for (int f = 0; f < parser.fieldCount; f++) {
+                fields.add(parser.string(record, f));
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * 名称缓存: 导入开始时一次性加载类别与账户, 之后的解析只做无锁的哈希查找
+     * 同时接受ID与名称; 同名的类别按交易类型区分, 仍然不唯一的名称视为无法解析
+     */
+    private static final class NameCache {
+        private static final String AMBIGUOUS = "";
+
+        private final Map<String, String> accounts = new HashMap<>();
+        private final Map<String, String> categoriesById = new HashMap<>();
+        private final Map<String, String> categoriesByName = new HashMap<>();
+        private final Map<TransactionType, Map<String, String>> categoriesByTypedName = new HashMap<>();
+
+        NameCache(List<Account> accountList, List<Category> categoryList) {
+            for (Account account : accountList) {
+                put(accounts, account.getName(), account.getAccountId());
+            }
+            for (Account account : accountList) {
+                accounts.put(account.getAccountId(), account.getAccountId()); // ID 优先于名称
+            }
+            for (Category category : categoryList) {
+                categoriesById.put(category.getCategoryId(), category.getCategoryId());
+                put(categoriesByName, category.getName(), category.getCategoryId());
+                if (category.getType() != null) {
+                    put(categoriesByTypedName.computeIfAbsent(category.getType(), t -> new HashMap<>()),
+                            category.getName(), category.getCategoryId());
+                }
+            }
+        }
+
+        private static void put(Map<String, String> map, String name, String id) {
+            if (name != null) {
+                map.merge(name, id, (existing, added) -> existing.equals(added) ? existing : AMBIGUOUS);
+            }
+        }
+
+        String account(String nameOrId) {
+            return resolved(accounts.get(nameOrId));
+        }
+
+        String category(String nameOrId, TransactionType type) {
+            String id = categoriesById.get(nameOrId);
+            if (id != null) {
+                return id;
+            }
+            String typed = categoriesByTypedName.getOrDefault(type, Collections.emptyMap()).get(nameOrId);
+            if (typed != null) {
+                return resolved(typed);
+            }
+            return resolved(categoriesByName.get(nameOrId));
+        }
+
+        private static String resolved(String id) {
+            return id == null || id.equals(AMBIGUOUS) ? null : id;
+        }
+    }
+
+    private static <T> void putUninterruptibly(BlockingQueue<T> queue, T item) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(item);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <T> T takeUninterruptibly(BlockingQueue<T> queue) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return queue.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
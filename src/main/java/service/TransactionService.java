@@ -1,37 +1,81 @@
 package service;
 
 import model.*;
+import repository.BalanceCheckpoints;
 import repository.IDataRepository;
+import repository.ITransactionRepository;
+import repository.LedgerLegs;
+import repository.Page;
+import repository.PageRequest;
+import repository.TransactionFilter;
+import repository.TransactionTextIndex;
+import util.BatchValidationException;
 import util.DataNotFoundException;
 import util.InsufficientFundsException;
 import util.TransactionType;
 import util.ValidationException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.function.Predicate;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 /**
  * 服务: 交易服务 (TransactionService) 
  * 负责协调收支记录的录入、修改...以及账户间的转账操作 [cite: 90]
  */
-public class TransactionService {
+public class TransactionService implements AutoCloseable {
 
     // 依赖项
-    private final IDataRepository<Transaction, String> transactionRepo;
+    private final ITransactionRepository transactionRepo;
     private final IDataRepository<Account, String> accountRepo;
     private final IDataRepository<Category, String> categoryRepo;
     private final PrecisionEngine precisionEngine;
+    private final AccountLockManager accountLocks;
+    private volatile TransactionTextIndex textIndex; // 首次搜索时建立
+    private final BalanceCheckpoints balanceCheckpoints; // 调用方共用的余额检查点, 未提供时为 null
 
     // 构造函数注入依赖
-    public TransactionService(IDataRepository<Transaction, String> transactionRepo,
+    public TransactionService(ITransactionRepository transactionRepo,
                               IDataRepository<Account, String> accountRepo,
                               IDataRepository<Category, String> categoryRepo,
                               PrecisionEngine precisionEngine) {
+        this(transactionRepo, accountRepo, categoryRepo, precisionEngine, new AccountLockManager());
+    }
+
+    /**
+     * 多个服务实例共用同一组存储库时, 应传入同一个 AccountLockManager
+     */
+    public TransactionService(ITransactionRepository transactionRepo,
+                              IDataRepository<Account, String> accountRepo,
+                              IDataRepository<Category, String> categoryRepo,
+                              PrecisionEngine precisionEngine,
+                              AccountLockManager accountLocks) {
+        this(transactionRepo, accountRepo, categoryRepo, precisionEngine, accountLocks, null);
+    }
+
+    /**
+     * 需要查询历史余额 (getBalanceAt) 时传入已挂在 transactionRepo 上的 BalanceCheckpoints
+     * 检查点每个存储库只挂一份, 由存储库的持有方 (如 LedgerServices) 在写入开始前挂接并负责卸下
+     */
+    public TransactionService(ITransactionRepository transactionRepo,
+                              IDataRepository<Account, String> accountRepo,
+                              IDataRepository<Category, String> categoryRepo,
+                              PrecisionEngine precisionEngine,
+                              AccountLockManager accountLocks,
+                              BalanceCheckpoints balanceCheckpoints) {
         this.transactionRepo = transactionRepo;
         this.accountRepo = accountRepo;
         this.categoryRepo = categoryRepo;
         this.precisionEngine = precisionEngine;
+        this.accountLocks = accountLocks;
+        this.balanceCheckpoints = balanceCheckpoints;
     }
 
     /**
@@ -42,11 +86,157 @@ public class TransactionService {
     public Transaction recordTransaction(Transaction data) 
             throws ValidationException, DataNotFoundException {
         
-        // 1. (序列图) validateAmount(金额) [cite: 165, 182]
+        // 1~2. (序列图) 校验金额与必填字段
+        validateFields(data);
+
+        // 2.1 校验关联实体是否存在
+        if (data.getCategoryId() != null) {
+            categoryRepo.findById(data.getCategoryId())
+                    .orElseThrow(() -> new DataNotFoundException("类别不存在: " + data.getCategoryId()));
+        }
+
+        Transaction txToSave = copyForSave(data);
+        if (data.getType() == TransactionType.TRANSFER) {
+            return recordTransfer(txToSave);
+        }
+
+        // 3~6 在账户锁内完成, 同一账户上的 "读取-更新-保存" 不会与其他写入交错
+        return accountLocks.withLock(data.getAccountId(), () -> {
+            Account account = accountRepo.findById(data.getAccountId())
+                    .orElseThrow(() -> new DataNotFoundException("账户不存在: " + data.getAccountId()));
+
+            // 3. (序列图) updateBalance(金额, 类型) [cite: 168, 184]
+            long cents = Money.toCents(data.getAmount());
+            account.updateBalance(cents, data.getType());
+            try {
+                // 4. (序列图) 持久化更新后的账户
+                accountRepo.save(account);
+
+                // 5. (序列图) save(Transaction实体) [cite: 170, 187]
+                // 6. (序列图) 存储成功
+                return transactionRepo.save(txToSave);
+            } catch (RuntimeException e) {
+                // 与转账一样撤销余额变动, 不留下没有对应交易的余额
+                account.updateBalance(cents, data.getType() == TransactionType.INCOME
+                        ? TransactionType.EXPENSE : TransactionType.INCOME);
+                accountRepo.save(account);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * 批量录入 (如导入银行流水)
+     * 一次遍历校验所有行, 每个不同的账户/类别只查询一次; 每个账户的净变动只更新一次余额, 交易整批写入。
+     * 全有或全无: 任何一行未通过校验时抛出 BatchValidationException (含每行的错误信息), 不写入任何数据。
+     */
+    public List<Transaction> recordTransactions(List<Transaction> batch)
+            throws BatchValidationException, DataNotFoundException {
+        if (batch == null || batch.isEmpty()) {
+            return List.of();
+        }
+
+        // 1. 逐行校验字段, 同时收集涉及的账户与类别
+        SortedMap<Integer, String> rowErrors = new TreeMap<>();
+        Set<String> accountIds = new HashSet<>();
+        Set<String> categoryIds = new HashSet<>();
+        for (int row = 0; row < batch.size(); row++) {
+            Transaction data = batch.get(row);
+            try {
+                validateFields(data);
+                accountIds.add(data.getAccountId());
+                if (data.getType() == TransactionType.TRANSFER) {
+                    accountIds.add(data.getCounterAccountId());
+                }
+                if (data.getCategoryId() != null) {
+                    categoryIds.add(data.getCategoryId());
+                }
+            } catch (ValidationException e) {
+                rowErrors.put(row, e.getMessage());
+            }
+        }
+
+        // 2. 每个不同的类别/账户只查询一次
+        Set<String> missingCategories = categoryIds.stream()
+                .filter(id -> categoryRepo.findById(id).isEmpty())
+                .collect(Collectors.toSet());
+        Set<String> missingAccounts = accountIds.stream()
+                .filter(id -> accountRepo.findById(id).isEmpty())
+                .collect(Collectors.toSet());
+        for (int row = 0; row < batch.size(); row++) {
+            Transaction data = batch.get(row);
+            if (rowErrors.containsKey(row)) {
+                continue;
+            }
+            if (missingCategories.contains(data.getCategoryId())) {
+                rowErrors.put(row, "类别不存在: " + data.getCategoryId());
+            } else if (missingAccounts.contains(data.getAccountId())) {
+                rowErrors.put(row, "账户不存在: " + data.getAccountId());
+            } else if (missingAccounts.contains(data.getCounterAccountId())) {
+                rowErrors.put(row, "转入账户不存在: " + data.getCounterAccountId());
+            }
+        }
+        if (!rowErrors.isEmpty()) {
+            throw new BatchValidationException(rowErrors);
+        }
+
+        // 3. 按复式分录计算每个账户的净变动 (分); 转账的两条分录在同一批内一起生效
+        List<Transaction> toSave = new ArrayList<>(batch.size());
+        Map<String, Long> netCents = new HashMap<>();
+        for (Transaction data : batch) {
+            Transaction tx = copyForSave(data);
+            toSave.add(tx);
+            LedgerLegs.forEachLeg(tx, (accountId, cents) -> netCents.merge(accountId, cents, Money::add));
+        }
+
+        // 4. 持有全部相关账户的锁, 每个账户更新一次余额, 交易整批写入; 失败时撤销已做的修改
+        return accountLocks.withLocks(accountIds, () -> {
+            Map<String, Account> accounts = new HashMap<>();
+            for (String accountId : accountIds) {
+                accounts.put(accountId, accountRepo.findById(accountId)
+                        .orElseThrow(() -> new DataNotFoundException("账户不存在: " + accountId)));
+            }
+
+            List<Account> applied = new ArrayList<>();
+            try {
+                for (Map.Entry<String, Long> entry : netCents.entrySet()) {
+                    Account account = accounts.get(entry.getKey());
+                    applyDelta(account, entry.getValue());
+                    applied.add(account);
+                }
+                accountRepo.saveAll(accounts.values());
+                return transactionRepo.saveAll(toSave);
+            } catch (RuntimeException e) {
+                for (Account account : applied) {
+                    applyDelta(account, -netCents.get(account.getAccountId()));
+                    accountRepo.save(account);
+                }
+                for (Transaction tx : toSave) {
+                    transactionRepo.deleteById(tx.getTransactionId());
+                }
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * (序列图) validateAmount(金额) 与必填字段校验 [cite: 165, 167, 182, 183]
+     */
+    private void validateFields(Transaction data) {
         precisionEngine.validateAmount(data.getAmount());
-        
-        // 2. (序列图) 校验必填字段 (类别/日期) [cite: 167, 183]
-        if (data.getCategoryId() == null || data.getCategoryId().isBlank()) {
+
+        if (data.getType() == null) {
+            throw new ValidationException("类型 (type) 是必填项");
+        }
+        if (data.getType() == TransactionType.TRANSFER) {
+            // 转账没有类别, 但必须有转入账户
+            if (data.getCounterAccountId() == null || data.getCounterAccountId().isBlank()) {
+                throw new ValidationException("转账的转入账户 (counterAccountId) 是必填项");
+            }
+            if (data.getCounterAccountId().equals(data.getAccountId())) {
+                throw new ValidationException("转出与转入账户不能相同: " + data.getAccountId());
+            }
+        } else if (data.getCategoryId() == null || data.getCategoryId().isBlank()) {
             throw new ValidationException("类别 (categoryId) 是必填项");
         }
         if (data.getDateTime() == null) {
@@ -55,31 +245,32 @@ public class TransactionService {
         if (data.getAccountId() == null || data.getAccountId().isBlank()) {
             throw new ValidationException("账户 (accountId) 是必填项");
         }
+    }
 
-        // 2.1 校验关联实体是否存在
-        Account account = accountRepo.findById(data.getAccountId())
-                .orElseThrow(() -> new DataNotFoundException("账户不存在: " + data.getAccountId()));
-        
-        categoryRepo.findById(data.getCategoryId())
-                .orElseThrow(() -> new DataNotFoundException("类别不存在: " + data.getCategoryId()));
-
-        // 3. (序列图) updateBalance(金额, 类型) [cite: 168, 184]
-        account.updateBalance(data.getAmount(), data.getType());
-
-        // 4. (序列图) 持久化更新后的账户
-        accountRepo.save(account);
-
-        // 5. (序列图) save(Transaction实体) [cite: 170, 187]
+    /**
+     * 根据录入数据构造待保存的交易实体 (金额格式化为两位小数, 分配新的ID)
+     */
+    private Transaction copyForSave(Transaction data) {
         Transaction txToSave = new Transaction(
             precisionEngine.format(data.getAmount()), 
             data.getType(), data.getDateTime(),
             data.getCategoryId(), data.getAccountId()
         );
+        txToSave.setCounterAccountId(data.getCounterAccountId());
         txToSave.setMemo(data.getMemo());
         txToSave.setTags(data.getTags());
-        
-        // 6. (序列图) 存储成功
-        return transactionRepo.save(txToSave);
+        return txToSave;
+    }
+
+    /**
+     * 按净变动的方向更新余额, 净变动为 0 时不更新
+     */
+    private static void applyDelta(Account account, long deltaCents) {
+        if (deltaCents > 0) {
+            account.updateBalance(deltaCents, TransactionType.INCOME);
+        } else if (deltaCents < 0) {
+            account.updateBalance(-deltaCents, TransactionType.EXPENSE);
+        }
     }
     
     /**
@@ -87,19 +278,87 @@ public class TransactionService {
      * 对应UML用例: 查找与筛选收支记录 [cite: 140]
      */
     public List<Transaction> findTransactions(String categoryId, LocalDateTime start, LocalDateTime end) {
-        Predicate<Transaction> predicate = tx -> true;
+        TransactionFilter filter = TransactionFilter.all()
+                .withCategory(categoryId)
+                .between(start, end);
+        return transactionRepo.query(filter); // [cite: 41]
+    }
+
+    /**
+     * 分页的组合筛选: 按 page 的排序 (时间/金额, 升序/降序) 返回游标之后的一页
+     * 只取一页时不会物化全部命中的交易; 下一页用 page.after(结果.getNextCursor())
+     */
+    public Page findTransactions(TransactionFilter filter, PageRequest page) {
+        return transactionRepo.page(filter, page);
+    }
 
-        if (categoryId != null && !categoryId.isBlank()) {
-            predicate = predicate.and(tx -> tx.getCategoryId().equals(categoryId));
+    /**
+     * 按备注与标签全文搜索, 可与类别、时间范围等条件组合, 结果按交易时间升序排列
+     * 查询语法见 TransactionTextIndex: 多个词同时满足 (AND), "词*" 为前缀匹配, "#标签" 只匹配标签
+     * 首次调用时以现有交易建立倒排索引, 之后随存储库的保存与删除增量维护
+     */
+    public List<Transaction> searchTransactions(String query, TransactionFilter filter) {
+        return textIndex().search(query, filter);
+    }
+
+    /**
+     * 同上, 以 findTransactions 的参数形式给出类别与时间范围
+     */
+    public List<Transaction> searchTransactions(String query, String categoryId, LocalDateTime start, LocalDateTime end) {
+        return searchTransactions(query, TransactionFilter.all().withCategory(categoryId).between(start, end));
+    }
+
+    private TransactionTextIndex textIndex() {
+        TransactionTextIndex index = textIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = textIndex;
+                if (index == null) {
+                    index = TransactionTextIndex.attachTo(transactionRepo);
+                    textIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 账户在 dateTime 时刻 (含该时刻的交易) 的余额, 用于对账单核对
+     * 由当前余额减去该时刻之后的分录净额得到: 之后的部分按月/按日检查点汇总, 只回放当天剩余的交易
+     * 构造时未传入 BalanceCheckpoints 的服务不支持此查询, 抛出 IllegalStateException
+     */
+    public BigDecimal getBalanceAt(String accountId, LocalDateTime dateTime)
+            throws ValidationException, DataNotFoundException {
+        if (accountId == null || accountId.isBlank()) {
+            throw new ValidationException("账户 (accountId) 是必填项");
         }
-        if (start != null) {
-            predicate = predicate.and(tx -> !tx.getDateTime().isBefore(start));
+        if (dateTime == null) {
+            throw new ValidationException("日期 (dateTime) 是必填项");
         }
-        if (end != null) {
-            predicate = predicate.and(tx -> !tx.getDateTime().isAfter(end));
+        BalanceCheckpoints checkpoints = balanceCheckpoints;
+        if (checkpoints == null) {
+            throw new IllegalStateException("未提供余额检查点 (BalanceCheckpoints), 无法查询历史余额");
+        }
+        // 持有账户锁, 当前余额与检查点来自同一时刻, 不会只看到并发写入的一半
+        long cents = accountLocks.withLock(accountId, () -> {
+            Account account = accountRepo.findById(accountId)
+                    .orElseThrow(() -> new DataNotFoundException("账户不存在: " + accountId));
+            return Money.subtract(account.getBalanceCents(),
+                    checkpoints.netCentsAfter(accountId, dateTime, transactionRepo));
+        });
+        return precisionEngine.format(Money.toBigDecimal(cents));
+    }
+
+    /**
+     * 从存储库上卸下全文索引 (如已建立); 之后不应再使用本服务
+     * 传入的余额检查点由调用方管理, 不在此卸下
+     */
+    @Override
+    public void close() {
+        TransactionTextIndex index = textIndex;
+        if (index != null) {
+            index.detach();
         }
-        
-        return transactionRepo.query(predicate); // [cite: 41]
     }
 
     /**
@@ -108,21 +367,59 @@ public class TransactionService {
      */
     public void transferFunds(String fromAccountId, String toAccountId, BigDecimal amount)
             throws ValidationException, DataNotFoundException, InsufficientFundsException {
-        
-        precisionEngine.validateAmount(amount);
-        
-        Account fromAccount = accountRepo.findById(fromAccountId)
-                .orElseThrow(() -> new DataNotFoundException("转出账户不存在: " + fromAccountId));
-        
-        Account toAccount = accountRepo.findById(toAccountId)
-                .orElseThrow(() -> new DataNotFoundException("转入账户不存在: " + toAccountId));
+        transferFunds(fromAccountId, toAccountId, amount, LocalDateTime.now(), null);
+    }
+
+    /**
+     * 转账并记录一笔 TRANSFER 交易 (转出 -金额 / 转入 +金额 两条分录), 返回保存的交易
+     * 两个账户的余额与交易记录一起生效: 任何一步失败时不会留下只完成一半的转账
+     */
+    public Transaction transferFunds(String fromAccountId, String toAccountId, BigDecimal amount,
+                                     LocalDateTime dateTime, String memo)
+            throws ValidationException, DataNotFoundException, InsufficientFundsException {
+        Transaction data = new Transaction(amount, TransactionType.TRANSFER, dateTime, null, fromAccountId);
+        data.setCounterAccountId(toAccountId);
+        data.setMemo(memo);
+        validateFields(data);
+        return recordTransfer(copyForSave(data));
+    }
+
+    /**
+     * 按固定顺序同时持有两个账户的锁, 转账对其他写入者而言是原子的:
+     * 先检查两个新余额都不会溢出, 再修改余额; 交易或账户保存失败时冲回余额并删除已写入的交易
+     */
+    private Transaction recordTransfer(Transaction transfer) {
+        String fromAccountId = transfer.getAccountId();
+        String toAccountId = transfer.getCounterAccountId();
+        long cents = precisionEngine.toCents(transfer.getAmount());
+
+        return accountLocks.withLocks(List.of(fromAccountId, toAccountId), () -> {
+            Account fromAccount = accountRepo.findById(fromAccountId)
+                    .orElseThrow(() -> new DataNotFoundException("转出账户不存在: " + fromAccountId));
+
+            Account toAccount = accountRepo.findById(toAccountId)
+                    .orElseThrow(() -> new DataNotFoundException("转入账户不存在: " + toAccountId));
 
-        // 执行转账
-        fromAccount.updateBalance(amount, TransactionType.EXPENSE);
-        toAccount.updateBalance(amount, TransactionType.INCOME);
+            Money.subtract(fromAccount.getBalanceCents(), cents);
+            Money.add(toAccount.getBalanceCents(), cents);
 
-        // 持久化
-        accountRepo.save(fromAccount);
-        accountRepo.save(toAccount);
+            fromAccount.updateBalance(cents, TransactionType.EXPENSE);
+            toAccount.updateBalance(cents, TransactionType.INCOME);
+            boolean saved = false;
+            try {
+                Transaction result = transactionRepo.save(transfer);
+                saved = true;
+                accountRepo.saveAll(List.of(fromAccount, toAccount));
+                return result;
+            } catch (RuntimeException e) {
+                fromAccount.updateBalance(cents, TransactionType.INCOME);
+                toAccount.updateBalance(cents, TransactionType.EXPENSE);
+                accountRepo.saveAll(List.of(fromAccount, toAccount));
+                if (saved) {
+                    transactionRepo.deleteById(transfer.getTransactionId());
+                }
+                throw e;
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package util;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 批量录入的校验异常
+ * 汇总所有未通过校验的行 (行号从 0 开始 -> 错误信息), 抛出时整批均未写入
+ */
+public class BatchValidationException extends ValidationException {
+    private static final int MAX_ROWS_IN_MESSAGE = 5;
+
+    private final SortedMap<Integer, String> rowErrors;
+
+    public BatchValidationException(SortedMap<Integer, String> rowErrors) {
+        super(buildMessage(rowErrors));
+        this.rowErrors = Collections.unmodifiableSortedMap(new TreeMap<>(rowErrors));
+    }
+
+    public SortedMap<Integer, String> getRowErrors() {
+        return rowErrors;
+    }
+
+    private static String buildMessage(SortedMap<Integer, String> rowErrors) {
+        String rows = rowErrors.entrySet().stream()
+                .limit(MAX_ROWS_IN_MESSAGE)
+                .map(e -> "第 " + e.getKey() + " 行: " + e.getValue())
+                .collect(Collectors.joining("; "));
+        String more = rowErrors.size() > MAX_ROWS_IN_MESSAGE ? " ..." : "";
+        return "批量录入失败, 共 " + rowErrors.size() + " 行未通过校验: " + rows + more;
+    }
+}
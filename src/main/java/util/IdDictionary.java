@@ -0,0 +1,66 @@
+package util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字符串字典
+ * 将大量重复出现的ID (类别/账户等) 编码为从 0 开始的紧凑整数, 只增不减, 线程安全。
+ * null 编码为 NULL_CODE; 查询不存在的值返回 ABSENT。
+ */
+public final class IdDictionary {
+
+    public static final int NULL_CODE = -1;
+    public static final int ABSENT = -2;
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private int size; // 仅在 synchronized 中修改
+
+    /**
+     * 返回 value 的编码, 不存在时分配新编码
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+                values = current;
+            }
+            current[size] = value;
+            // 先写入数组再发布编码, 读到编码的线程一定能读到对应的值
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * 只查询不分配: 返回已有编码, value 为 null 时返回 NULL_CODE, 未出现过时返回 ABSENT
+     */
+    public int lookup(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : ABSENT;
+    }
+
+    public String decode(int code) {
+        return code < 0 ? null : values[code];
+    }
+
+    public int size() {
+        return codes.size();
+    }
+}
@@ -0,0 +1,21 @@
+package util;
+
+/**
+ * 实体ID生成策略 (见 IdGenerators)
+ * 实现必须线程安全, 且在同一数据目录的生命周期内不产生重复的ID
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+    /**
+     * 生成以 prefix 开头的新ID, 如 "TX_"
+     */
+    String nextId(String prefix);
+
+    /**
+     * 告知生成器一个已存在 (例如从磁盘恢复) 的ID; 按时间递增的实现据此保证之后生成的ID都比它大
+     * 默认忽略
+     */
+    default void observe(String id) {
+    }
+}
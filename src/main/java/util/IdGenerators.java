@@ -0,0 +1,38 @@
+package util;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * 实体构造函数使用的全局ID生成器
+ * 默认是 TimeOrderedIdGenerator, 节点号取自系统属性 bookkeeper.nodeId (未设置时为 0);
+ * 多个进程向同一份数据写入时, 每个进程应使用不同的节点号。
+ * 需要其他策略时在启动阶段 (创建任何实体之前) 调用 setDefault 替换
+ */
+public final class IdGenerators {
+
+    private static volatile IdGenerator current =
+            new TimeOrderedIdGenerator(Integer.getInteger("bookkeeper.nodeId", 0));
+
+    private IdGenerators() {
+    }
+
+    public static String next(String prefix) {
+        return current.nextId(prefix);
+    }
+
+    public static IdGenerator getDefault() {
+        return current;
+    }
+
+    public static void setDefault(IdGenerator generator) {
+        current = Objects.requireNonNull(generator, "generator");
+    }
+
+    /**
+     * 基于完整随机 UUID 的生成器 (122 位随机数, 无序); 适合需要不可预测ID的场景, 代价是每次访问 SecureRandom
+     */
+    public static IdGenerator randomUuid() {
+        return prefix -> prefix + UUID.randomUUID();
+    }
+}
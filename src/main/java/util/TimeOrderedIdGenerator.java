@@ -0,0 +1,130 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 默认的ID生成器: 按时间递增的 64 位ID
+ * 位布局 (高位到低位): 42 位毫秒时间戳 (自 2024-01-01 起, 约 139 年) | 10 位节点号 | 12 位毫秒内序号
+ *
+ * 时间戳与序号由一个 AtomicLong 以 CAS 分配, 取 max(上一个值 + 1, 当前毫秒), 因此:
+ *  - 同一进程内严格递增, 不会重复 (同一毫秒内超过 4096 个时借用下一毫秒, 时钟回拨时沿用上一个值继续递增)
+ *  - 不同进程 (多个节点写同一份数据) 需要配置不同的节点号, 见 IdGenerators
+ *  - 进程重启后 last 从 0 开始, 时钟回拨时可能重新发出已持久化的ID; 打开存储库时应对已有ID调用 observe,
+ *    把 last 推进到其中的最大值 (PersistentDataRepository.open 会这样做)
+ * 编码为 13 位定长 Crockford Base32, 字符串的字典序与生成顺序一致, 新ID总是落在有序索引的尾部
+ */
+public final class TimeOrderedIdGenerator implements IdGenerator {
+
+    static final long EPOCH_MILLIS = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 10;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final int ENCODED_LENGTH = 13;
+    private static final byte[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DIGITS = new byte[128]; // 字符 -> 5 位值, 不在字母表中的为 -1
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DIGITS[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private final long node;
+    private final AtomicLong last = new AtomicLong(); // 上一个 (时间戳 << SEQUENCE_BITS | 序号)
+
+    public TimeOrderedIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new ValidationException("节点号必须在 0 到 " + MAX_NODE_ID + " 之间 (传入: " + nodeId + ")");
+        }
+        this.node = nodeId;
+    }
+
+    /**
+     * 生成下一个数值ID
+     */
+    public long nextLong() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long previous;
+        long next;
+        do {
+            previous = last.get();
+            next = Math.max(previous + 1, now);
+        } while (!last.compareAndSet(previous, next));
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return timestamp << (NODE_BITS + SEQUENCE_BITS) | node << SEQUENCE_BITS | sequence;
+    }
+
+    /**
+     * 把 last 推进到 id 中的 (时间戳, 序号) 处; 不是本生成器格式的ID (如 UUID) 被忽略
+     */
+    @Override
+    public void observe(String id) {
+        long value = decode(id);
+        if (value < 0) {
+            return;
+        }
+        long observed = (value >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS
+                | (value & ((1L << SEQUENCE_BITS) - 1));
+        long previous;
+        do {
+            previous = last.get();
+            if (previous >= observed) {
+                return;
+            }
+        } while (!last.compareAndSet(previous, observed));
+    }
+
+    @Override
+    public String nextId(String prefix) {
+        int prefixLength = prefix.length();
+        byte[] chars = new byte[prefixLength + ENCODED_LENGTH];
+        for (int i = 0; i < prefixLength; i++) {
+            chars[i] = (byte) prefix.charAt(i);
+        }
+        encode(nextLong(), chars, prefixLength);
+        // 前缀与编码均为 ASCII, 直接构造 Latin-1 字符串, 不经过字符集编码器
+        return new String(chars, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 把 64 位无符号数编码为 13 位定长 Crockford Base32 (首位只用到 4 位)
+     */
+    static void encode(long value, byte[] out, int offset) {
+        for (int i = offset + ENCODED_LENGTH - 1; i >= offset; i--) {
+            out[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+    }
+
+    /**
+     * 解码ID末尾的 13 位编码; 不是合法编码时返回 -1
+     */
+    static long decode(String id) {
+        if (id == null || id.length() < ENCODED_LENGTH) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = id.length() - ENCODED_LENGTH; i < id.length(); i++) {
+            char c = id.charAt(i);
+            int digit = c < DIGITS.length ? DIGITS[c] : -1;
+            if (digit < 0) {
+                return -1;
+            }
+            value = value << 5 | digit;
+        }
+        // 首位只用到 4 位, 更大的首位说明不是本格式
+        return DIGITS[id.charAt(id.length() - ENCODED_LENGTH)] < 16 ? value : -1;
+    }
+
+    /**
+     * ID中记录的生成时刻 (毫秒精度)
+     */
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+}
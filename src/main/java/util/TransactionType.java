@@ -2,8 +2,10 @@ package util;
 
 /**
  * 交易类型 (对应UML中的 "收入/支出") [cite: 21, 26]
+ * TRANSFER 为账户间转账: 从 accountId 转出, 转入 counterAccountId, 两条分录金额相等方向相反
  */
 public enum TransactionType {
     INCOME, // 收入
-    EXPENSE // 支出
+    EXPENSE, // 支出
+    TRANSFER // 转账
 }
\ No newline at end of file
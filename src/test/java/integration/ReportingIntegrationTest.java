@@ -2,6 +2,7 @@ package integration;
 import org.junit.jupiter.api.*;
 import model.*;
 import repository.InMemoryDataRepository;
+import repository.MonthlyRollupStore;
 import service.*;
 import util.TransactionType;
 import java.math.BigDecimal;
@@ -31,7 +32,8 @@ class ReportingIntegrationTest {
         reportingService = new ReportingService(
                 repository.getTransactionRepository(),
                 repository.getBudgetRepository(),
-                precisionEngine
+                precisionEngine,
+                MonthlyRollupStore.attachTo(repository.getTransactionRepository())
         );
 
         // 初始化环境
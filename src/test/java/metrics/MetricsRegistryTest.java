@@ -0,0 +1,154 @@
+package metrics;
+
+import model.Account;
+import model.Category;
+import model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.InMemoryDataRepository;
+import repository.TransactionFilter;
+import service.AccountLockManager;
+import service.PrecisionEngine;
+import util.TransactionType;
+import util.ValidationException;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MetricsRegistryTest {
+    private MetricsRegistry registry;
+    private InMemoryDataRepository repository;
+    private InstrumentedTransactionRepository transactions;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+        repository = new InMemoryDataRepository();
+        transactions = new InstrumentedTransactionRepository(repository.getTransactionRepository(), registry);
+        repository.getAccountRepository().save(new Account("ACC_1", "现金", new BigDecimal("100.00")));
+        repository.getCategoryRepository().save(new Category("CAT_FOOD", "餐饮", TransactionType.EXPENSE));
+    }
+
+    // 1. 百分位的相对误差不超过 1/32, 最大值与计数准确
+    @Test
+    void testHistogram_PercentilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        SplittableRandom random = new SplittableRandom(7);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextLong(1, 10_000_000_000L);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(values.length, snapshot.getCount());
+        assertEquals(values[values.length - 1], snapshot.getMax());
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long estimate = snapshot.getValueAtPercentile(percentile);
+            assertTrue(estimate >= exact && estimate <= exact + exact / 32,
+                    percentile + "%: " + estimate + " vs " + exact);
+        }
+        for (long value : new long[]{0, 63, 64, 65, 1_000_003, Long.MAX_VALUE}) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(Histogram.highestValueIn(bucket) >= value);
+            assertTrue(bucket == 0 || Histogram.highestValueIn(bucket - 1) < value);
+        }
+    }
+
+    // 2. 存储库装饰器: 查询记录扫描行数与返回行数 (按类别索引只扫描命中的行, 谓词查询扫描全部)
+    @Test
+    void testInstrumentedRepository_RecordsRowsScanned() {
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new Transaction("TX_" + i, BigDecimal.ONE, TransactionType.EXPENSE,
+                    LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i), i < 10 ? "CAT_FOOD" : "CAT_OTHER", "ACC_1"));
+        }
+        transactions.saveAll(batch);
+
+        assertEquals(10, transactions.query(TransactionFilter.all().withCategory("CAT_FOOD")).size());
+        assertEquals(10, transactions.query(tx -> tx.getTransactionId().endsWith("7")).size());
+
+        Histogram.Snapshot scanned = registry.getHistograms().get("repository.transaction.query.rowsScanned");
+        Histogram.Snapshot returned = registry.getHistograms().get("repository.transaction.query.rowsReturned");
+        assertEquals(2, scanned.getCount());
+        assertEquals(10, scanned.getValueAtPercentile(50));
+        assertEquals(100, scanned.getMax());
+        assertEquals(10, returned.getMax());
+        assertEquals(1, registry.getHistograms().get("repository.transaction.queryByFilter").getCount());
+        assertEquals(1, registry.getHistograms().get("repository.transaction.saveAll").getCount());
+    }
+
+    // 3. 服务装饰器: 成功与失败的调用都计时, 失败另计入 ".errors"
+    @Test
+    void testInstrumentedService_CountsFailures() {
+        InstrumentedTransactionService service = new InstrumentedTransactionService(transactions,
+                repository.getAccountRepository(), repository.getCategoryRepository(),
+                new PrecisionEngine(), new AccountLockManager(), registry);
+
+        service.recordTransaction(new Transaction(new BigDecimal("5.00"), TransactionType.EXPENSE,
+                LocalDateTime.now(), "CAT_FOOD", "ACC_1"));
+        assertThrows(ValidationException.class, () -> service.recordTransaction(new Transaction(
+                new BigDecimal("-1"), TransactionType.EXPENSE, LocalDateTime.now(), "CAT_FOOD", "ACC_1")));
+
+        assertEquals(2, registry.getHistograms().get("service.transaction.recordTransaction").getCount());
+        assertEquals(1L, registry.getCounters().get("service.transaction.recordTransaction.errors"));
+        assertEquals(1, registry.getHistograms().get("repository.transaction.save").getCount());
+    }
+
+    // 4. 通过 JMX 读取计数器与直方图
+    @Test
+    void testRegisterMBean_ReadableThroughJmx() throws Exception {
+        registry.counter("demo.count").add(3);
+        registry.histogram("demo.latency").record(1_000);
+        ObjectName name = registry.registerMBean("BookKeeper:type=Metrics,name=test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            TabularData counters = (TabularData) server.getAttribute(name, "Counters");
+            assertEquals(3L, counters.get(new Object[]{"demo.count"}).get("value"));
+            TabularData histograms = (TabularData) server.getAttribute(name, "Histograms");
+            assertEquals(1000L, ((CompositeData)
+                    histograms.get(new Object[]{"demo.latency"}).get("value")).get("max"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    // 5. 热点路径上的记录不分配对象
+    @Test
+    void testRecording_IsAllocationFree() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+        Timer timer = registry.timer("hot.path");
+        for (int i = 0; i < 20_000; i++) {
+            timer.stop(timer.start()); // 预热
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            long start = timer.start();
+            timer.stop(start);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(allocated < 1024, "分配了 " + allocated + " 字节");
+        assertEquals(120_000, timer.getLatency().getCount());
+    }
+}
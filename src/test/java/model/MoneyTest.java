@@ -0,0 +1,64 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import service.PrecisionEngine;
+import util.ValidationException;
+import java.math.BigDecimal;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    // 1. BigDecimal 与分之间的互转, 超出两位小数按 HALF_UP 舍入
+    @Test
+    void testToCents_RoundTrip() {
+        assertEquals(1050L, Money.toCents(new BigDecimal("10.50")));
+        assertEquals(1056L, Money.toCents(new BigDecimal("10.555")));
+        assertEquals(-1L, Money.toCents(new BigDecimal("-0.005")));
+        assertEquals(new BigDecimal("10.50"), Money.toBigDecimal(1050L));
+        assertEquals(new BigDecimal("0.00"), Money.ZERO.toBigDecimal());
+    }
+
+    // 2. 超出 long 范围的金额抛出校验异常
+    @Test
+    void testToCents_OutOfRange() {
+        assertThrows(ValidationException.class, () -> Money.toCents(new BigDecimal("1E+20")));
+    }
+
+    // 3. 加减法溢出检查
+    @Test
+    void testAddSubtract_Overflow() {
+        assertThrows(ValidationException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ValidationException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+        assertEquals(Long.MAX_VALUE, Money.add(Long.MAX_VALUE - 1, 1));
+        assertThrows(ValidationException.class, () -> Money.ofCents(Long.MIN_VALUE).negate());
+    }
+
+    // 4. 值对象语义
+    @Test
+    void testValueSemantics() {
+        Money a = Money.of(new BigDecimal("1.10"));
+        Money b = Money.ofCents(110);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals("2.20", a.plus(b).toString());
+        assertEquals(Money.ZERO, a.minus(b));
+        assertTrue(a.compareTo(Money.ofCents(111)) < 0);
+    }
+
+    // 5. 定点数求和与 BigDecimal 求和逐分一致
+    @Test
+    void testCalculateSum_MatchesBigDecimal() {
+        PrecisionEngine engine = new PrecisionEngine();
+        Random random = new Random(42);
+        long[] cents = new long[10_000];
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < cents.length; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(10_000_000) + 1, 2);
+            cents[i] = engine.toCents(amount);
+            expected = expected.add(amount);
+        }
+        assertEquals(expected, engine.fromCents(engine.calculateSum(cents)));
+        assertEquals(cents[1] + cents[2], engine.calculateSum(cents, 1, 3));
+    }
+}
@@ -0,0 +1,88 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import util.TransactionType;
+import util.ValidationException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionTest {
+
+    // 1. 紧凑存储的金额与时间还原后与传入值相等 (含小数位数、纳秒、超出 long 的金额与 null)
+    @Test
+    void testCompactFields_RoundTrip() {
+        LocalDateTime time = LocalDateTime.of(1969, 12, 31, 23, 59, 59, 123_456_789);
+        Transaction tx = new Transaction(new BigDecimal("10.5"), TransactionType.INCOME, time, "CAT_1", "ACC_1");
+        assertEquals(new BigDecimal("10.5"), tx.getAmount());
+        assertEquals(time, tx.getDateTime());
+
+        BigDecimal huge = new BigDecimal("123456789012345678901234567890.12");
+        Transaction wide = new Transaction(huge, TransactionType.EXPENSE, null, null, null);
+        assertEquals(huge, wide.getAmount());
+        assertNull(wide.getDateTime());
+        assertNull(wide.getCategoryId());
+        assertNull(wide.getAccountId());
+        assertNull(new Transaction(null, TransactionType.EXPENSE, time, "CAT_1", "ACC_1").getAmount());
+    }
+
+    // 2. 类别与账户ID经规范化去重, 不同交易返回同一个字符串实例
+    @Test
+    void testIds_AreInterned() {
+        Transaction a = new Transaction(BigDecimal.ONE, TransactionType.EXPENSE, null,
+                new String("CAT_SHARED"), new String("ACC_SHARED"));
+        Transaction b = new Transaction(BigDecimal.ONE, TransactionType.EXPENSE, null,
+                new String("CAT_SHARED"), new String("ACC_SHARED"));
+        assertEquals("CAT_SHARED", a.getCategoryId());
+        assertSame(a.getCategoryId(), b.getCategoryId());
+        assertSame(a.getAccountId(), b.getAccountId());
+    }
+
+    // 3. 状态默认 COMPLETED, 可设置为其他值或 null; 空列表共享同一实例
+    @Test
+    void testStatusAndLists() {
+        Transaction tx = new Transaction(BigDecimal.ONE, TransactionType.EXPENSE, null, "CAT_1", "ACC_1");
+        assertEquals("COMPLETED", tx.getStatus());
+        tx.setStatus("PENDING");
+        assertEquals("PENDING", tx.getStatus());
+        tx.setStatus(null);
+        assertNull(tx.getStatus());
+
+        assertNull(tx.getTags());
+        tx.setTags(new ArrayList<>());
+        assertSame(List.of(), tx.getTags());
+        tx.setAttachmentIds(List.of("ATT_1"));
+        assertEquals(List.of("ATT_1"), tx.getAttachmentIds());
+    }
+
+    // 4. 基本类型访问器与对象 getter 一致 (各种小数位数、超出 long 的金额、无金额与无时间)
+    @Test
+    void testPrimitiveAccessors_MatchObjectGetters() {
+        LocalDateTime time = LocalDateTime.of(1969, 12, 31, 23, 59, 59, 123_456_789);
+        for (String amount : new String[]{"12", "12.3", "12.34", "12.345", "-0.5", "1E+3"}) {
+            Transaction tx = new Transaction(new BigDecimal(amount), TransactionType.EXPENSE, time, "CAT_1", "ACC_1");
+            assertTrue(tx.hasAmount());
+            assertEquals(Money.toCents(new BigDecimal(amount)), tx.getAmountCents(), amount);
+        }
+        Transaction overflow = new Transaction(new BigDecimal(Long.MAX_VALUE), TransactionType.EXPENSE, time, null, null);
+        assertThrows(ValidationException.class, overflow::getAmountCents);
+
+        Transaction tx = new Transaction(new BigDecimal("1.00"), TransactionType.EXPENSE, time, "CAT_1", "ACC_1");
+        assertTrue(tx.hasDateTime());
+        assertEquals(time.toEpochSecond(ZoneOffset.UTC), tx.getEpochSecond());
+        assertEquals(time.getNano(), tx.getNano());
+        assertEquals(time.toLocalDate(), tx.getDate());
+        assertEquals(YearMonth.of(1969, 12), tx.getYearMonth());
+
+        Transaction empty = new Transaction(null, TransactionType.EXPENSE, null, null, null);
+        assertFalse(empty.hasAmount());
+        assertEquals(0, empty.getAmountCents());
+        assertFalse(empty.hasDateTime());
+        assertEquals(Transaction.NO_DATE, empty.getEpochSecond());
+        assertNull(empty.getYearMonth());
+    }
+}
@@ -0,0 +1,130 @@
+package repository;
+
+import model.Attachment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttachmentBlobStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] receipt(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        return data;
+    }
+
+    private static long countBlobs(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    // 1. 相同内容只存一份; 两个附件引用同一个哈希, 内容通过内存映射读取
+    @Test
+    void testStore_DeduplicatesByContent() throws IOException {
+        AttachmentBlobStore store = AttachmentBlobStore.open(dir.resolve("blobs"));
+        byte[] data = receipt(100_000);
+
+        Attachment first = store.store(data);
+        Attachment second = store.store(data.clone());
+
+        assertNotEquals(first.getAttachmentId(), second.getAttachmentId());
+        assertEquals(first.getContentHash(), second.getContentHash());
+        assertEquals(1, countBlobs(dir.resolve("blobs")));
+        assertFalse(first.isInline());
+        assertEquals(100_000, first.getSize());
+
+        ByteBuffer buffer = first.getImageBuffer();
+        assertTrue(buffer instanceof MappedByteBuffer || buffer.isDirect());
+        assertTrue(buffer.isReadOnly());
+        assertEquals(ByteBuffer.wrap(data), buffer);
+        assertArrayEquals(data, second.getImageData());
+    }
+
+    // 2. 从通道流式写入与读出, 哈希与按字节数组写入一致
+    @Test
+    void testStore_StreamsThroughChannels() throws IOException {
+        AttachmentBlobStore store = AttachmentBlobStore.open(dir.resolve("blobs"));
+        byte[] data = receipt(300_000);
+
+        Attachment streamed = store.store(Channels.newChannel(new ByteArrayInputStream(data)));
+
+        assertEquals(store.put(data), streamed.getContentHash());
+        assertEquals(data.length, streamed.getSize());
+        ByteBuffer copy = ByteBuffer.allocate(data.length + 1);
+        try (ReadableByteChannel channel = streamed.openImageChannel()) {
+            while (channel.read(copy) >= 0) {
+                assertTrue(copy.hasRemaining());
+            }
+        }
+        copy.flip();
+        assertEquals(ByteBuffer.wrap(data), copy);
+    }
+
+    // 3. 持久化存储库只记录哈希: 重新打开后内容仍可读, 无引用的内容可被回收
+    @Test
+    void testPersistentRepository_ReferencesBlobsAcrossReopen() throws IOException {
+        Path dataDir = dir.resolve("data");
+        byte[] data = "发票".getBytes(StandardCharsets.UTF_8);
+        String attachmentId;
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dataDir, WriteAheadLog.DurabilityMode.PER_WRITE)) {
+            Attachment attachment = repo.getBlobStore().store(data);
+            attachmentId = attachment.getAttachmentId();
+            repo.getAttachmentRepository().save(attachment);
+            repo.getBlobStore().put(receipt(10));
+            assertTrue(Files.size(repo.getLogPath()) < 200);
+            assertEquals(1, repo.purgeUnreferencedBlobs());
+        }
+
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dataDir, WriteAheadLog.DurabilityMode.PER_WRITE)) {
+            assertArrayEquals(data, repo.getAttachmentRepository().findById(attachmentId).get().getImageData());
+            repo.checkpoint();
+        }
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dataDir, WriteAheadLog.DurabilityMode.PER_WRITE)) {
+            Attachment restored = repo.getAttachmentRepository().findById(attachmentId).get();
+            assertEquals(ByteBuffer.wrap(data), restored.getImageBuffer());
+        }
+    }
+
+    // 4. 备份带上被引用的内容, 恢复到另一个目录时一并导入
+    @Test
+    void testBackupAndRestore_CopiesBlobs() throws IOException {
+        Path backup = dir.resolve("backup.bin");
+        byte[] data = receipt(4096);
+        String attachmentId;
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir.resolve("a"), WriteAheadLog.DurabilityMode.PER_WRITE)) {
+            Attachment attachment = repo.getBlobStore().store(data);
+            attachmentId = attachment.getAttachmentId();
+            repo.getAttachmentRepository().save(attachment);
+            repo.getAttachmentRepository().save(new Attachment("ATT_INLINE", new byte[]{7}));
+            repo.backupTo(backup);
+        }
+        assertEquals(1, countBlobs(dir.resolve("backup.bin.blobs")));
+
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir.resolve("b"), WriteAheadLog.DurabilityMode.PER_WRITE)) {
+            repo.restoreFrom(backup);
+            assertArrayEquals(data, repo.getAttachmentRepository().findById(attachmentId).get().getImageData());
+            assertArrayEquals(new byte[]{7}, repo.getAttachmentRepository().findById("ATT_INLINE").get().getImageData());
+            assertEquals(0, repo.getBlobStore().retainOnly(Set.of(repo.getAttachmentRepository()
+                    .findById(attachmentId).get().getContentHash())));
+        }
+    }
+}
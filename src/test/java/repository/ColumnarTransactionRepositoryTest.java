@@ -0,0 +1,103 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+import model.Transaction;
+import util.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对列式实现运行与内存实现相同的用例, 另外覆盖列式特有的行为
+ */
+class ColumnarTransactionRepositoryTest extends InMemoryTransactionRepositoryTest {
+
+    @Override
+    protected ITransactionRepository newRepository() {
+        return new ColumnarTransactionRepository();
+    }
+
+    // 9. 取出的交易保留全部字段
+    @Test
+    void testMaterialize_RoundTripsAllFields() {
+        Transaction tx = new Transaction(new BigDecimal("12.34"), TransactionType.INCOME,
+                LocalDateTime.of(2024, 2, 29, 13, 45, 6, 789), "CAT_A", "ACC_1");
+        tx.setMemo("午饭");
+        tx.setTags(List.of("food", "work"));
+        tx.setAttachmentIds(List.of("ATT_1"));
+        tx.setStatus("PENDING");
+        repo.save(tx);
+
+        Transaction loaded = repo.findById(tx.getTransactionId()).get();
+        assertEquals(tx.getAmount(), loaded.getAmount());
+        assertEquals(tx.getType(), loaded.getType());
+        assertEquals(tx.getDateTime(), loaded.getDateTime());
+        assertEquals(tx.getCategoryId(), loaded.getCategoryId());
+        assertEquals(tx.getAccountId(), loaded.getAccountId());
+        assertEquals("午饭", loaded.getMemo());
+        assertEquals(List.of("food", "work"), loaded.getTags());
+        assertEquals(List.of("ATT_1"), loaded.getAttachmentIds());
+        assertEquals("PENDING", loaded.getStatus());
+    }
+
+    // 10. 删除中间行后, 被移动的行仍能按ID找到
+    @Test
+    void testDelete_SwapsLastRowIntoHole() {
+        Transaction a = tx("1.00", LocalDateTime.of(2024, 1, 1, 0, 0));
+        Transaction b = tx("2.00", LocalDateTime.of(2024, 1, 2, 0, 0));
+        Transaction c = tx("3.00", LocalDateTime.of(2024, 1, 3, 0, 0));
+        repo.deleteById(a.getTransactionId());
+
+        assertTrue(repo.findById(a.getTransactionId()).isEmpty());
+        assertEquals(new BigDecimal("3.00"), repo.findById(c.getTransactionId()).get().getAmount());
+        assertEquals(ids(b, c), ids(repo.findAll().stream().sorted(InMemoryTransactionRepository.BY_TIME)
+                .collect(Collectors.toList())));
+    }
+
+    // 11. 列上的按月聚合与逐笔聚合结果一致
+    @Test
+    void testAggregateByMonth_MatchesRowBasedAggregation() {
+        Random random = new Random(7);
+        String[] cats = {"CAT_A", "CAT_B", "CAT_C"};
+        for (int i = 0; i < 200_000; i++) {
+            tx(BigDecimal.valueOf(random.nextInt(100_000) + 1, 2).toPlainString(),
+                    random.nextBoolean() ? TransactionType.INCOME : TransactionType.EXPENSE,
+                    LocalDateTime.of(1999, 12, 31, 0, 0).plusMinutes(random.nextInt(20_000_000)),
+                    cats[random.nextInt(cats.length)], random.nextBoolean() ? "ACC_1" : "ACC_2");
+        }
+        TransactionFilter filter = TransactionFilter.all().withAccount("ACC_1");
+
+        Map<YearMonth, Map<MonthlyRollupStore.Key, MonthlyRollupStore.Totals>> columnar = repo.aggregateByMonth(filter);
+        Map<YearMonth, Map<MonthlyRollupStore.Key, MonthlyRollupStore.Totals>> expected =
+                MonthlyRollupStore.aggregate(repo.query(filter));
+
+        assertEquals(expected.keySet(), columnar.keySet());
+        expected.forEach((month, entries) -> {
+            assertEquals(entries.keySet(), columnar.get(month).keySet());
+            entries.forEach((key, totals) -> {
+                assertEquals(totals.getCents(), columnar.get(month).get(key).getCents());
+                assertEquals(totals.getCount(), columnar.get(month).get(key).getCount());
+            });
+        });
+    }
+
+    // 12. 纪元秒到月份的换算与 java.time 一致
+    @Test
+    void testMonthIndexOf() {
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            long second = random.nextLong() % 100_000_000_000L;
+            YearMonth expected = YearMonth.from(LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC));
+            assertEquals(expected.getYear() * 12 + expected.getMonthValue() - 1,
+                    ColumnarTransactionRepository.monthIndexOf(second));
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import model.Transaction;
+import util.TransactionType;
+import util.ValidationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryTransactionRepositoryTest {
+    protected ITransactionRepository repo;
+
+    /**
+     * 子类可覆盖以对其他实现运行同一组用例
+     */
+    protected ITransactionRepository newRepository() {
+        return new InMemoryDataRepository().getTransactionRepository();
+    }
+
+    @BeforeEach
+    void setUp() {
+        repo = newRepository();
+    }
+
+    protected static List<String> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getTransactionId).collect(Collectors.toList());
+    }
+
+    protected static List<String> ids(Transaction... transactions) {
+        return ids(List.of(transactions));
+    }
+
+    protected Transaction tx(String amount, LocalDateTime dateTime) {
+        return tx(amount, TransactionType.EXPENSE, dateTime, "CAT_1", "ACC_1");
+    }
+
+    protected Transaction tx(String amount, TransactionType type, LocalDateTime dateTime, String catId, String accId) {
+        return repo.save(new Transaction(new BigDecimal(amount), type, dateTime, catId, accId));
+    }
+
+    // 1. 时间范围查询为闭区间, 结果按时间升序
+    @Test
+    void testFindByDateRange_InclusiveAndSorted() {
+        Transaction march = tx("3.00", LocalDateTime.of(2024, 3, 1, 0, 0));
+        Transaction jan = tx("1.00", LocalDateTime.of(2024, 1, 15, 12, 0));
+        Transaction feb = tx("2.00", LocalDateTime.of(2024, 2, 29, 23, 59, 59, 999_999_999));
+
+        List<Transaction> result = repo.findByDateRange(
+                LocalDateTime.of(2024, 1, 15, 12, 0), LocalDateTime.of(2024, 3, 1, 0, 0));
+        assertEquals(ids(jan, feb, march), ids(result));
+
+        assertEquals(ids(feb), ids(repo.findByDateRange(
+                LocalDateTime.of(2024, 2, 1, 0, 0), LocalDateTime.of(2024, 2, 29, 23, 59, 59, 999_999_999))));
+    }
+
+    // 2. 同一时刻的多笔交易都应被索引
+    @Test
+    void testFindByDateRange_SameTimestamp() {
+        LocalDateTime t = LocalDateTime.of(2024, 5, 1, 8, 0);
+        tx("1.00", t);
+        tx("2.00", t);
+        tx("3.00", t);
+        assertEquals(3, repo.findByDateRange(t, t).size());
+    }
+
+    // 3. 开放边界
+    @Test
+    void testFindByDateRange_OpenBounds() {
+        tx("1.00", LocalDateTime.of(2023, 12, 31, 0, 0));
+        tx("2.00", LocalDateTime.of(2024, 6, 1, 0, 0));
+        assertEquals(1, repo.findByDateRange(null, LocalDateTime.of(2024, 1, 1, 0, 0)).size());
+        assertEquals(1, repo.findByDateRange(LocalDateTime.of(2024, 1, 1, 0, 0), null).size());
+        assertEquals(2, repo.findByDateRange(null, null).size());
+    }
+
+    // 4. 删除与覆盖保存后索引同步更新
+    @Test
+    void testIndexFollowsDeleteAndOverwrite() {
+        LocalDateTime t = LocalDateTime.of(2024, 7, 1, 0, 0);
+        Transaction a = tx("1.00", t);
+        Transaction b = tx("2.00", t);
+
+        repo.deleteById(a.getTransactionId());
+        assertEquals(ids(b), ids(repo.findByDateRange(t, t)));
+
+        repo.save(b);
+        assertEquals(1, repo.findByDateRange(null, null).size());
+    }
+
+    // 5. 起点晚于终点时返回空
+    @Test
+    void testFindByDateRange_InvertedRange() {
+        tx("1.00", LocalDateTime.of(2024, 1, 1, 0, 0));
+        assertTrue(repo.findByDateRange(LocalDateTime.of(2024, 2, 1, 0, 0), LocalDateTime.of(2024, 1, 1, 0, 0)).isEmpty());
+    }
+
+    // 6. 组合条件: 类别 + 账户 + 类型 + 时间范围, 结果按时间升序
+    @Test
+    void testQueryFilter_Combined() {
+        LocalDateTime base = LocalDateTime.of(2024, 4, 1, 0, 0);
+        Transaction hit2 = tx("2.00", TransactionType.EXPENSE, base.plusDays(2), "CAT_A", "ACC_1");
+        Transaction hit1 = tx("1.00", TransactionType.EXPENSE, base.plusDays(1), "CAT_A", "ACC_1");
+        tx("3.00", TransactionType.INCOME, base.plusDays(1), "CAT_A", "ACC_1");
+        tx("4.00", TransactionType.EXPENSE, base.plusDays(1), "CAT_B", "ACC_1");
+        tx("5.00", TransactionType.EXPENSE, base.plusDays(1), "CAT_A", "ACC_2");
+        tx("6.00", TransactionType.EXPENSE, base.plusMonths(1), "CAT_A", "ACC_1");
+
+        TransactionFilter filter = TransactionFilter.all()
+                .withCategory("CAT_A")
+                .withAccount("ACC_1")
+                .withType(TransactionType.EXPENSE)
+                .between(base, base.plusDays(10));
+        assertEquals(ids(hit1, hit2), ids(repo.query(filter)));
+    }
+
+    // 7. 未知的类别/账户直接返回空, 空条件返回全部 (含无日期的交易)
+    @Test
+    void testQueryFilter_UnknownKeyAndEmptyFilter() {
+        tx("1.00", TransactionType.EXPENSE, LocalDateTime.of(2024, 1, 1, 0, 0), "CAT_A", "ACC_1");
+        tx("2.00", TransactionType.INCOME, null, "CAT_B", "ACC_1");
+
+        assertTrue(repo.query(TransactionFilter.all().withCategory("NOPE")).isEmpty());
+        assertEquals(2, repo.query(TransactionFilter.all()).size());
+        assertEquals(1, repo.query(TransactionFilter.all().withType(TransactionType.INCOME)).size());
+    }
+
+    // 8. 删除后二级索引同步更新
+    @Test
+    void testQueryFilter_IndexFollowsDelete() {
+        Transaction a = tx("1.00", TransactionType.EXPENSE, LocalDateTime.of(2024, 1, 1, 0, 0), "CAT_A", "ACC_1");
+        repo.deleteById(a.getTransactionId());
+        assertTrue(repo.query(TransactionFilter.all().withCategory("CAT_A")).isEmpty());
+        assertTrue(repo.query(TransactionFilter.all().withAccount("ACC_1")).isEmpty());
+    }
+
+    // 13. stream 与 query 返回相同的行且顺序一致 (含无日期的交易与等值条件)
+    @Test
+    void testStream_MatchesQueryOrder() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 50; i++) {
+            tx("1.00", i % 2 == 0 ? TransactionType.EXPENSE : TransactionType.INCOME,
+                    i % 10 == 0 ? null : base.plusHours(i * 37L % 100), "CAT_" + (i % 3), "ACC_" + (i % 4));
+        }
+        List<TransactionFilter> filters = List.of(
+                TransactionFilter.all(),
+                TransactionFilter.all().withCategory("CAT_1"),
+                TransactionFilter.all().withAccount("ACC_2").withType(TransactionType.EXPENSE),
+                TransactionFilter.all().between(base.plusHours(10), base.plusHours(60)),
+                TransactionFilter.all().withCategory("NOPE"));
+        for (TransactionFilter filter : filters) {
+            assertEquals(ids(repo.query(filter)),
+                    repo.stream(filter).map(Transaction::getTransactionId).collect(Collectors.toList()), filter.toString());
+        }
+    }
+
+    // 14. 逐页翻完等于对查询结果整体排序, 各种排序方式与条件下都不重复、不遗漏 (含无日期与同金额的交易)
+    @Test
+    void testPage_WalksAllPagesInSortOrder() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 60; i++) {
+            tx((i * 7 % 13 + 1) + ".00", i % 2 == 0 ? TransactionType.EXPENSE : TransactionType.INCOME,
+                    i % 9 == 0 ? null : base.plusHours(i * 37L % 100), "CAT_" + (i % 3), "ACC_" + (i % 4));
+        }
+        List<TransactionFilter> filters = List.of(
+                TransactionFilter.all(),
+                TransactionFilter.all().withCategory("CAT_1"),
+                TransactionFilter.all().between(base.plusHours(10), base.plusHours(60)),
+                TransactionFilter.all().withCategory("NOPE"));
+        for (PageRequest.Sort sort : PageRequest.Sort.values()) {
+            for (TransactionFilter filter : filters) {
+                List<Transaction> expected = new ArrayList<>(repo.query(filter));
+                expected.sort(sort.comparator());
+
+                List<Transaction> walked = new ArrayList<>();
+                PageRequest request = PageRequest.first(7, sort);
+                Page page;
+                do {
+                    page = repo.page(filter, request);
+                    assertTrue(page.getItems().size() <= 7);
+                    walked.addAll(page.getItems());
+                    request = request.after(page.getNextCursor());
+                } while (page.hasNext());
+                assertEquals(ids(expected), ids(walked), sort + " " + filter);
+            }
+        }
+    }
+
+    // 15. 翻页期间插入与删除的交易不会使后续页重复或遗漏未改动的交易; top 取最近的 k 笔
+    @Test
+    void testPage_KeysetStableUnderWrites() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Transaction> all = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            all.add(tx("1.00", base.plusDays(i)));
+        }
+        assertEquals(ids(all.get(9), all.get(8), all.get(7)),
+                ids(repo.top(TransactionFilter.all(), PageRequest.Sort.TIME_DESC, 3)));
+
+        Page first = repo.page(TransactionFilter.all(), PageRequest.first(4, PageRequest.Sort.TIME_ASC));
+        assertEquals(ids(all.subList(0, 4)), ids(first.getItems()));
+        tx("1.00", base.minusDays(1)); // 插在已翻过的位置
+        repo.deleteById(all.get(2).getTransactionId());
+        repo.deleteById(all.get(5).getTransactionId());
+
+        Page second = repo.page(TransactionFilter.all(),
+                PageRequest.first(4, PageRequest.Sort.TIME_ASC).after(first.getNextCursor()));
+        assertEquals(ids(all.get(4), all.get(6), all.get(7), all.get(8)), ids(second.getItems()));
+        assertThrows(ValidationException.class, () -> PageRequest.first(4, PageRequest.Sort.AMOUNT_ASC)
+                .after(first.getNextCursor()));
+    }
+}
@@ -0,0 +1,269 @@
+package repository;
+
+import model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.TransactionType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentDataRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    private static Transaction tx(String id, String amount, String accountId) {
+        Transaction tx = new Transaction(id, new BigDecimal(amount), TransactionType.EXPENSE,
+                LocalDateTime.of(2024, 3, 15, 12, 30, 45, 123_000_000), "CAT_1", accountId);
+        tx.setMemo("午餐");
+        tx.setTags(List.of("餐饮", "工作日"));
+        return tx;
+    }
+
+    // 1. 三种持久化模式下, 各类实体都能在重新打开后完整恢复
+    @Test
+    void testReopen_RestoresAllEntities_InEveryMode() throws IOException {
+        for (WriteAheadLog.DurabilityMode mode : WriteAheadLog.DurabilityMode.values()) {
+            Path modeDir = dir.resolve(mode.name());
+            try (PersistentDataRepository repo = PersistentDataRepository.open(modeDir, mode)) {
+                repo.getAccountRepository().save(new Account("ACC_1", "现金", new BigDecimal("88.50")));
+                repo.getCategoryRepository().save(new Category("CAT_1", "餐饮", TransactionType.EXPENSE));
+                repo.getBudgetRepository().save(new Budget("BUD_1", new BigDecimal("500"), null));
+                repo.getAttachmentRepository().save(new Attachment("ATT_1", new byte[]{1, 2, 3}));
+                repo.getTransactionRepository().save(tx("TX_1", "12.34", "ACC_1"));
+                Transaction transfer = new Transaction("TX_2", new BigDecimal("5.00"), TransactionType.TRANSFER,
+                        LocalDateTime.of(2024, 3, 16, 8, 0), null, "ACC_1");
+                transfer.setCounterAccountId("ACC_2");
+                repo.getTransactionRepository().save(transfer);
+            }
+
+            try (PersistentDataRepository repo = PersistentDataRepository.open(modeDir, mode)) {
+                assertEquals(new BigDecimal("88.50"), repo.getAccountRepository().findById("ACC_1").get().getBalance());
+                assertEquals("餐饮", repo.getCategoryRepository().findById("CAT_1").get().getName());
+                assertNull(repo.getBudgetRepository().findById("BUD_1").get().getCategoryId());
+                assertArrayEquals(new byte[]{1, 2, 3}, repo.getAttachmentRepository().findById("ATT_1").get().getImageData());
+
+                Transaction restored = repo.getTransactionRepository().findById("TX_1").get();
+                assertEquals(new BigDecimal("12.34"), restored.getAmount());
+                assertEquals(LocalDateTime.of(2024, 3, 15, 12, 30, 45, 123_000_000), restored.getDateTime());
+                assertEquals("午餐", restored.getMemo());
+                assertEquals(List.of("餐饮", "工作日"), restored.getTags());
+                assertEquals("ACC_2", repo.getTransactionRepository().findById("TX_2").get().getCounterAccountId());
+                // 回放后的索引同样可用
+                assertEquals(2, repo.getTransactionRepository().query(TransactionFilter.all().withAccount("ACC_1")).size());
+            }
+        }
+    }
+
+    // 2. 覆盖保存与删除按日志顺序回放
+    @Test
+    void testReplay_AppliesOverwritesAndDeletesInOrder() throws IOException {
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.BATCHED)) {
+            Account account = new Account("ACC_1", "现金", new BigDecimal("10.00"));
+            repo.getAccountRepository().save(account);
+            account.updateBalance(new BigDecimal("5.00"), TransactionType.INCOME);
+            repo.getAccountRepository().save(account);
+            repo.getTransactionRepository().saveAll(List.of(tx("TX_1", "1.00", "ACC_1"), tx("TX_2", "2.00", "ACC_1")));
+            repo.getTransactionRepository().deleteById("TX_1");
+        }
+
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.BATCHED)) {
+            assertEquals(new BigDecimal("15.00"), repo.getAccountRepository().findById("ACC_1").get().getBalance());
+            assertTrue(repo.getTransactionRepository().findById("TX_1").isEmpty());
+            assertTrue(repo.getTransactionRepository().findById("TX_2").isPresent());
+        }
+    }
+
+    // 3. 崩溃时写了一半的尾部记录被丢弃并截断, 之前的记录不受影响, 之后可以继续追加
+    @Test
+    void testRecovery_TruncatesTornTail() throws IOException {
+        Path log;
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.PER_WRITE)) {
+            repo.getTransactionRepository().save(tx("TX_1", "1.00", "ACC_1"));
+            repo.getTransactionRepository().save(tx("TX_2", "2.00", "ACC_1"));
+            log = repo.getLogPath();
+        }
+        long intactSize = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(intactSize - 3); // 模拟最后一条记录只写了一部分
+        }
+
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.PER_WRITE)) {
+            assertTrue(repo.getTransactionRepository().findById("TX_1").isPresent());
+            assertTrue(repo.getTransactionRepository().findById("TX_2").isEmpty());
+            repo.getTransactionRepository().save(tx("TX_3", "3.00", "ACC_1"));
+        }
+
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.PER_WRITE)) {
+            assertEquals(2, repo.getTransactionRepository().findAll().size());
+            assertTrue(repo.getTransactionRepository().findById("TX_3").isPresent());
+        }
+    }
+
+    // 4. 组提交: 并发写入全部落盘, 重新打开后一条不少
+    @Test
+    void testGroupCommit_ConcurrentWritersAreAllDurable() throws Exception {
+        int threads = 8;
+        int perThread = 250;
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.BATCHED)) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        repo.getTransactionRepository().save(tx("TX_" + thread + "_" + i, "1.00", "ACC_" + thread));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.BATCHED)) {
+            assertEquals(threads * perThread, repo.getTransactionRepository().findAll().size());
+            assertEquals(perThread, repo.getTransactionRepository().query(TransactionFilter.all().withAccount("ACC_3")).size());
+        }
+    }
+
+    // 5. 检查点: 旧日志段被删除, 重启时在快照之上回放检查点之后的日志
+    @Test
+    void testCheckpoint_CompactsLogAndRecoversFromSnapshot() throws IOException {
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.BATCHED)) {
+            List<Transaction> batch = new ArrayList<>();
+            for (int i = 0; i < 2 * SnapshotFile.BLOCK_RECORDS + 10; i++) { // 跨越多个数据块
+                batch.add(tx("TX_" + i, "1.00", "ACC_" + (i % 7)));
+            }
+            repo.getTransactionRepository().saveAll(batch);
+            repo.getAccountRepository().save(new Account("ACC_1", "现金", new BigDecimal("1.00")));
+            Path oldLog = repo.getLogPath();
+
+            repo.checkpoint();
+            assertFalse(Files.exists(oldLog));
+            assertTrue(Files.size(repo.getLogPath()) < 100);
+
+            // 检查点之后的写入只存在于新日志段
+            repo.getTransactionRepository().deleteById("TX_0");
+            repo.getAccountRepository().save(new Account("ACC_1", "现金", new BigDecimal("2.00")));
+        }
+
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.BATCHED)) {
+            assertEquals(2 * SnapshotFile.BLOCK_RECORDS + 9, repo.getTransactionRepository().findAll().size());
+            assertTrue(repo.getTransactionRepository().findById("TX_0").isEmpty());
+            assertEquals(new BigDecimal("2.00"), repo.getAccountRepository().findById("ACC_1").get().getBalance());
+            assertEquals(new BigDecimal("1.00"), repo.getTransactionRepository().findById("TX_1").get().getAmount());
+        }
+    }
+
+    // 6. 备份与恢复: 恢复后备份之后新增的实体被删除, 被修改的实体还原
+    @Test
+    void testBackupAndRestore_ReplacesCurrentState() throws IOException {
+        Path backup = dir.resolve("backup.bin");
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir.resolve("data"), WriteAheadLog.DurabilityMode.BATCHED)) {
+            repo.getAccountRepository().save(new Account("ACC_1", "现金", new BigDecimal("100.00")));
+            repo.getTransactionRepository().save(tx("TX_1", "1.00", "ACC_1"));
+            repo.backupTo(backup);
+
+            repo.getAccountRepository().save(new Account("ACC_1", "现金", new BigDecimal("0.00")));
+            repo.getTransactionRepository().save(tx("TX_2", "2.00", "ACC_1"));
+
+            repo.restoreFrom(backup);
+            assertEquals(new BigDecimal("100.00"), repo.getAccountRepository().findById("ACC_1").get().getBalance());
+            assertEquals(List.of("TX_1"), repo.getTransactionRepository().query(TransactionFilter.all())
+                    .stream().map(Transaction::getTransactionId).collect(Collectors.toList()));
+        }
+
+        // 恢复的结果同样是持久的
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir.resolve("data"), WriteAheadLog.DurabilityMode.BATCHED)) {
+            assertTrue(repo.getTransactionRepository().findById("TX_2").isEmpty());
+            assertEquals(new BigDecimal("100.00"), repo.getAccountRepository().findById("ACC_1").get().getBalance());
+        }
+    }
+
+    // 7. 并发写入期间反复检查点, 已提交的写入一条不少
+    @Test
+    void testCheckpoint_DuringConcurrentWrites_LosesNothing() throws Exception {
+        int threads = 4;
+        int perThread = 500;
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.BATCHED)) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        repo.getTransactionRepository().save(tx("TX_" + thread + "_" + i, "1.00", "ACC_" + thread));
+                    }
+                }));
+            }
+            for (int i = 0; i < 5; i++) {
+                repo.checkpoint();
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+            repo.checkpoint();
+        }
+
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.BATCHED)) {
+            assertEquals(threads * perThread, repo.getTransactionRepository().findAll().size());
+        }
+    }
+
+    // 8. 快照写入失败后, 下一次检查点切换到更新的日志段, 失败前后的写入都不会被截断
+    @Test
+    void testCheckpoint_AfterFailedSnapshot_DoesNotTruncateLog() throws IOException {
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.BATCHED)) {
+            repo.getTransactionRepository().save(tx("TX_1", "1.00", "ACC_1"));
+            Path blocker = dir.resolve("snapshot-00000001.bin");
+            Files.createDirectories(blocker);
+            Files.createFile(blocker.resolve("occupied"));
+
+            assertThrows(IOException.class, repo::checkpoint);
+            assertEquals(dir.resolve("wal-00000001.log"), repo.getLogPath());
+            repo.getTransactionRepository().save(tx("TX_2", "2.00", "ACC_1"));
+
+            Files.delete(blocker.resolve("occupied"));
+            Files.delete(blocker);
+            repo.checkpoint();
+            assertEquals(dir.resolve("wal-00000002.log"), repo.getLogPath());
+        }
+
+        try (PersistentDataRepository repo = PersistentDataRepository.open(dir, WriteAheadLog.DurabilityMode.BATCHED)) {
+            assertEquals(2, repo.getTransactionRepository().findAll().size());
+        }
+    }
+
+    // 9. 切换日志段时拒绝覆盖已存在且非空的文件
+    @Test
+    void testRotate_RefusesNonEmptySegment() throws IOException {
+        Path occupied = dir.resolve("other.log");
+        Files.write(occupied, new byte[]{1, 2, 3});
+        try (WriteAheadLog wal = WriteAheadLog.open(dir.resolve("wal-0.log"), WriteAheadLog.DurabilityMode.PER_WRITE,
+                record -> { })) {
+            assertThrows(IOException.class, () -> wal.rotate(occupied));
+            assertThrows(IOException.class, () -> wal.rotate(wal.getPath()));
+            assertEquals(3, Files.size(occupied));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package repository;
+
+import model.Account;
+import model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.TransactionType;
+import util.ValidationException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardManagerTest {
+
+    @TempDir
+    Path dir;
+
+    private static Transaction tx(String amount) {
+        return new Transaction(new BigDecimal(amount), TransactionType.EXPENSE,
+                LocalDateTime.of(2024, 5, 1, 12, 0), "CAT_1", "ACC_1");
+    }
+
+    // 1. 各分片的数据互不可见, 分片ID不能用于逃出根目录
+    @Test
+    void testShards_AreIsolated() {
+        ShardManager<InMemoryDataRepository> shards = ShardManager.inMemory();
+        shards.withShard("alice", repo -> repo.getTransactionRepository().save(tx("1.00")));
+        shards.withShard("alice", repo -> repo.getTransactionRepository().save(tx("2.00")));
+        shards.withShard("bob", repo -> repo.getTransactionRepository().save(tx("3.00")));
+
+        assertEquals(Integer.valueOf(2), shards.withShard("alice", repo -> repo.getTransactionRepository().query(TransactionFilter.all()).size()));
+        assertEquals(Integer.valueOf(1), shards.withShard("bob", repo -> repo.getTransactionRepository().query(TransactionFilter.all()).size()));
+        assertEquals(2, shards.residentCount());
+        assertThrows(ValidationException.class, () -> shards.acquire("../etc"));
+        assertThrows(ValidationException.class, () -> shards.acquire(""));
+    }
+
+    // 2. 超过常驻上限时卸载最久未使用的分片, 再次使用时从磁盘重新加载
+    @Test
+    void testPersistentShards_EvictLeastRecentlyUsed() throws IOException {
+        try (ShardManager<PersistentDataRepository> shards =
+                     ShardManager.persistent(dir, WriteAheadLog.DurabilityMode.PER_WRITE, 2)) {
+            for (String tenant : new String[]{"t1", "t2", "t3"}) {
+                shards.withShard(tenant, repo -> repo.getAccountRepository()
+                        .save(new Account("ACC_1", tenant, BigDecimal.ONE)));
+            }
+
+            assertEquals(2, shards.residentCount());
+            assertFalse(shards.isResident("t1"));
+            assertTrue(shards.isResident("t3"));
+
+            assertEquals("t1", shards.withShard("t1", repo -> repo.getAccountRepository().findById("ACC_1").get().getName()));
+            assertFalse(shards.isResident("t2"));
+        }
+    }
+
+    // 3. 被占用的分片不会被卸载, 释放后才按上限回收
+    @Test
+    void testPinnedShard_IsNotEvicted() throws IOException {
+        try (ShardManager<PersistentDataRepository> shards =
+                     ShardManager.persistent(dir, WriteAheadLog.DurabilityMode.PER_WRITE, 1)) {
+            ShardManager.Lease<PersistentDataRepository> pinned = shards.acquire("t1");
+            shards.withShard("t2", repo -> repo.getTransactionRepository().save(tx("1.00")));
+
+            assertTrue(shards.isResident("t1"));
+            assertFalse(shards.isResident("t2"));
+            assertFalse(shards.unload("t1"));
+            pinned.get().getTransactionRepository().save(tx("2.00"));
+
+            pinned.close();
+            assertThrows(IllegalStateException.class, pinned::get);
+            assertTrue(shards.unload("t1"));
+            assertEquals(0, shards.residentCount());
+            assertEquals(Integer.valueOf(1), shards.withShard("t1", repo -> repo.getTransactionRepository().findAll().size()));
+        }
+    }
+
+    // 4. 回收时卸载失败: 分片继续常驻, 触发回收的调用方不受影响; 显式卸载时才报告错误
+    @Test
+    void testFailedUnload_KeepsShardResident() {
+        AtomicBoolean failUnload = new AtomicBoolean(true);
+        ShardManager<InMemoryDataRepository> shards = new ShardManager<>(new ShardManager.Loader<>() {
+            @Override
+            public InMemoryDataRepository load(String shardId) {
+                return new InMemoryDataRepository();
+            }
+
+            @Override
+            public void unload(String shardId, InMemoryDataRepository shard) throws IOException {
+                if (failUnload.get()) {
+                    throw new IOException("磁盘已满");
+                }
+            }
+        }, 1);
+        shards.withShard("t1", repo -> repo.getTransactionRepository().save(tx("1.00")));
+        shards.withShard("t2", repo -> repo.getTransactionRepository().save(tx("2.00")));
+
+        assertTrue(shards.isResident("t1"));
+        assertEquals(2, shards.residentCount());
+        assertEquals(Integer.valueOf(1), shards.withShard("t1", repo -> repo.getTransactionRepository().findAll().size()));
+        assertThrows(UncheckedIOException.class, () -> shards.unload("t1"));
+        assertTrue(shards.isResident("t1"));
+
+        failUnload.set(false);
+        assertTrue(shards.unload("t1"));
+        assertEquals(1, shards.residentCount());
+    }
+
+    // 5. 卸载在槽位锁外进行; 期间再次占用该分片的线程等卸载结束后才重新加载
+    @Test
+    void testAcquireDuringUnload_WaitsForUnload() throws Exception {
+        CountDownLatch unloadStarted = new CountDownLatch(1);
+        CountDownLatch finishUnload = new CountDownLatch(1);
+        AtomicBoolean unloading = new AtomicBoolean();
+        AtomicBoolean loadedWhileUnloading = new AtomicBoolean();
+        AtomicInteger loads = new AtomicInteger();
+        ShardManager<InMemoryDataRepository> shards = new ShardManager<>(new ShardManager.Loader<>() {
+            @Override
+            public InMemoryDataRepository load(String shardId) {
+                loads.incrementAndGet();
+                loadedWhileUnloading.compareAndSet(false, unloading.get());
+                return new InMemoryDataRepository();
+            }
+
+            @Override
+            public void unload(String shardId, InMemoryDataRepository shard) throws IOException {
+                unloading.set(true);
+                unloadStarted.countDown();
+                try {
+                    finishUnload.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                unloading.set(false);
+            }
+        }, 1);
+        shards.withShard("t1", repo -> repo);
+
+        Thread unloader = new Thread(() -> shards.unload("t1"));
+        unloader.start();
+        unloadStarted.await();
+        assertFalse(shards.isResident("t1"));
+        Thread user = new Thread(() -> shards.withShard("t1", repo -> repo));
+        user.start();
+        while (user.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        finishUnload.countDown();
+        unloader.join();
+        user.join();
+
+        assertEquals(2, loads.get());
+        assertFalse(loadedWhileUnloading.get());
+        assertTrue(shards.isResident("t1"));
+    }
+}
@@ -0,0 +1,138 @@
+package service;
+
+import model.Account;
+import model.Category;
+import model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.InMemoryDataRepository;
+import repository.MonthlyRollupStore;
+import util.DataNotFoundException;
+import util.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncServiceTest {
+    private InMemoryDataRepository repository;
+    private ExecutorService executor;
+    private AsyncTransactionService transactions;
+    private AsyncReportingService reports;
+    private String accountId;
+    private String catId;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryDataRepository();
+        PrecisionEngine engine = new PrecisionEngine();
+        executor = ServiceExecutors.defaultExecutor();
+        transactions = new AsyncTransactionService(new TransactionService(repository.getTransactionRepository(),
+                repository.getAccountRepository(), repository.getCategoryRepository(), engine), executor);
+        reports = new AsyncReportingService(new ReportingService(repository.getTransactionRepository(),
+                repository.getBudgetRepository(), engine,
+                MonthlyRollupStore.attachTo(repository.getTransactionRepository())), executor);
+
+        Account account = new Account("钱包", new BigDecimal("100.00"));
+        repository.getAccountRepository().save(account);
+        accountId = account.getAccountId();
+        Category category = new Category("餐饮", TransactionType.EXPENSE);
+        repository.getCategoryRepository().save(category);
+        catId = category.getCategoryId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    // 1. 并发的录入与报表请求全部完成, 报表看到全部写入
+    @Test
+    void testConcurrentRecordAndReports() {
+        List<CompletableFuture<Transaction>> writes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            writes.add(transactions.recordTransaction(new Transaction(new BigDecimal("1.00"), TransactionType.EXPENSE,
+                    LocalDateTime.of(2024, 6, 1 + i % 28, 12, 0), catId, accountId)));
+        }
+        CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).join();
+
+        List<CompletableFuture<Map<String, BigDecimal>>> overviews = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            overviews.add(reports.getMonthlyOverview(YearMonth.of(2024, 6)));
+        }
+        for (CompletableFuture<Map<String, BigDecimal>> overview : overviews) {
+            assertEquals(new BigDecimal("50.00"), overview.join().get("totalExpense"));
+        }
+    }
+
+    // 2. 业务异常 (如账户不存在) 使 Future 异常完成, 不会抛到调用线程
+    @Test
+    void testFailure_CompletesExceptionally() {
+        CompletableFuture<Void> transfer = transactions.transferFunds(accountId, "ACC_MISSING", new BigDecimal("5.00"));
+        CompletionException failure = assertThrows(CompletionException.class, transfer::join);
+        assertInstanceOf(DataNotFoundException.class, failure.getCause());
+        assertEquals(new BigDecimal("100.00"), repository.getAccountRepository().findById(accountId).get().getBalance());
+    }
+
+    // 3. 有界线程池队列已满时新请求被拒绝, 以异常完成的 Future 返回
+    @Test
+    void testBoundedPool_RejectsWhenSaturated() throws Exception {
+        ExecutorService pool = ServiceExecutors.boundedPool(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            AsyncReportingService blocked = new AsyncReportingService(new ReportingService(
+                    repository.getTransactionRepository(), repository.getBudgetRepository(), new PrecisionEngine(),
+                    MonthlyRollupStore.attachTo(repository.getTransactionRepository())) {
+                @Override
+                public Map<String, BigDecimal> getMonthlyOverview(YearMonth month) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return super.getMonthlyOverview(month);
+                }
+            }, pool);
+
+            CompletableFuture<Map<String, BigDecimal>> running = blocked.getMonthlyOverview(YearMonth.of(2024, 6));
+            CompletableFuture<Map<String, BigDecimal>> queued = blocked.getMonthlyOverview(YearMonth.of(2024, 6));
+            CompletableFuture<Map<String, BigDecimal>> rejected = blocked.getMonthlyOverview(YearMonth.of(2024, 6));
+
+            ExecutionException failure = assertThrows(ExecutionException.class, rejected::get);
+            assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+            release.countDown();
+            assertNotNull(running.get(5, TimeUnit.SECONDS));
+            assertNotNull(queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    // 4. 带日期与备注的转账返回记下的交易
+    @Test
+    void testTransferWithDateAndMemo_ReturnsTransaction() {
+        Account savings = repository.getAccountRepository().save(new Account("储蓄", BigDecimal.ZERO));
+        Transaction recorded = transactions.transferFunds(accountId, savings.getAccountId(), new BigDecimal("5.00"),
+                LocalDateTime.of(2024, 6, 1, 9, 0), "存钱").join();
+
+        assertEquals(TransactionType.TRANSFER, recorded.getType());
+        assertEquals(savings.getAccountId(), recorded.getCounterAccountId());
+        assertEquals("存钱", recorded.getMemo());
+        assertEquals(new BigDecimal("95.00"), repository.getAccountRepository().findById(accountId).get().getBalance());
+        assertEquals(new BigDecimal("5.00"), repository.getAccountRepository().findById(savings.getAccountId()).get().getBalance());
+    }
+}
@@ -0,0 +1,173 @@
+package service;
+
+import model.Account;
+import model.Budget;
+import model.Category;
+import model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.InMemoryDataRepository;
+import util.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BudgetMonitorTest {
+    private InMemoryDataRepository repository;
+    private TransactionService service;
+    private final List<String> alerts = new ArrayList<>();
+
+    private final YearMonth month = YearMonth.of(2024, 3);
+    private final LocalDateTime inMonth = LocalDateTime.of(2024, 3, 10, 9, 30);
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryDataRepository();
+        repository.getAccountRepository().save(new Account("ACC_1", "现金", new BigDecimal("10000.00")));
+        repository.getCategoryRepository().save(new Category("CAT_FOOD", "餐饮", TransactionType.EXPENSE));
+        repository.getCategoryRepository().save(new Category("CAT_RENT", "房租", TransactionType.EXPENSE));
+        repository.getCategoryRepository().save(new Category("CAT_SAL", "工资", TransactionType.INCOME));
+        service = new TransactionService(repository.getTransactionRepository(), repository.getAccountRepository(),
+                repository.getCategoryRepository(), new PrecisionEngine());
+    }
+
+    private BudgetMonitor attach() {
+        BudgetMonitor monitor = BudgetMonitor.attachTo(repository.getTransactionRepository(),
+                repository.getBudgetRepository());
+        monitor.addAlertListener((budget, alertMonth, spent) ->
+                alerts.add(budget.getBudgetId() + "@" + alertMonth + "=" + spent));
+        return monitor;
+    }
+
+    private Transaction record(String amount, TransactionType type, LocalDateTime dateTime, String categoryId) {
+        return service.recordTransaction(new Transaction(new BigDecimal(amount), type, dateTime, categoryId, "ACC_1"));
+    }
+
+    // 1. 类别预算: 第一次超过限额时立即回调, 之后继续超支不重复回调; 刚好等于限额不算超支
+    @Test
+    void testCategoryBudget_FiresOnceWhenExceeded() {
+        repository.getBudgetRepository().save(new Budget("BUD_FOOD", new BigDecimal("100.00"), "CAT_FOOD"));
+        BudgetMonitor monitor = attach();
+
+        record("60.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        record("40.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        record("500.00", TransactionType.EXPENSE, inMonth, "CAT_RENT");
+        assertTrue(alerts.isEmpty());
+
+        record("0.01", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        record("30.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        record("30.00", TransactionType.EXPENSE, inMonth.plusMonths(1), "CAT_FOOD");
+
+        assertEquals(List.of("BUD_FOOD@2024-03=100.01"), alerts);
+        assertEquals(new BigDecimal("130.01"), monitor.getSpent(
+                repository.getBudgetRepository().findById("BUD_FOOD").get(), month));
+    }
+
+    // 2. 总预算统计全部类别的支出, 收入不计入
+    @Test
+    void testTotalBudget_FiresAcrossCategories() {
+        repository.getBudgetRepository().save(new Budget("BUD_TOTAL", new BigDecimal("200.00"), null));
+        BudgetMonitor monitor = attach();
+
+        record("150.00", TransactionType.EXPENSE, inMonth, "CAT_RENT");
+        record("9999.00", TransactionType.INCOME, inMonth, "CAT_SAL");
+        assertTrue(alerts.isEmpty());
+        record("50.50", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+
+        assertEquals(List.of("BUD_TOTAL@2024-03=200.50"), alerts);
+        assertEquals(1, monitor.getExceededBudgets(month).size());
+    }
+
+    // 3. 以已有交易初始化 (不回调); 删除交易回落到限额以内后, 再次超支会再次回调
+    @Test
+    void testSeededState_DeleteThenExceedAgain() {
+        repository.getBudgetRepository().save(new Budget("BUD_FOOD", new BigDecimal("100.00"), "CAT_FOOD"));
+        Transaction big = record("120.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        BudgetMonitor monitor = attach();
+        assertTrue(alerts.isEmpty());
+        assertEquals(1, monitor.getExceededBudgets(month).size());
+
+        repository.getTransactionRepository().deleteById(big.getTransactionId());
+        assertTrue(monitor.getExceededBudgets(month).isEmpty());
+        record("100.50", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+
+        assertEquals(List.of("BUD_FOOD@2024-03=100.50"), alerts);
+    }
+
+    // 4. 编辑交易 (覆盖保存) 时旧金额被扣除; 新增预算后 refreshBudgets 生效
+    @Test
+    void testEditAndRefreshBudgets() {
+        BudgetMonitor monitor = attach();
+        Transaction tx = record("80.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        repository.getTransactionRepository().save(new Transaction(tx.getTransactionId(), new BigDecimal("20.00"),
+                TransactionType.EXPENSE, inMonth, "CAT_FOOD", "ACC_1"));
+
+        Budget food = new Budget("BUD_FOOD", new BigDecimal("50.00"), "CAT_FOOD");
+        repository.getBudgetRepository().save(food);
+        monitor.refreshBudgets();
+        assertEquals(new BigDecimal("20.00"), monitor.getSpent(food, month));
+
+        record("30.01", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        assertEquals(List.of("BUD_FOOD@2024-03=50.01"), alerts);
+    }
+
+    // 5. 并发的写入、删除与 refreshBudgets 交错后, 超支状态与最终的支出合计一致
+    @Test
+    void testConcurrentWrites_ExceededMatchesFinalSpending() throws Exception {
+        Budget food = new Budget("BUD_FOOD", new BigDecimal("50.00"), "CAT_FOOD");
+        repository.getBudgetRepository().save(food);
+        BudgetMonitor monitor = BudgetMonitor.attachTo(repository.getTransactionRepository(),
+                repository.getBudgetRepository());
+
+        int threads = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    Transaction tx = record("60.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+                    repository.getTransactionRepository().deleteById(tx.getTransactionId());
+                }
+            }));
+        }
+        futures.add(pool.submit(() -> {
+            for (int i = 0; i < 200; i++) {
+                monitor.refreshBudgets();
+            }
+        }));
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(new BigDecimal("0.00"), monitor.getSpent(food, month));
+        assertTrue(monitor.getExceededBudgets(month).isEmpty());
+        record("50.01", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        assertEquals(List.of(food), monitor.getExceededBudgets(month));
+    }
+
+    // 6. detach 之后支出合计不再随写入更新, 也不再回调
+    @Test
+    void testDetach_StopsTracking() {
+        repository.getBudgetRepository().save(new Budget("BUD_FOOD", new BigDecimal("10.00"), "CAT_FOOD"));
+        BudgetMonitor monitor = attach();
+        record("5.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+
+        monitor.detach();
+        record("50.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+
+        assertTrue(alerts.isEmpty());
+        assertEquals(new BigDecimal("5.00"), monitor.getSpent(new Budget("BUD_FOOD", new BigDecimal("10.00"), "CAT_FOOD"),
+                YearMonth.from(inMonth)));
+    }
+}
@@ -0,0 +1,101 @@
+package service;
+
+import model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.ITransactionRepository;
+import repository.InMemoryDataRepository;
+import repository.MonthlyRollupStore;
+import util.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingReportingServiceTest {
+    private InMemoryDataRepository repository;
+    private ITransactionRepository txRepo;
+    private MonthlyRollupStore rollups;
+    private CachingReportingService reports;
+
+    private final YearMonth march = YearMonth.of(2024, 3);
+    private final YearMonth april = YearMonth.of(2024, 4);
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryDataRepository();
+        txRepo = repository.getTransactionRepository();
+        rollups = MonthlyRollupStore.attachTo(txRepo);
+        reports = new CachingReportingService(txRepo, repository.getBudgetRepository(), new PrecisionEngine(), rollups, 8);
+    }
+
+    private Transaction save(String amount, YearMonth month, String catId) {
+        return txRepo.save(new Transaction(new BigDecimal(amount), TransactionType.EXPENSE,
+                month.atDay(10).atTime(9, 30), catId, "ACC_1"));
+    }
+
+    // 1. 重复请求同一月份命中缓存, 返回同一份只读结果
+    @Test
+    void testRepeatedRequests_HitCache() {
+        save("10.00", march, "CAT_FOOD");
+
+        Map<String, BigDecimal> first = reports.getMonthlyOverview(march);
+        Map<String, BigDecimal> second = reports.getMonthlyOverview(march);
+        assertSame(first, second);
+        assertEquals(1, reports.getMissCount());
+        assertEquals(1, reports.getHitCount());
+        assertThrows(UnsupportedOperationException.class, () -> first.put("x", BigDecimal.ONE));
+    }
+
+    // 2. 写入只使所在月份的缓存失效, 其他月份继续命中
+    @Test
+    void testWrite_InvalidatesOnlyItsMonth() {
+        save("10.00", march, "CAT_FOOD");
+        save("5.00", april, "CAT_FOOD");
+        reports.getCategoryBreakdown(march);
+        reports.getCategoryBreakdown(april);
+
+        save("2.50", april, "CAT_TAXI");
+        assertEquals(new BigDecimal("10.00"), reports.getCategoryBreakdown(march).get("CAT_FOOD"));
+        assertEquals(new BigDecimal("2.50"), reports.getCategoryBreakdown(april).get("CAT_TAXI"));
+        assertEquals(1, reports.getHitCount());
+        assertEquals(3, reports.getMissCount());
+    }
+
+    // 3. 修改交易的日期时, 原月份与新月份都失效; 删除同理
+    @Test
+    void testUpdateAndDelete_InvalidateBothMonths() {
+        Transaction tx = save("10.00", march, "CAT_FOOD");
+        assertEquals(new BigDecimal("10.00"), reports.getMonthlyOverview(march).get("totalExpense"));
+        assertEquals(new BigDecimal("0.00"), reports.getMonthlyOverview(april).get("totalExpense"));
+
+        txRepo.save(new Transaction(tx.getTransactionId(), tx.getAmount(), tx.getType(),
+                LocalDateTime.of(2024, 4, 2, 8, 0), tx.getCategoryId(), tx.getAccountId()));
+        assertEquals(new BigDecimal("0.00"), reports.getMonthlyOverview(march).get("totalExpense"));
+        assertEquals(new BigDecimal("10.00"), reports.getMonthlyOverview(april).get("totalExpense"));
+
+        txRepo.deleteById(tx.getTransactionId());
+        assertEquals(new BigDecimal("0.00"), reports.getMonthlyOverview(april).get("totalExpense"));
+        assertEquals(0, reports.getHitCount());
+    }
+
+    // 4. 超出容量时淘汰最久未访问的项
+    @Test
+    void testEviction_IsLeastRecentlyUsed() {
+        CachingReportingService small = new CachingReportingService(txRepo, repository.getBudgetRepository(),
+                new PrecisionEngine(), rollups, 2);
+        small.getMonthlyOverview(march);
+        small.getMonthlyOverview(april);
+        small.getMonthlyOverview(march);
+        small.getMonthlyOverview(YearMonth.of(2024, 5));
+
+        assertEquals(2, small.size());
+        small.getMonthlyOverview(march);
+        assertEquals(2, small.getHitCount());
+        small.getMonthlyOverview(april);
+        assertEquals(4, small.getMissCount());
+    }
+}
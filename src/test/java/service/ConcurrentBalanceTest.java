@@ -0,0 +1,126 @@
+package service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import model.*;
+import repository.InMemoryDataRepository;
+import util.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多线程压力测试: 并发录入与转账不应丢失余额更新
+ */
+class ConcurrentBalanceTest {
+    private static final int THREADS = 8;
+    private static final int OPS_PER_THREAD = 5_000;
+
+    private InMemoryDataRepository repository;
+    private TransactionService service;
+    private final List<String> accountIds = new ArrayList<>();
+    private String catId;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryDataRepository();
+        service = new TransactionService(
+                repository.getTransactionRepository(),
+                repository.getAccountRepository(),
+                repository.getCategoryRepository(),
+                new PrecisionEngine());
+        for (int i = 0; i < 4; i++) {
+            Account account = new Account("账户" + i, new BigDecimal("1000.00"));
+            repository.getAccountRepository().save(account);
+            accountIds.add(account.getAccountId());
+        }
+        Category category = new Category("杂项", TransactionType.EXPENSE);
+        repository.getCategoryRepository().save(category);
+        catId = category.getCategoryId();
+    }
+
+    private BigDecimal totalBalance() {
+        return accountIds.stream()
+                .map(id -> repository.getAccountRepository().findById(id).get().getBalance())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private void runConcurrently(Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < OPS_PER_THREAD; i++) {
+                        task.run();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // 1. 并发录入同一账户的收入, 余额应精确等于所有增量之和
+    @Test
+    void testConcurrentRecord_NoLostUpdates() throws Exception {
+        String accId = accountIds.get(0);
+        runConcurrently(() -> service.recordTransaction(new Transaction(
+                new BigDecimal("0.01"), TransactionType.INCOME, LocalDateTime.now(), catId, accId)));
+
+        BigDecimal expected = new BigDecimal("1000.00")
+                .add(new BigDecimal("0.01").multiply(BigDecimal.valueOf((long) THREADS * OPS_PER_THREAD)));
+        assertEquals(expected, repository.getAccountRepository().findById(accId).get().getBalance());
+    }
+
+    // 2. 随机方向的并发转账 (含相反方向, 易触发死锁) 后总额守恒
+    @Test
+    void testConcurrentTransfers_ConserveTotalAndNoDeadlock() throws Exception {
+        BigDecimal before = totalBalance();
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int fromIndex = random.nextInt(accountIds.size());
+            String from = accountIds.get(fromIndex);
+            String to = accountIds.get((fromIndex + 1 + random.nextInt(accountIds.size() - 1)) % accountIds.size());
+            service.transferFunds(from, to, BigDecimal.valueOf(random.nextInt(1, 500), 2));
+        });
+        assertEquals(before, totalBalance());
+    }
+
+    // 3. 录入与转账混合: 最终总额 = 初始总额 + 录入的净额
+    @Test
+    void testConcurrentMixedWorkload() throws Exception {
+        BigDecimal before = totalBalance();
+        AtomicLong netCents = new AtomicLong();
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int aIndex = random.nextInt(accountIds.size());
+            String a = accountIds.get(aIndex);
+            String b = accountIds.get((aIndex + 1 + random.nextInt(accountIds.size() - 1)) % accountIds.size());
+            if (random.nextBoolean()) {
+                service.transferFunds(a, b, new BigDecimal("1.00"));
+            } else {
+                boolean income = random.nextBoolean();
+                service.recordTransaction(new Transaction(new BigDecimal("0.50"),
+                        income ? TransactionType.INCOME : TransactionType.EXPENSE,
+                        LocalDateTime.now(), catId, a));
+                netCents.addAndGet(income ? 50 : -50);
+            }
+        });
+
+        assertEquals(before.add(BigDecimal.valueOf(netCents.get(), 2)), totalBalance());
+    }
+}
@@ -0,0 +1,215 @@
+package service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import model.*;
+import repository.ITransactionRepository;
+import repository.InMemoryDataRepository;
+import repository.MonthlyRollupStore;
+import repository.TransactionFilter;
+import util.TransactionType;
+import util.ValidationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportingServiceTest {
+    private InMemoryDataRepository repository;
+    private ITransactionRepository txRepo;
+    private MonthlyRollupStore rollups;
+    private ReportingService reportingService;
+
+    private final YearMonth month = YearMonth.of(2024, 3);
+    private final LocalDateTime inMonth = LocalDateTime.of(2024, 3, 10, 9, 30);
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryDataRepository();
+        txRepo = repository.getTransactionRepository();
+        rollups = MonthlyRollupStore.attachTo(txRepo);
+        reportingService = new ReportingService(txRepo, repository.getBudgetRepository(), new PrecisionEngine(), rollups);
+    }
+
+    private ReportingService freshService() {
+        return new ReportingService(txRepo, repository.getBudgetRepository(), new PrecisionEngine(),
+                MonthlyRollupStore.attachTo(txRepo));
+    }
+
+    private Transaction save(String amount, TransactionType type, LocalDateTime dateTime, String catId) {
+        return txRepo.save(new Transaction(new BigDecimal(amount), type, dateTime, catId, "ACC_1"));
+    }
+
+    // 1. 月度总览只统计本月, 月末最后一刻的交易也应计入
+    @Test
+    void testMonthlyOverview_OnlyCountsMonth() {
+        save("1000.00", TransactionType.INCOME, inMonth, "CAT_SAL");
+        save("200.10", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        save("0.90", TransactionType.EXPENSE, LocalDateTime.of(2024, 3, 31, 23, 59, 59, 500_000_000), "CAT_FOOD");
+        save("999.00", TransactionType.EXPENSE, LocalDateTime.of(2024, 4, 1, 0, 0), "CAT_FOOD");
+
+        Map<String, BigDecimal> overview = reportingService.getMonthlyOverview(month);
+        assertEquals(new BigDecimal("1000.00"), overview.get("totalIncome"));
+        assertEquals(new BigDecimal("201.00"), overview.get("totalExpense"));
+        assertEquals(new BigDecimal("799.00"), overview.get("netIncome"));
+    }
+
+    // 2. 汇总在挂接之前已存在的交易也应被计入
+    @Test
+    void testMonthlyOverview_SeededFromExistingData() {
+        save("50.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        ReportingService fresh = freshService();
+        assertEquals(new BigDecimal("50.00"), fresh.getMonthlyOverview(month).get("totalExpense"));
+    }
+
+    // 3. 分类占比按类别汇总支出
+    @Test
+    void testCategoryBreakdown() {
+        save("10.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        save("15.50", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        save("300.00", TransactionType.EXPENSE, inMonth, "CAT_RENT");
+        save("99.00", TransactionType.INCOME, inMonth, "CAT_SAL");
+
+        Map<String, BigDecimal> breakdown = reportingService.getCategoryBreakdown(month);
+        assertEquals(2, breakdown.size());
+        assertEquals(new BigDecimal("25.50"), breakdown.get("CAT_FOOD"));
+        assertEquals(new BigDecimal("300.00"), breakdown.get("CAT_RENT"));
+    }
+
+    // 4. 删除交易后汇总同步扣减
+    @Test
+    void testRollup_FollowsDelete() {
+        Transaction tx = save("40.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        save("10.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        txRepo.deleteById(tx.getTransactionId());
+
+        assertEquals(new BigDecimal("10.00"), reportingService.getCategoryBreakdown(month).get("CAT_FOOD"));
+        assertEquals(new BigDecimal("10.00"), reportingService.getMonthlyOverview(month).get("totalExpense"));
+    }
+
+    // 5. 覆盖保存 (编辑) 时旧版本从原月份移除, 新版本计入新月份
+    @Test
+    void testRollup_FollowsEdit() {
+        Transaction original = save("40.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        Transaction edited = new Transaction(original.getTransactionId(), new BigDecimal("60.00"),
+                TransactionType.EXPENSE, LocalDateTime.of(2024, 4, 2, 0, 0), "CAT_FOOD", "ACC_1");
+        txRepo.save(edited);
+
+        assertTrue(reportingService.getCategoryBreakdown(month).isEmpty());
+        assertEquals(new BigDecimal("60.00"), reportingService.getMonthlyOverview(YearMonth.of(2024, 4)).get("totalExpense"));
+    }
+
+    // 6. 预算检查基于汇总结果
+    @Test
+    void testCheckBudgetAlerts() {
+        Budget food = new Budget(new BigDecimal("100.00"), "CAT_FOOD");
+        Budget rent = new Budget(new BigDecimal("1000.00"), "CAT_RENT");
+        repository.getBudgetRepository().save(food);
+        repository.getBudgetRepository().save(rent);
+        save("100.01", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        save("999.99", TransactionType.EXPENSE, inMonth, "CAT_RENT");
+
+        List<Budget> alerts = reportingService.checkBudgetAlerts(month);
+        assertEquals(List.of(food), alerts);
+    }
+
+    // 7. 趋势分析: 连续月份按升序返回, 空月份为 0, 只统计指定类型
+    @Test
+    void testTrendAnalysis() {
+        save("10.00", TransactionType.EXPENSE, LocalDateTime.of(2023, 12, 5, 0, 0), "CAT_FOOD");
+        save("20.00", TransactionType.EXPENSE, LocalDateTime.of(2024, 2, 5, 0, 0), "CAT_FOOD");
+        save("5.00", TransactionType.EXPENSE, LocalDateTime.of(2024, 2, 6, 0, 0), "CAT_RENT");
+        save("999.00", TransactionType.INCOME, LocalDateTime.of(2024, 2, 6, 0, 0), "CAT_SAL");
+        save("1.00", TransactionType.EXPENSE, LocalDateTime.of(2024, 4, 1, 0, 0), "CAT_FOOD");
+
+        Map<YearMonth, BigDecimal> trend = reportingService.getTrendAnalysis(TransactionType.EXPENSE, month, 3);
+        assertEquals(List.of(YearMonth.of(2024, 1), YearMonth.of(2024, 2), YearMonth.of(2024, 3)),
+                List.copyOf(trend.keySet()));
+        assertEquals(new BigDecimal("0.00"), trend.get(YearMonth.of(2024, 1)));
+        assertEquals(new BigDecimal("25.00"), trend.get(YearMonth.of(2024, 2)));
+        assertEquals(new BigDecimal("0.00"), trend.get(YearMonth.of(2024, 3)));
+    }
+
+    // 8. 大账本上并行初始化的汇总与逐笔累加结果完全一致
+    @Test
+    void testTrendAnalysis_ParallelSeedIsExact() {
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < 30_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(i % 997 + 1, 2);
+            txRepo.save(new Transaction("TX_" + i, amount, TransactionType.INCOME,
+                    LocalDateTime.of(2020, 1, 1, 0, 0).plusHours(i), "CAT_SAL", "ACC_1"));
+            expected = expected.add(amount);
+        }
+        ReportingService fresh = freshService();
+
+        Map<YearMonth, BigDecimal> trend = fresh.getTrendAnalysis(TransactionType.INCOME, YearMonth.of(2023, 12), 48);
+        assertEquals(48, trend.size());
+        assertEquals(expected, trend.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    // 9. 非法月数
+    @Test
+    void testTrendAnalysis_InvalidMonths() {
+        assertThrows(ValidationException.class,
+                () -> reportingService.getTrendAnalysis(TransactionType.INCOME, 0));
+    }
+
+    // 10. 总预算 (categoryId 为 null) 与当月全部支出比较
+    @Test
+    void testCheckBudgetAlerts_TotalBudget() {
+        Budget tight = new Budget(new BigDecimal("150.00"), null);
+        Budget loose = new Budget(new BigDecimal("200.00"), null);
+        repository.getBudgetRepository().save(tight);
+        repository.getBudgetRepository().save(loose);
+        save("80.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        save("120.00", TransactionType.EXPENSE, inMonth, "CAT_RENT");
+        save("500.00", TransactionType.INCOME, inMonth, "CAT_SAL");
+
+        assertEquals(List.of(tight), reportingService.checkBudgetAlerts(month));
+    }
+
+    // 11. 多个报表服务共用一份月度汇总; 关闭服务不影响汇总, 由持有方卸下后才不再更新
+    @Test
+    void testSharedRollups_DetachedByOwner() {
+        ReportingService a = new ReportingService(txRepo, repository.getBudgetRepository(), new PrecisionEngine(), rollups);
+        ReportingService b = new CachingReportingService(txRepo, repository.getBudgetRepository(),
+                new PrecisionEngine(), rollups, 8);
+        save("10.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        assertEquals(new BigDecimal("10.00"), a.getMonthlyOverview(month).get("totalExpense"));
+        assertEquals(new BigDecimal("10.00"), b.getMonthlyOverview(month).get("totalExpense"));
+
+        a.close();
+        b.close();
+        save("5.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        assertEquals(new BigDecimal("15.00"), reportingService.getMonthlyOverview(month).get("totalExpense"));
+
+        rollups.detach();
+        save("1.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        assertEquals(new BigDecimal("15.00"), reportingService.getMonthlyOverview(month).get("totalExpense"));
+    }
+
+    // 12. 重新加载汇总期间经由监听到达的写入计入新汇总, 不随整体替换丢失
+    @Test
+    void testRollupLoad_KeepsDeltasArrivingDuringLoad() {
+        save("10.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+        Map<YearMonth, Map<MonthlyRollupStore.Key, MonthlyRollupStore.Totals>> aggregated =
+                new HashMap<>(txRepo.aggregateByMonth(TransactionFilter.all())) {
+                    @Override
+                    public void forEach(BiConsumer<? super YearMonth,
+                            ? super Map<MonthlyRollupStore.Key, MonthlyRollupStore.Totals>> action) {
+                        // 新汇总构造到一半时写入
+                        save("5.00", TransactionType.EXPENSE, inMonth, "CAT_FOOD");
+                        super.forEach(action);
+                    }
+                };
+        rollups.load(aggregated);
+        assertEquals(new BigDecimal("15.00"), reportingService.getMonthlyOverview(month).get("totalExpense"));
+        assertEquals(2, rollups.getMonth(month).values().stream().mapToLong(MonthlyRollupStore.Totals::getCount).sum());
+    }
+}
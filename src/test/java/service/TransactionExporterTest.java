@@ -0,0 +1,124 @@
+package service;
+
+import model.Category;
+import model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.ColumnarTransactionRepository;
+import repository.InMemoryDataRepository;
+import repository.TransactionFilter;
+import util.TransactionType;
+import util.ValidationException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionExporterTest {
+    private InMemoryDataRepository repository;
+    private TransactionExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryDataRepository();
+        repository.getCategoryRepository().save(new Category("CAT_FOOD", "餐饮", TransactionType.EXPENSE));
+        exporter = new TransactionExporter(repository.getTransactionRepository(), repository.getCategoryRepository());
+    }
+
+    private Transaction save(String id, String amount, LocalDateTime dateTime, String accountId) {
+        return repository.getTransactionRepository().save(new Transaction(
+                id, new BigDecimal(amount), TransactionType.EXPENSE, dateTime, "CAT_FOOD", accountId));
+    }
+
+    private String exportCsv(TransactionFilter filter) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(filter, TransactionExporter.Format.CSV, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // 1. CSV: 表头、类别名称、按时间排序, 含逗号/引号/换行的字段按 RFC 4180 转义
+    @Test
+    void testExportCsv_HeaderOrderAndEscaping() throws Exception {
+        Transaction later = save("TX_2", "8.50", LocalDateTime.of(2024, 5, 2, 9, 0), "ACC_1");
+        later.setMemo("面条, \"大碗\"\n加蛋");
+        repository.getTransactionRepository().save(later);
+        save("TX_1", "12.00", LocalDateTime.of(2024, 5, 1, 18, 30), "ACC_1");
+
+        String[] lines = exportCsv(TransactionFilter.all()).split("\r\n");
+        assertEquals("\uFEFF交易ID,日期,类型,金额,类别,账户ID,转入账户ID,备注,标签,状态", lines[0]);
+        assertEquals("TX_1,2024-05-01 18:30:00,EXPENSE,12.00,餐饮,ACC_1,,,,COMPLETED", lines[1]);
+        assertEquals("TX_2,2024-05-02 09:00:00,EXPENSE,8.50,餐饮,ACC_1,,\"面条, \"\"大碗\"\"\n加蛋\",,COMPLETED", lines[2]);
+        assertEquals(3, lines.length);
+    }
+
+    // 2. 筛选条件 (账户 + 时间范围) 生效, 返回导出行数
+    @Test
+    void testExport_AppliesFilter() throws Exception {
+        save("TX_1", "1.00", LocalDateTime.of(2024, 1, 10, 0, 0), "ACC_1");
+        save("TX_2", "2.00", LocalDateTime.of(2024, 2, 10, 0, 0), "ACC_1");
+        save("TX_3", "3.00", LocalDateTime.of(2024, 2, 11, 0, 0), "ACC_2");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exporter.export(TransactionFilter.all().withAccount("ACC_1")
+                        .between(LocalDateTime.of(2024, 2, 1, 0, 0), null),
+                TransactionExporter.Format.CSV, out);
+        assertEquals(1, rows);
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("TX_2,"));
+        assertFalse(out.toString(StandardCharsets.UTF_8).contains("TX_3,"));
+    }
+
+    // 3. Excel (SpreadsheetML) 输出是格式良好的 XML, 特殊字符被转义
+    @Test
+    void testExportExcel_WellFormedXml() throws Exception {
+        Transaction tx = save("TX_1", "5.00", LocalDateTime.of(2024, 3, 1, 0, 0), "ACC_1");
+        tx.setMemo("<咖啡> & 面包\u0001");
+        repository.getTransactionRepository().save(tx);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(TransactionFilter.all(), TransactionExporter.Format.EXCEL, out);
+
+        var document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2, document.getElementsByTagName("Row").getLength());
+        assertTrue(document.getDocumentElement().getTextContent().contains("<咖啡> & 面包"));
+    }
+
+    // 4. 并行分块导出与顺序导出逐字节相同 (列式存储库, 跨越多个块)
+    @Test
+    void testExportParallel_MatchesSequentialOutput() throws Exception {
+        repository = new InMemoryDataRepository(new ColumnarTransactionRepository());
+        repository.getCategoryRepository().save(new Category("CAT_FOOD", "餐饮", TransactionType.EXPENSE));
+        exporter = new TransactionExporter(repository.getTransactionRepository(), repository.getCategoryRepository());
+        List<Transaction> batch = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 3 * TransactionExporter.CHUNK_ROWS + 17; i++) {
+            batch.add(new Transaction("TX_" + i, new BigDecimal(i % 500 + ".25"), TransactionType.EXPENSE,
+                    base.plusMinutes(i * 7L % 10_000), "CAT_FOOD", "ACC_" + (i % 3)));
+        }
+        repository.getTransactionRepository().saveAll(batch);
+
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        long sequentialRows = exporter.export(TransactionFilter.all(), TransactionExporter.Format.CSV, sequential);
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        long parallelRows = exporter.exportParallel(TransactionFilter.all(), TransactionExporter.Format.CSV,
+                Channels.newChannel(parallel), 4);
+
+        assertEquals(batch.size(), sequentialRows);
+        assertEquals(sequentialRows, parallelRows);
+        assertArrayEquals(sequential.toByteArray(), parallel.toByteArray());
+    }
+
+    // 5. 不支持的格式
+    @Test
+    void testFormat_UnknownNameRejected() {
+        assertThrows(ValidationException.class, () -> TransactionExporter.Format.of("PDF"));
+    }
+}
@@ -0,0 +1,235 @@
+package service;
+
+import model.Account;
+import model.Category;
+import model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repository.InMemoryDataRepository;
+import repository.TransactionFilter;
+import util.TransactionType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionImporterTest {
+    @TempDir
+    Path dir;
+
+    private InMemoryDataRepository repository;
+    private TransactionImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryDataRepository();
+        repository.getAccountRepository().save(new Account("ACC_1", "招商银行", new BigDecimal("100.00")));
+        repository.getCategoryRepository().save(new Category("CAT_FOOD", "餐饮", TransactionType.EXPENSE));
+        repository.getCategoryRepository().save(new Category("CAT_SALARY", "工资", TransactionType.INCOME));
+        importer = newImporter(repository, 2);
+    }
+
+    private static TransactionImporter newImporter(InMemoryDataRepository repository, int parallelism) {
+        TransactionService service = new TransactionService(repository.getTransactionRepository(),
+                repository.getAccountRepository(), repository.getCategoryRepository(), new PrecisionEngine());
+        return new TransactionImporter(service, repository.getAccountRepository(),
+                repository.getCategoryRepository(), parallelism);
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = dir.resolve("statement.csv");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private BigDecimal balance() {
+        return repository.getAccountRepository().findById("ACC_1").get().getBalance();
+    }
+
+    // 1. 名称解析为ID, 无类型列时按正负号区分收支, 引号内的逗号/换行, 余额随导入更新
+    @Test
+    void testImportCsv_ResolvesNamesAndUpdatesBalance() throws Exception {
+        Path file = write("交易日期,摘要,交易金额,分类,账户名称\r\n"
+                + "2024/05/01 12:30,午饭,-25.50,餐饮,招商银行\r\n"
+                + "2024-05-10,\"五月工资, 含\"\"奖金\"\"\n第二行\",\"1,000.00\",工资,ACC_1\r\n"
+                + "\r\n"
+                + "2024-05-11T08:00:00,早饭,-4,CAT_FOOD,招商银行");
+
+        ImportReport report = importer.importCsv(file);
+
+        assertEquals(3, report.getRowsRead());
+        assertEquals(3, report.getRowsImported());
+        assertEquals(0, report.getRowsRejected());
+        assertEquals(new BigDecimal("1070.50"), balance());
+
+        List<Transaction> saved = repository.getTransactionRepository().query(TransactionFilter.all());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 12, 30), saved.get(0).getDateTime());
+        assertEquals(TransactionType.EXPENSE, saved.get(0).getType());
+        assertEquals("CAT_SALARY", saved.get(1).getCategoryId());
+        assertEquals("五月工资, 含\"奖金\"\n第二行", saved.get(1).getMemo());
+        assertEquals(new BigDecimal("1000.00"), saved.get(1).getAmount());
+    }
+
+    // 2. 不合格的行被拒绝并报告物理行号与原因, 其余的行照常导入
+    @Test
+    void testImportCsv_ReportsRejectedLines() throws Exception {
+        Path file = write("日期,金额,类型,类别,账户\n"
+                + "2024-05-01,10.00,支出,餐饮,招商银行\n"
+                + "2024-13-01,10.00,支出,餐饮,招商银行\n"
+                + "2024-05-02,10.001,支出,餐饮,招商银行\n"
+                + "2024-05-03,\"多行\n金额\",支出,餐饮,招商银行\n"
+                + "2024-05-04,5.00,支出,不存在的类别,招商银行\n"
+                + "2024-05-05,5.00,转账,餐饮,招商银行\n"
+                + "2024-05-06,5.00,收入,工资,招商银行\n");
+
+        ImportReport report = importer.importCsv(file);
+
+        assertEquals(7, report.getRowsRead());
+        assertEquals(2, report.getRowsImported());
+        assertEquals(5, report.getRowsRejected());
+        assertEquals(List.of(3L, 4L, 5L, 7L, 8L), report.getRejectedLines().stream()
+                .map(ImportReport.RejectedLine::getLineNumber).collect(Collectors.toList()));
+        assertTrue(report.getRejectedLines().get(1).getReason().contains("2 位小数"));
+        assertTrue(report.getRejectedLines().get(3).getReason().contains("不存在的类别"));
+        assertEquals(new BigDecimal("95.00"), balance());
+    }
+
+    // 3. 大文件跨越多个批次, 多个解析线程并行, 计数与余额一致
+    @Test
+    void testImportCsv_ManyBatchesInParallel() throws Exception {
+        int rows = 2 * TransactionImporter.BATCH_RECORDS + 321;
+        StringBuilder csv = new StringBuilder("日期,金额,类别,账户\n");
+        long expectedCents = 100_00;
+        for (int i = 0; i < rows; i++) {
+            boolean bad = i % 1000 == 999;
+            csv.append("2024-01-").append(String.format("%02d", i % 28 + 1)).append(' ')
+                    .append(String.format("%02d", i % 24)).append(":00,")
+                    .append(bad ? "abc" : "-" + (i % 50 + 1) + "." + (i % 10) + "0")
+                    .append(",餐饮,招商银行\n");
+            if (!bad) {
+                expectedCents -= (i % 50 + 1) * 100L + (i % 10) * 10L;
+            }
+        }
+        Path file = write(csv.toString());
+
+        ImportReport report = newImporter(repository, 4).importCsv(file);
+
+        long badRows = rows / 1000;
+        assertEquals(rows, report.getRowsRead());
+        assertEquals(rows - badRows, report.getRowsImported());
+        assertEquals(badRows, report.getRowsRejected());
+        assertEquals(999 + 2, report.getRejectedLines().get(0).getLineNumber());
+        assertEquals(BigDecimal.valueOf(expectedCents, 2), balance());
+        assertTrue(report.getRowsPerSecond() > 0);
+    }
+
+    // 4. TransactionExporter 导出的 CSV 可以原样导入另一个账本
+    @Test
+    void testImportCsv_RoundTripsExporterOutput() throws Exception {
+        TransactionService service = new TransactionService(repository.getTransactionRepository(),
+                repository.getAccountRepository(), repository.getCategoryRepository(), new PrecisionEngine());
+        Transaction lunch = new Transaction(new BigDecimal("30.00"), TransactionType.EXPENSE,
+                LocalDateTime.of(2024, 6, 1, 12, 0), "CAT_FOOD", "ACC_1");
+        lunch.setTags(List.of("工作日", "外卖"));
+        service.recordTransaction(lunch);
+        service.recordTransaction(new Transaction(new BigDecimal("500.00"), TransactionType.INCOME,
+                LocalDateTime.of(2024, 6, 5, 9, 0), "CAT_SALARY", "ACC_1"));
+
+        Path file = dir.resolve("export.csv");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            new TransactionExporter(repository.getTransactionRepository(), repository.getCategoryRepository())
+                    .export(TransactionFilter.all(), TransactionExporter.Format.CSV, out);
+        }
+
+        InMemoryDataRepository target = new InMemoryDataRepository();
+        target.getAccountRepository().save(new Account("ACC_1", "招商银行", BigDecimal.ZERO));
+        target.getCategoryRepository().save(new Category("CAT_FOOD", "餐饮", TransactionType.EXPENSE));
+        target.getCategoryRepository().save(new Category("CAT_SALARY", "工资", TransactionType.INCOME));
+        ImportReport report = newImporter(target, 2).importCsv(file);
+
+        assertEquals(2, report.getRowsImported());
+        assertEquals(new BigDecimal("470.00"), target.getAccountRepository().findById("ACC_1").get().getBalance());
+        Transaction imported = target.getTransactionRepository().query(TransactionFilter.all()).get(0);
+        assertEquals(List.of("工作日", "外卖"), imported.getTags());
+    }
+
+    // 5. 缺少必需列时拒绝整个文件
+    @Test
+    void testImportCsv_MissingRequiredColumn() throws Exception {
+        Path file = write("日期,金额,类别\n2024-05-01,1.00,餐饮\n");
+        assertThrows(IOException.class, () -> importer.importCsv(file));
+    }
+
+    // 6. 转账行 (类别为空, 带转入账户) 经导出再导入后, 两个账户的余额与转入账户都还原
+    @Test
+    void testImportCsv_RoundTripsTransfers() throws Exception {
+        repository.getAccountRepository().save(new Account("ACC_2", "储蓄", BigDecimal.ZERO));
+        TransactionService service = new TransactionService(repository.getTransactionRepository(),
+                repository.getAccountRepository(), repository.getCategoryRepository(), new PrecisionEngine());
+        service.transferFunds("ACC_1", "ACC_2", new BigDecimal("40.00"), LocalDateTime.of(2024, 6, 1, 9, 0), "存钱");
+        service.recordTransaction(new Transaction(new BigDecimal("15.00"), TransactionType.EXPENSE,
+                LocalDateTime.of(2024, 6, 2, 12, 0), "CAT_FOOD", "ACC_2"));
+
+        Path file = dir.resolve("export.csv");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            new TransactionExporter(repository.getTransactionRepository(), repository.getCategoryRepository())
+                    .export(TransactionFilter.all(), TransactionExporter.Format.CSV, out);
+        }
+
+        InMemoryDataRepository target = new InMemoryDataRepository();
+        target.getAccountRepository().save(new Account("ACC_1", "招商银行", new BigDecimal("100.00")));
+        target.getAccountRepository().save(new Account("ACC_2", "储蓄", BigDecimal.ZERO));
+        target.getCategoryRepository().save(new Category("CAT_FOOD", "餐饮", TransactionType.EXPENSE));
+        ImportReport report = newImporter(target, 2).importCsv(file);
+
+        assertEquals(2, report.getRowsImported());
+        assertEquals(new BigDecimal("60.00"), target.getAccountRepository().findById("ACC_1").get().getBalance());
+        assertEquals(new BigDecimal("25.00"), target.getAccountRepository().findById("ACC_2").get().getBalance());
+        Transaction transfer = target.getTransactionRepository()
+                .query(TransactionFilter.all().withType(TransactionType.TRANSFER)).get(0);
+        assertEquals("ACC_2", transfer.getCounterAccountId());
+        assertNull(transfer.getCategoryId());
+        assertEquals("存钱", transfer.getMemo());
+    }
+
+    // 7. 写入中途失败: 已写入的批次保留, 异常附带的报告与实际导入的行数一致
+    @Test
+    void testImportCsv_FailureReportsPartialProgress() throws Exception {
+        int rows = 3 * TransactionImporter.BATCH_RECORDS;
+        StringBuilder csv = new StringBuilder("日期,金额,类别,账户\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("2024-01-").append(String.format("%02d", i % 28 + 1)).append(" 09:00,-0.01,餐饮,招商银行\n");
+        }
+        Path file = write(csv.toString());
+        AtomicInteger batches = new AtomicInteger();
+        TransactionService failing = new TransactionService(repository.getTransactionRepository(),
+                repository.getAccountRepository(), repository.getCategoryRepository(), new PrecisionEngine()) {
+            @Override
+            public List<Transaction> recordTransactions(List<Transaction> batch) {
+                if (batches.incrementAndGet() == 2) {
+                    throw new IllegalStateException("磁盘已满");
+                }
+                return super.recordTransactions(batch);
+            }
+        };
+        TransactionImporter failingImporter = new TransactionImporter(failing, repository.getAccountRepository(),
+                repository.getCategoryRepository(), 2);
+
+        ImportAbortedException e = assertThrows(ImportAbortedException.class, () -> failingImporter.importCsv(file));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        long imported = e.getPartialReport().getRowsImported();
+        assertTrue(imported > 0 && imported < rows);
+        assertEquals(imported, repository.getTransactionRepository().findAll().size());
+        assertEquals(new BigDecimal("100.00").subtract(BigDecimal.valueOf(imported, 2)), balance());
+    }
+}
@@ -3,15 +3,27 @@ package service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import model.*;
+import repository.BalanceCheckpoints;
+import repository.ITransactionRepository;
 import repository.InMemoryDataRepository;
+import repository.LedgerLegs;
+import repository.TransactionChangeListener;
+import repository.TransactionFilter;
 import service.PrecisionEngine;
 import service.TransactionService;
+import util.BatchValidationException;
 import util.DataNotFoundException;
 import util.TransactionType;
 import util.ValidationException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,6 +31,7 @@ class TransactionServiceTest {
     private TransactionService service;
     private InMemoryDataRepository repository;
     private PrecisionEngine engine;
+    private BalanceCheckpoints checkpoints;
 
     private String validAccId = "ACC_001";
     private String validCatId = "CAT_001";
@@ -27,11 +40,14 @@ class TransactionServiceTest {
     void setUp() {
         repository = new InMemoryDataRepository();
         engine = new PrecisionEngine();
+        checkpoints = BalanceCheckpoints.attachTo(repository.getTransactionRepository());
         service = new TransactionService(
                 repository.getTransactionRepository(),
                 repository.getAccountRepository(),
                 repository.getCategoryRepository(),
-                engine
+                engine,
+                new AccountLockManager(),
+                checkpoints
         );
 
         // 初始化基础数据
@@ -121,4 +137,214 @@ class TransactionServiceTest {
         Transaction saved = service.recordTransaction(tx);
         assertEquals("Lunch money", saved.getMemo());
     }
-}
\ No newline at end of file
+
+    // 11. 批量录入: 每个账户按净额更新一次, 交易全部写入
+    @Test
+    void testRecordTransactions_AppliesNetDelta() {
+        List<Transaction> batch = List.of(
+                new Transaction(new BigDecimal("50.00"), TransactionType.INCOME, LocalDateTime.now(), validCatId, validAccId),
+                new Transaction(new BigDecimal("20.25"), TransactionType.EXPENSE, LocalDateTime.now(), validCatId, validAccId),
+                new Transaction(new BigDecimal("0.25"), TransactionType.EXPENSE, LocalDateTime.now(), validCatId, validAccId));
+
+        List<Transaction> saved = service.recordTransactions(batch);
+
+        assertEquals(3, saved.size());
+        assertEquals(new BigDecimal("129.50"), repository.getAccountRepository().findById(validAccId).get().getBalance());
+        assertEquals(3, repository.getTransactionRepository().findAll().size());
+    }
+
+    // 12. 批量录入: 任何一行不合法则整批不写入, 并报告每一行的错误
+    @Test
+    void testRecordTransactions_AllOrNothingWithRowErrors() {
+        List<Transaction> batch = List.of(
+                new Transaction(new BigDecimal("10.00"), TransactionType.INCOME, LocalDateTime.now(), validCatId, validAccId),
+                new Transaction(new BigDecimal("-1.00"), TransactionType.INCOME, LocalDateTime.now(), validCatId, validAccId),
+                new Transaction(new BigDecimal("10.00"), TransactionType.INCOME, LocalDateTime.now(), "NON_EXISTENT", validAccId),
+                new Transaction(new BigDecimal("10.00"), TransactionType.INCOME, LocalDateTime.now(), validCatId, "NON_EXISTENT"));
+
+        BatchValidationException e = assertThrows(BatchValidationException.class, () -> service.recordTransactions(batch));
+
+        assertEquals(List.of(1, 2, 3), List.copyOf(e.getRowErrors().keySet()));
+        assertTrue(e.getRowErrors().get(2).contains("NON_EXISTENT"));
+        assertEquals(new BigDecimal("100.00"), repository.getAccountRepository().findById(validAccId).get().getBalance());
+        assertTrue(repository.getTransactionRepository().findAll().isEmpty());
+    }
+
+    private Transaction memo(String memo, LocalDateTime dateTime, String... tags) {
+        Transaction tx = new Transaction(new BigDecimal("1.00"), TransactionType.INCOME, dateTime, validCatId, validAccId);
+        tx.setMemo(memo);
+        tx.setTags(List.of(tags));
+        return service.recordTransaction(tx);
+    }
+
+    private static List<String> memos(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getMemo).collect(Collectors.toList());
+    }
+
+    // 13. 全文搜索: 多词 AND、前缀、汉字词、标签, 可与时间范围组合, 结果按时间排序
+    @Test
+    void testSearchTransactions_TermsPrefixesAndTags() {
+        LocalDateTime may = LocalDateTime.of(2024, 5, 1, 12, 0);
+        memo("Starbucks 拿铁 公司楼下", may.plusDays(2), "咖啡");
+        memo("starbucks 早餐", may, "早餐", "工作日");
+        memo("星巴克 拿铁", may.plusMonths(1), "咖啡");
+        memo("公司年会 奖金", may.plusDays(1));
+
+        assertEquals(List.of("starbucks 早餐", "Starbucks 拿铁 公司楼下"),
+                memos(service.searchTransactions("STARBUCKS", TransactionFilter.all())));
+        assertEquals(List.of("Starbucks 拿铁 公司楼下"), memos(service.searchTransactions("star* 拿铁", TransactionFilter.all())));
+        assertEquals(List.of("公司年会 奖金", "Starbucks 拿铁 公司楼下"), memos(service.searchTransactions("公司", TransactionFilter.all())));
+        assertTrue(service.searchTransactions("司年楼", TransactionFilter.all()).isEmpty());
+        assertEquals(List.of("Starbucks 拿铁 公司楼下", "星巴克 拿铁"), memos(service.searchTransactions("#咖啡", TransactionFilter.all())));
+        assertEquals(List.of("starbucks 早餐"), memos(service.searchTransactions("#工作*", TransactionFilter.all())));
+        assertEquals(List.of("Starbucks 拿铁 公司楼下"), memos(service.searchTransactions("拿铁", validCatId,
+                may, may.plusDays(10))));
+        assertTrue(service.searchTransactions("拿铁", "NON_EXISTENT", null, null).isEmpty());
+    }
+
+    // 14. 索引随保存、覆盖与删除增量维护
+    @Test
+    void testSearchTransactions_FollowsUpdatesAndDeletes() {
+        Transaction lunch = memo("午饭 麻辣烫", LocalDateTime.of(2024, 5, 1, 12, 0));
+        assertEquals(1, service.searchTransactions("麻辣", TransactionFilter.all()).size());
+
+        Transaction edited = new Transaction(lunch.getTransactionId(), lunch.getAmount(), lunch.getType(),
+                lunch.getDateTime(), lunch.getCategoryId(), lunch.getAccountId());
+        edited.setMemo("午饭 牛肉面");
+        repository.getTransactionRepository().save(edited);
+        assertTrue(service.searchTransactions("麻辣", TransactionFilter.all()).isEmpty());
+        assertEquals(1, service.searchTransactions("午饭 牛肉*", TransactionFilter.all()).size());
+
+        repository.getTransactionRepository().deleteById(lunch.getTransactionId());
+        assertTrue(service.searchTransactions("午饭", TransactionFilter.all()).isEmpty());
+    }
+
+    // 15. 转账记录一笔 TRANSFER 交易, 两个账户余额的变动与复式分录的净额一致; 转给自己被拒绝
+    @Test
+    void testTransferFunds_RecordsBalancedEntry() {
+        Account savings = repository.getAccountRepository().save(new Account("储蓄", BigDecimal.ZERO));
+
+        Transaction transfer = service.transferFunds(validAccId, savings.getAccountId(), new BigDecimal("30.00"),
+                LocalDateTime.of(2024, 5, 1, 9, 0), "存钱");
+        service.recordTransaction(new Transaction(new BigDecimal("5.00"), TransactionType.EXPENSE,
+                LocalDateTime.of(2024, 5, 2, 9, 0), validCatId, savings.getAccountId()));
+
+        assertEquals(TransactionType.TRANSFER, transfer.getType());
+        assertEquals(savings.getAccountId(), transfer.getCounterAccountId());
+        assertEquals(new BigDecimal("70.00"), repository.getAccountRepository().findById(validAccId).get().getBalance());
+        assertEquals(new BigDecimal("25.00"), repository.getAccountRepository().findById(savings.getAccountId()).get().getBalance());
+        Map<String, Long> net = new HashMap<>();
+        repository.getTransactionRepository().streamAll().forEach(tx ->
+                LedgerLegs.forEachLeg(tx, (accountId, cents) -> net.merge(accountId, cents, Long::sum)));
+        assertEquals(Map.of(validAccId, -3000L, savings.getAccountId(), 2500L), net);
+        assertEquals(1, repository.getTransactionRepository()
+                .query(TransactionFilter.all().withType(TransactionType.TRANSFER)).size());
+
+        assertThrows(ValidationException.class, () -> service.transferFunds(validAccId, validAccId, BigDecimal.ONE));
+        assertEquals(new BigDecimal("70.00"), repository.getAccountRepository().findById(validAccId).get().getBalance());
+    }
+
+    // 16. 含转账的批量录入全有或全无: 转入账户不存在时不修改任何余额
+    @Test
+    void testRecordTransactions_TransferLegsAreAtomic() {
+        Account savings = repository.getAccountRepository().save(new Account("储蓄", BigDecimal.ZERO));
+        LocalDateTime time = LocalDateTime.of(2024, 5, 1, 9, 0);
+        Transaction income = new Transaction(new BigDecimal("10.00"), TransactionType.INCOME, time, validCatId, validAccId);
+        Transaction toSavings = new Transaction(new BigDecimal("60.00"), TransactionType.TRANSFER, time, null, validAccId);
+        toSavings.setCounterAccountId(savings.getAccountId());
+        Transaction broken = new Transaction(new BigDecimal("1.00"), TransactionType.TRANSFER, time, null, validAccId);
+        broken.setCounterAccountId("ACC_MISSING");
+
+        assertThrows(BatchValidationException.class, () -> service.recordTransactions(List.of(income, toSavings, broken)));
+        assertEquals(new BigDecimal("100.00"), repository.getAccountRepository().findById(validAccId).get().getBalance());
+        assertTrue(repository.getTransactionRepository().findAll().isEmpty());
+
+        service.recordTransactions(List.of(income, toSavings));
+        assertEquals(new BigDecimal("50.00"), repository.getAccountRepository().findById(validAccId).get().getBalance());
+        assertEquals(new BigDecimal("60.00"), repository.getAccountRepository().findById(savings.getAccountId()).get().getBalance());
+    }
+
+    // 17. 历史时刻的余额: 跨月、当天某时刻、补录的历史交易与转账都计入
+    @Test
+    void testGetBalanceAt_UsesCheckpointsAndIntradayReplay() {
+        Account savings = repository.getAccountRepository().save(new Account("储蓄", BigDecimal.ZERO));
+        LocalDateTime may1 = LocalDateTime.of(2024, 5, 1, 9, 0);
+        service.recordTransaction(new Transaction(new BigDecimal("50.00"), TransactionType.INCOME, may1, validCatId, validAccId));
+        service.recordTransaction(new Transaction(new BigDecimal("20.00"), TransactionType.EXPENSE,
+                may1.plusHours(8), validCatId, validAccId));
+        service.transferFunds(validAccId, savings.getAccountId(), new BigDecimal("30.00"), may1.plusMonths(1), null);
+
+        assertEquals(new BigDecimal("100.00"), service.getBalanceAt(validAccId, may1.minusSeconds(1)));
+        assertEquals(new BigDecimal("150.00"), service.getBalanceAt(validAccId, may1));
+        assertEquals(new BigDecimal("150.00"), service.getBalanceAt(validAccId, may1.plusHours(1)));
+        assertEquals(new BigDecimal("130.00"), service.getBalanceAt(validAccId, LocalDateTime.of(2024, 5, 31, 23, 59)));
+        assertEquals(new BigDecimal("100.00"), service.getBalanceAt(validAccId, may1.plusYears(1)));
+        assertEquals(new BigDecimal("0.00"), service.getBalanceAt(savings.getAccountId(), may1.plusDays(10)));
+        assertEquals(new BigDecimal("30.00"), service.getBalanceAt(savings.getAccountId(), may1.plusMonths(1)));
+
+        // 检查点建立之后补录 4 月的交易, 之后的各时刻余额相应变化
+        service.recordTransaction(new Transaction(new BigDecimal("5.00"), TransactionType.EXPENSE,
+                LocalDateTime.of(2024, 4, 15, 12, 0), validCatId, validAccId));
+        assertEquals(new BigDecimal("100.00"), service.getBalanceAt(validAccId, LocalDateTime.of(2024, 4, 15, 11, 0)));
+        assertEquals(new BigDecimal("95.00"), service.getBalanceAt(validAccId, LocalDateTime.of(2024, 4, 30, 0, 0)));
+        assertEquals(new BigDecimal("125.00"), service.getBalanceAt(validAccId, LocalDateTime.of(2024, 5, 31, 0, 0)));
+        assertThrows(DataNotFoundException.class, () -> service.getBalanceAt("ACC_MISSING", may1));
+        assertThrows(ValidationException.class, () -> service.getBalanceAt(null, may1));
+    }
+
+    // 18. 共用检查点的新服务在并发写入期间第一次查询历史余额: 写入不会被重复计入
+    @Test
+    void testGetBalanceAt_FirstQueryDuringConcurrentWrites() throws Exception {
+        TransactionService fresh = new TransactionService(repository.getTransactionRepository(),
+                repository.getAccountRepository(), repository.getCategoryRepository(), new PrecisionEngine(),
+                new AccountLockManager(), checkpoints);
+        LocalDateTime beforeWrites = LocalDateTime.of(2024, 4, 30, 0, 0);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                fresh.recordTransaction(new Transaction(new BigDecimal("1.00"), TransactionType.INCOME,
+                        LocalDateTime.of(2024, 5, 1 + i % 28, 9, 0), validCatId, validAccId));
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            // 全部写入都在 5 月, 4 月底的余额不随写入变化; 重复计入的写入会让它偏小
+            assertEquals(new BigDecimal("100.00"), fresh.getBalanceAt(validAccId, beforeWrites));
+        }
+        writer.join();
+        assertEquals(new BigDecimal("100.00"), fresh.getBalanceAt(validAccId, beforeWrites));
+        assertEquals(new BigDecimal("2100.00"), fresh.getBalanceAt(validAccId, LocalDateTime.of(2100, 1, 1, 0, 0)));
+        fresh.close();
+    }
+
+    // 19. 构造时未传入检查点的服务不支持历史余额查询
+    @Test
+    void testGetBalanceAt_WithoutCheckpoints() {
+        TransactionService plain = new TransactionService(repository.getTransactionRepository(),
+                repository.getAccountRepository(), repository.getCategoryRepository(), new PrecisionEngine());
+        assertThrows(IllegalStateException.class, () -> plain.getBalanceAt(validAccId, LocalDateTime.now()));
+        plain.close();
+    }
+
+    // 20. 交易写入失败时撤销余额变动, 与转账/批量录入一致
+    @Test
+    void testRecordTransaction_RollsBackBalanceWhenSaveFails() {
+        ITransactionRepository delegate = repository.getTransactionRepository();
+        ITransactionRepository failing = new ITransactionRepository() {
+            @Override public Transaction save(Transaction entity) { throw new IllegalStateException("磁盘已满"); }
+            @Override public Optional<Transaction> findById(String id) { return delegate.findById(id); }
+            @Override public void deleteById(String id) { delegate.deleteById(id); }
+            @Override public List<Transaction> query(Predicate<Transaction> predicate) { return delegate.query(predicate); }
+            @Override public List<Transaction> findAll() { return delegate.findAll(); }
+            @Override public List<Transaction> query(TransactionFilter filter) { return delegate.query(filter); }
+            @Override public void addChangeListener(TransactionChangeListener listener) { delegate.addChangeListener(listener); }
+            @Override public void removeChangeListener(TransactionChangeListener listener) { delegate.removeChangeListener(listener); }
+        };
+        TransactionService failingService = new TransactionService(failing, repository.getAccountRepository(),
+                repository.getCategoryRepository(), engine);
+
+        assertThrows(IllegalStateException.class, () -> failingService.recordTransaction(new Transaction(
+                new BigDecimal("30.00"), TransactionType.EXPENSE, LocalDateTime.now(), validCatId, validAccId)));
+        assertEquals(new BigDecimal("100.00"), repository.getAccountRepository().findById(validAccId).get().getBalance());
+        assertTrue(delegate.findAll().isEmpty());
+    }
+}
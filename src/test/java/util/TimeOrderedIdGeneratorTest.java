@@ -0,0 +1,111 @@
+package util;
+
+import model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+
+    // 1. 多线程并发生成: 没有重复, 每个线程内按生成顺序严格递增 (数值与字符串字典序一致)
+    @Test
+    void testNextId_UniqueAndOrderedAcrossThreads() throws Exception {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(3);
+        int threads = 8;
+        int perThread = 50_000;
+        Set<String> all = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    String previous = "";
+                    for (int i = 0; i < perThread; i++) {
+                        String id = generator.nextId("TX_");
+                        assertTrue(id.compareTo(previous) > 0, id + " <= " + previous);
+                        assertTrue(all.add(id), "重复的ID: " + id);
+                        previous = id;
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(List.of(), failures);
+        assertEquals(threads * perThread, all.size());
+        assertTrue(all.stream().allMatch(id -> id.length() == "TX_".length() + 13));
+    }
+
+    // 2. 数值ID中记录了生成时刻与节点号; 不同节点号生成的ID不会相同
+    @Test
+    void testNextLong_EncodesTimestampAndNode() {
+        long a = new TimeOrderedIdGenerator(1).nextLong();
+        long b = new TimeOrderedIdGenerator(2).nextLong();
+        assertNotEquals(a, b);
+        assertTrue(Duration.between(TimeOrderedIdGenerator.timestampOf(a), Instant.now()).abs().getSeconds() < 5);
+        assertThrows(ValidationException.class, () -> new TimeOrderedIdGenerator(TimeOrderedIdGenerator.MAX_NODE_ID + 1));
+    }
+
+    // 3. 实体构造函数使用可替换的全局生成器
+    @Test
+    void testIdGenerators_Pluggable() {
+        IdGenerator original = IdGenerators.getDefault();
+        try {
+            IdGenerators.setDefault(prefix -> prefix + "FIXED");
+            Transaction tx = new Transaction(BigDecimal.ONE, TransactionType.EXPENSE, LocalDateTime.now(), "C", "A");
+            assertEquals("TX_FIXED", tx.getTransactionId());
+
+            IdGenerators.setDefault(IdGenerators.randomUuid());
+            Set<String> ids = new HashSet<>();
+            for (int i = 0; i < 1000; i++) {
+                ids.add(IdGenerators.next("ACC_"));
+            }
+            assertEquals(1000, ids.size());
+        } finally {
+            IdGenerators.setDefault(original);
+        }
+    }
+
+    // 4. observe 把生成器推进到已有ID之后 (模拟重启后时钟落后于已持久化的ID); 其他格式的ID被忽略
+    @Test
+    void testObserve_SkipsPastPersistedIds() {
+        long future = (System.currentTimeMillis() + 3_600_000 - TimeOrderedIdGenerator.EPOCH_MILLIS) << 22
+                | 5L << 12 | 7;
+        byte[] chars = new byte[13];
+        TimeOrderedIdGenerator.encode(future, chars, 0);
+        String persisted = "TX_" + new String(chars, StandardCharsets.US_ASCII);
+
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(5);
+        generator.observe("TX_" + UUID.randomUUID());
+        generator.observe("TX_FIXED");
+        assertTrue(generator.nextId("TX_").compareTo(persisted) < 0);
+
+        generator.observe(persisted);
+        assertTrue(generator.nextId("TX_").compareTo(persisted) > 0);
+        assertEquals(TimeOrderedIdGenerator.timestampOf(future), TimeOrderedIdGenerator.timestampOf(generator.nextLong()));
+    }
+}